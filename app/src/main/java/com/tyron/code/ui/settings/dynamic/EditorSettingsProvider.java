@@ -61,6 +61,14 @@ public class EditorSettingsProvider implements SettingsProvider {
             caseInsensitiveMatch.setDefaultValue(true);
             caseInsensitiveMatch.setIconSpaceReserved(false);
             javaCategory.addPreference(caseInsensitiveMatch);
+
+            SwitchPreference injectClassFiles = new SwitchPreference(context);
+            injectClassFiles.setTitle(R.string.settings_inject_r_class_files_title);
+            injectClassFiles.setSummary(R.string.settings_inject_r_class_files_desc);
+            injectClassFiles.setKey("inject_r_class_files");
+            injectClassFiles.setDefaultValue(false);
+            injectClassFiles.setIconSpaceReserved(false);
+            javaCategory.addPreference(injectClassFiles);
         });
 
         addCategory(preferenceScreen, editor -> {
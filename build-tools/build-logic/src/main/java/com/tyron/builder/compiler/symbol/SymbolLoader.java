@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 public class SymbolLoader {
 
@@ -39,6 +40,24 @@ public class SymbolLoader {
         public String getType() {
             return mType;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SymbolEntry)) {
+                return false;
+            }
+            SymbolEntry that = (SymbolEntry) o;
+            return Objects.equals(mName, that.mName) && Objects.equals(mType, that.mType) &&
+                   Objects.equals(mValue, that.mValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mName, mType, mValue);
+        }
     }
 
     public SymbolLoader(Table<String, String, SymbolEntry> symbols) {
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
@@ -37,8 +38,17 @@ final class D8DexArchiveBuilder extends DexArchiveBuilder {
     @NotNull
     private DexParameters dexParams;
 
+    /** The executor D8 runs on, or {@code null} to run it on the calling thread. */
+    @Nullable private final ExecutorService executor;
+
     public D8DexArchiveBuilder(@NotNull DexParameters dexParams) {
+        this(dexParams, null);
+    }
+
+    public D8DexArchiveBuilder(
+            @NotNull DexParameters dexParams, @Nullable ExecutorService executor) {
         this.dexParams = dexParams;
+        this.executor = executor;
     }
 
     @Override
@@ -103,7 +113,9 @@ final class D8DexArchiveBuilder extends DexArchiveBuilder {
                 builder.setDisableDesugaring(true);
             }
 
-            D8.run(builder.build(), MoreExecutors.newDirectExecutorService());
+            D8.run(
+                    builder.build(),
+                    executor != null ? executor : MoreExecutors.newDirectExecutorService());
         } catch (Throwable e) {
             throw getExceptionToRethrow(e, diagnosticsHandler, dexParams.getWithDesugaring());
         }
@@ -2,6 +2,7 @@ package com.tyron.builder.dexing
 
 import java.io.File
 import java.nio.file.Path
+import java.util.concurrent.ExecutorService
 import java.util.stream.Stream
 
 /**
@@ -32,10 +33,18 @@ abstract class DexArchiveBuilder {
 
     companion object {
 
-        /** Creates an instance that is using d8 to convert class files to dex files.  */
+        /**
+         * Creates an instance that is using d8 to convert class files to dex files.
+         *
+         * @param executor the executor d8 runs on, or `null` to run it on the calling thread
+         */
         @JvmStatic
-        fun createD8DexBuilder(dexParams: DexParameters): DexArchiveBuilder {
-            return D8DexArchiveBuilder(dexParams)
+        @JvmOverloads
+        fun createD8DexBuilder(
+            dexParams: DexParameters,
+            executor: ExecutorService? = null
+        ): DexArchiveBuilder {
+            return D8DexArchiveBuilder(dexParams, executor)
         }
     }
 }
\ No newline at end of file
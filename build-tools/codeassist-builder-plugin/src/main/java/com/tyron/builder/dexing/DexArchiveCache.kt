@@ -0,0 +1,158 @@
+package com.tyron.builder.dexing
+
+import com.google.common.hash.Hashing
+import com.tyron.builder.utils.SynchronizedFile
+import org.gradle.api.logging.Logging
+import java.io.File
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * A cache of the dex archives of jars, shared by all the projects built on the device so that a
+ * library is only dexed once.
+ *
+ * An entry holds the dex outputs of all the buckets of a jar. It is keyed by the hash of the jar
+ * contents, the dexing parameters that change the outputs and the version of D8 (see [Key]). A
+ * jar dexed with desugaring is also keyed by its classpath, which desugaring reads.
+ * Entries are evicted, least recently used first, when the cache grows larger than
+ * [maxSizeInBytes]. The cache may be used by several Gradle daemons at the same time, so it is
+ * guarded by a multi-process lock.
+ */
+class DexArchiveCache(val cacheDir: File, private val maxSizeInBytes: Long) {
+
+    /** The inputs that determine the dex outputs of a jar. */
+    data class Key(
+        /** The hash of the contents of the jar. */
+        val jarHash: String,
+        val minSdkVersion: Int,
+        val debuggable: Boolean,
+        val withDesugaring: Boolean,
+        val coreLibDesugarConfig: String?,
+        /** The hash of the classpath the jar is desugared against, `null` without desugaring. */
+        val classpathHash: String?,
+        val numberOfBuckets: Int,
+        val d8Version: String = getR8Version()
+    ) {
+
+        /** Returns the name of the entry of this key in the cache. */
+        fun toEntryName(): String = Hashing.sha256().hashUnencodedChars(toString()).toString()
+    }
+
+    private val hits = AtomicInteger()
+    private val misses = AtomicInteger()
+
+    private val synchronizedDir: SynchronizedFile by lazy {
+        cacheDir.parentFile.mkdirs()
+        SynchronizedFile.getInstanceWithMultiProcessLocking(cacheDir)
+    }
+
+    val hitCount: Int
+        get() = hits.get()
+
+    val missCount: Int
+        get() = misses.get()
+
+    /**
+     * Copies the cached dex outputs of the jar to [outputs].
+     *
+     * @param outputs the output file of each bucket, by bucket number
+     * @return `true` if the jar was found in the cache, `false` if it has to be dexed
+     */
+    fun restore(key: Key, outputs: List<File>): Boolean {
+        val found = try {
+            synchronizedDir.read { dir ->
+                val entry = dir.resolve(key.toEntryName())
+                if (!entry.isDirectory) {
+                    return@read false
+                }
+                outputs.forEachIndexed { bucket, output ->
+                    val cached = entry.resolve(getBucketFileName(bucket))
+                    if (cached.isFile) {
+                        output.parentFile.mkdirs()
+                        cached.copyTo(output, overwrite = true)
+                    }
+                }
+                true
+            }
+        } catch (e: Exception) {
+            loggerWrapper.warn("Unable to read from the dex cache $cacheDir: ${e.message}")
+            false
+        }
+        if (found) {
+            try {
+                // used for the least recently used eviction, an entry is only changed while
+                // holding the write lock
+                synchronizedDir.write { dir ->
+                    dir.resolve(key.toEntryName()).setLastModified(System.currentTimeMillis())
+                }
+            } catch (e: Exception) {
+                loggerWrapper.warn("Unable to write to the dex cache $cacheDir: ${e.message}")
+            }
+        }
+        if (found) hits.incrementAndGet() else misses.incrementAndGet()
+        return found
+    }
+
+    /**
+     * Stores the dex outputs of the jar, then evicts the oldest entries if the cache is too large.
+     *
+     * @param outputs the output file of each bucket, by bucket number; a bucket without classes
+     * has no output
+     */
+    fun store(key: Key, outputs: List<File>) {
+        try {
+            synchronizedDir.write { dir ->
+                val entry = dir.resolve(key.toEntryName())
+                if (entry.isDirectory) {
+                    return@write
+                }
+                // copy to a temporary directory first, so a partial entry is never read
+                val temp = dir.resolve(entry.name + TEMP_SUFFIX)
+                temp.deleteRecursively()
+                temp.mkdirs()
+                outputs.forEachIndexed { bucket, output ->
+                    if (output.isFile) {
+                        output.copyTo(temp.resolve(getBucketFileName(bucket)))
+                    }
+                }
+                if (!temp.renameTo(entry)) {
+                    temp.deleteRecursively()
+                }
+                evict(dir)
+            }
+        } catch (e: Exception) {
+            loggerWrapper.warn("Unable to write to the dex cache $cacheDir: ${e.message}")
+        }
+    }
+
+    /** Returns the size of the cached dex archives, in bytes. */
+    fun getSize(): Long = getEntries(cacheDir).sumOf { getSize(it) }
+
+    private fun evict(dir: File) {
+        val entries = getEntries(dir).sortedBy { it.lastModified() }
+        var size = entries.sumOf { getSize(it) }
+        for (entry in entries) {
+            if (size <= maxSizeInBytes) {
+                break
+            }
+            size -= getSize(entry)
+            entry.deleteRecursively()
+        }
+    }
+
+    private fun getEntries(dir: File): List<File> =
+        dir.listFiles { file -> file.isDirectory && !file.name.endsWith(TEMP_SUFFIX) }
+            ?.toList() ?: emptyList()
+
+    private fun getSize(entry: File): Long = entry.listFiles()?.sumOf { it.length() } ?: 0L
+
+    private fun getBucketFileName(bucket: Int) = "$bucket.jar"
+
+    override fun toString(): String =
+        "Dex cache $cacheDir: $hitCount hits, $missCount misses, ${getSize() / 1024} KB"
+
+    companion object {
+        private const val TEMP_SUFFIX = ".tmp"
+    }
+}
+
+private val loggerWrapper = Logging.getLogger(DexArchiveCache::class.java)
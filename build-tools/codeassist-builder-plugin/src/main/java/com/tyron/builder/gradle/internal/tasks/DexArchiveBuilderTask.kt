@@ -3,6 +3,7 @@ package com.tyron.builder.gradle.internal.tasks
 import com.android.SdkConstants
 import com.android.sdklib.AndroidVersion
 import com.tyron.builder.api.variant.impl.getFeatureLevel
+import com.tyron.builder.dexing.DexArchiveCache
 import com.tyron.builder.gradle.internal.component.ApkCreationConfig
 import com.tyron.builder.gradle.internal.dependency.BaseDexingTransform
 import com.tyron.builder.gradle.internal.scope.InternalArtifactType
@@ -98,6 +99,21 @@ abstract class DexArchiveBuilderTask : IncrementalTask() {
     @get:LocalState
     abstract val previousRunNumberOfBucketsFile: RegularFileProperty
 
+    /** The number of threads D8 uses to dex the buckets, it does not change the outputs. */
+    @get:Internal
+    abstract val numberOfThreads: Property<Int>
+
+    /**
+     * The directory of the dex archives of jars shared between projects, not set if the cache is
+     * disabled. Cached archives are the same as the ones D8 would produce, so this does not change
+     * the outputs.
+     */
+    @get:Internal
+    abstract val dexCacheDir: Property<File>
+
+    @get:Internal
+    abstract val dexCacheSize: Property<Long>
+
     @get:Incremental
     @get:PathSensitive(PathSensitivity.NONE)
     @get:InputFiles
@@ -181,9 +197,11 @@ abstract class DexArchiveBuilderTask : IncrementalTask() {
 
             inputJarHashesFile = inputJarHashesFile.get().asFile,
             numberOfBuckets = numberOfBuckets.get(),
+            numberOfThreads = numberOfThreads.get(),
             workerExecutor = workerExecutor,
             projectPath = project.provider { project.projectPath.toString() },
             taskPath = path,
+            dexCache = dexCacheDir.orNull?.let { DexArchiveCache(it, dexCacheSize.get()) },
         ).doProcess()
     }
 
@@ -328,6 +346,20 @@ abstract class DexArchiveBuilderTask : IncrementalTask() {
                         ?: DEFAULT_NUM_BUCKETS
                 }
             )
+            task.numberOfThreads.set(
+                task.project.providers.provider {
+                    projectOptions.getProvider(IntegerOption.DEXING_NUMBER_OF_THREADS).orNull
+                        ?: DEFAULT_NUM_THREADS
+                }
+            )
+            val dexCacheSize =
+                projectOptions.get(IntegerOption.DEXING_CACHE_SIZE) ?: DEFAULT_DEX_CACHE_SIZE_MB
+            if (dexCacheSize > 0) {
+                task.dexCacheDir.set(
+                    creationConfig.services.projectInfo.gradleUserHomeDir.resolve(DEX_CACHE_DIR)
+                )
+                task.dexCacheSize.set(dexCacheSize * 1024L * 1024L)
+            }
             if (libraryDesugaring) {
                 task.dexParams.coreLibDesugarConfig.set(getDesugarLibConfig(creationConfig.services))
             }
@@ -422,6 +454,13 @@ abstract class DexArchiveBuilderTask : IncrementalTask() {
 
 val DEFAULT_NUM_BUCKETS = (Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(1)
 
+val DEFAULT_NUM_THREADS = Runtime.getRuntime().availableProcessors()
+
+/** The dex archive cache is kept next to the Gradle build cache. */
+private const val DEX_CACHE_DIR = "caches/android-dex-cache-1"
+
+private const val DEFAULT_DEX_CACHE_SIZE_MB = 1024
+
 /** Parameters required for dexing (with D8). */
 abstract class DexParameterInputs {
 
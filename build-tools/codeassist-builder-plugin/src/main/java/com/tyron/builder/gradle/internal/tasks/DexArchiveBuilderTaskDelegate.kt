@@ -20,10 +20,14 @@ import org.gradle.work.FileChange
 import org.gradle.workers.WorkerExecutor
 import java.io.BufferedInputStream
 import java.io.File
+import java.io.IOException
 import java.io.ObjectInputStream
 import java.io.ObjectOutputStream
 import java.nio.file.Path
 import java.util.ArrayList
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.zip.ZipFile
 
 /**
  * Delegate for the [DexArchiveBuilderTask]. This is where the actual processing happens. Using the
@@ -66,12 +70,38 @@ class DexArchiveBuilderTaskDelegate(
     // Other info
     private val inputJarHashesFile: File,
     private val numberOfBuckets: Int,
+    /** The number of threads of the executor shared by the d8 invocations. */
+    private val numberOfThreads: Int,
     private val workerExecutor: WorkerExecutor,
     private val projectPath: Provider<String>,
     private val taskPath: String,
+    /** The cache of the dex archives of jars shared between projects, `null` if disabled. */
+    private val dexCache: DexArchiveCache? = null,
 ) {
     private val outputMapping = OutputMapping(isIncremental)
 
+    /** The jars dexed by this run, stored in [dexCache] once the workers are done. */
+    private val pendingCacheEntries = mutableListOf<Pair<DexArchiveCache.Key, List<File>>>()
+
+    /**
+     * The hash of the classpath external libraries are desugared against, part of the key of
+     * their cached dex archives. Libraries can't reference the classes of the project, so those
+     * are left out. Library jars reuse the content hashes of [OutputMapping].
+     */
+    private val libraryClasspathHash: String by lazy {
+        val hasher = Hashing.sha256().newHasher()
+        sequenceOf(
+            externalLibClasses,
+            dexParams.desugarClasspath,
+            dexParams.desugarBootclasspath
+        ).flatten().forEach { hasher.putUnencodedChars(getClasspathEntryHash(it)) }
+        hasher.hash().toString()
+    }
+
+    /** Whether a jar or class on the classpath of the external libraries changed. */
+    private val libraryClasspathChanged =
+        externalLibChangedClasses.isNotEmpty() || desugarClasspathChangedClasses.isNotEmpty()
+
     //(b/141854812) Temporarily disable incremental support when core library desugaring enabled in release build
     private val isIncremental =
         isIncremental && projectOutputs.keepRules == null && subProjectOutputs?.keepRules == null
@@ -114,6 +144,22 @@ class DexArchiveBuilderTaskDelegate(
     companion object {
         // Shared state used by worker actions.
         internal val sharedState = WorkerActionServiceRegistry()
+
+        /**
+         * Jars are split into buckets of at least this many classes, smaller buckets cost more to
+         * schedule than d8 takes to dex them.
+         */
+        private const val MIN_CLASSES_PER_BUCKET = 500
+
+        private val d8Executors = ConcurrentHashMap<Int, ForkJoinPool>()
+
+        /**
+         * Returns the executor shared by the d8 invocations that use [numberOfThreads] threads, so
+         * that buckets dexed at the same time do not each start their own threads.
+         */
+        @JvmStatic
+        fun getD8Executor(numberOfThreads: Int): ForkJoinPool =
+            d8Executors.computeIfAbsent(numberOfThreads.coerceAtLeast(1)) { ForkJoinPool(it) }
     }
 
     fun doProcess() {
@@ -146,7 +192,8 @@ class DexArchiveBuilderTaskDelegate(
                                          outputDir: File,
                                          outputKeepRules: File?,
                     // Not null iff desugaring is enabled
-                                         desugarGraphDir: File? ->
+                                         desugarGraphDir: File?,
+                                         isExternalLib: Boolean ->
                     processClassFromInput(
                         inputFiles = classes,
                         inputFileChanges = changedClasses,
@@ -154,7 +201,8 @@ class DexArchiveBuilderTaskDelegate(
                         outputKeepRules = outputKeepRules,
                         desugarGraphDir = desugarGraphDir,
                         bootClasspathKey = bootclasspathServiceKey,
-                        classpathKey = classpathServiceKey
+                        classpathKey = classpathServiceKey,
+                        isExternalLib = isExternalLib
                     )
                 }
 
@@ -163,7 +211,8 @@ class DexArchiveBuilderTaskDelegate(
                     projectChangedClasses,
                     projectOutputs.dex,
                     projectOutputs.keepRules,
-                    desugarGraphDir?.resolve("currentProject")
+                    desugarGraphDir?.resolve("currentProject"),
+                    false
                 )
                 subProjectOutputs?.let {
                     processInputType(
@@ -171,7 +220,8 @@ class DexArchiveBuilderTaskDelegate(
                         subProjectChangedClasses,
                         subProjectOutputs.dex,
                         subProjectOutputs.keepRules,
-                        desugarGraphDir?.resolve("otherProjects")
+                        desugarGraphDir?.resolve("otherProjects"),
+                        false
                     )
                 }
                 mixedScopeOutputs?.let {
@@ -180,7 +230,8 @@ class DexArchiveBuilderTaskDelegate(
                         mixedScopeChangedClasses,
                         mixedScopeOutputs.dex,
                         mixedScopeOutputs.keepRules,
-                        desugarGraphDir?.resolve("mixedScopes")
+                        desugarGraphDir?.resolve("mixedScopes"),
+                        false
                     )
                 }
                 externalLibsOutputs?.let {
@@ -189,7 +240,8 @@ class DexArchiveBuilderTaskDelegate(
                         externalLibChangedClasses,
                         externalLibsOutputs.dex,
                         externalLibsOutputs.keepRules,
-                        desugarGraphDir?.resolve("externalLibs")
+                        desugarGraphDir?.resolve("externalLibs"),
+                        true
                     )
                 }
 
@@ -197,6 +249,11 @@ class DexArchiveBuilderTaskDelegate(
                 // TODO (gavra): use build services in worker actions so ClassFileProviderFactory are not closed too early
                 workerExecutor.await()
 
+                dexCache?.let { cache ->
+                    pendingCacheEntries.forEach { (key, outputs) -> cache.store(key, outputs) }
+                    loggerWrapper.info(cache.toString())
+                }
+
                 loggerWrapper.debug("Done with all dex archive conversions")
             }
         } catch (e: Exception) {
@@ -212,7 +269,8 @@ class DexArchiveBuilderTaskDelegate(
         outputKeepRules: File?,
         desugarGraphDir: File?, // Not null iff desugaring is enabled
         bootClasspathKey: ClasspathServiceKey,
-        classpathKey: ClasspathServiceKey
+        classpathKey: ClasspathServiceKey,
+        isExternalLib: Boolean
     ) {
         if (!isIncremental) {
             GFileUtils.cleanOutputDir(outputDir)
@@ -254,7 +312,8 @@ class DexArchiveBuilderTaskDelegate(
                 classpath = classpathKey,
                 changedFiles = changedFiles,
                 desugarGraphDir = desugarGraphDir,
-                outputKeepRulesDir = outputKeepRules
+                outputKeepRulesDir = outputKeepRules,
+                isExternalLib = isExternalLib
             )
         }
     }
@@ -267,11 +326,17 @@ class DexArchiveBuilderTaskDelegate(
         classpath: ClasspathServiceKey,
         changedFiles: Set<File>,
         desugarGraphDir: File?, // Not null iff desugaring is enabled
-        outputKeepRulesDir: File?
+        outputKeepRulesDir: File?,
+        isExternalLib: Boolean
     ) {
-        if (dexParams.withDesugaring) {
+        // with desugaring, the dex archives depend on the classpath too; only external libraries
+        // have a classpath that can be hashed without the classes of the project
+        val cache = dexCache?.takeIf {
+            outputKeepRulesDir == null && (!dexParams.withDesugaring || isExternalLib)
+        }
+        if (dexParams.withDesugaring && cache == null) {
             convertToDexArchive(
-                inputs = JarBucketGroup(jarInput, numberOfBuckets),
+                inputs = JarBucketGroup(jarInput, getNumberOfBuckets(jarInput)),
                 outputDir = outputDir,
                 isIncremental = isIncremental,
                 bootClasspath = bootclasspath,
@@ -281,12 +346,36 @@ class DexArchiveBuilderTaskDelegate(
                 outputKeepRulesDir = outputKeepRulesDir
             )
         } else {
-            if (isIncremental && jarInput !in changedFiles) {
+            // jars dexed without desugaring only depend on themselves; with desugaring, they are
+            // restored or dexed again whenever their classpath changes, without a desugaring graph
+            if (isIncremental && jarInput !in changedFiles &&
+                !(dexParams.withDesugaring && libraryClasspathChanged)) {
                 return
             }
 
+            val inputs = JarBucketGroup(jarInput, getNumberOfBuckets(jarInput))
+            if (cache != null) {
+                val key = DexArchiveCache.Key(
+                    jarHash = outputMapping.getCurrentHash(jarInput),
+                    minSdkVersion = dexParams.minSdkVersion,
+                    debuggable = dexParams.debuggable,
+                    withDesugaring = dexParams.withDesugaring,
+                    coreLibDesugarConfig = dexParams.coreLibDesugarConfig,
+                    classpathHash = if (dexParams.withDesugaring) libraryClasspathHash else null,
+                    numberOfBuckets = inputs.numOfBuckets
+                )
+                val outputs = (0 until inputs.numOfBuckets).map {
+                    outputMapping.getDexOutputForJar(jarInput, outputDir, it)
+                }
+                if (cache.restore(key, outputs)) {
+                    loggerWrapper.debug("Restored dex archives of %s from the cache", jarInput)
+                    return
+                }
+                pendingCacheEntries.add(key to outputs)
+            }
+
             convertToDexArchive(
-                inputs = JarBucketGroup(jarInput, numberOfBuckets),
+                inputs = inputs,
                 outputDir = outputDir,
                 isIncremental = false,
                 bootClasspath = bootclasspath,
@@ -298,6 +387,48 @@ class DexArchiveBuilderTaskDelegate(
         }
     }
 
+    /**
+     * Returns the hash of a classpath entry: the content hash of an input jar, or the hash of the
+     * contents of any other jar or directory.
+     */
+    private fun getClasspathEntryHash(entry: File): String {
+        if (entry.extension == SdkConstants.EXT_JAR && outputMapping.hasCurrentHash(entry)) {
+            return outputMapping.getCurrentHash(entry)
+        }
+        val hasher = Hashing.sha256().newHasher()
+        entry.walkTopDown().filter { it.isFile }.sortedBy { it.path }.forEach { file ->
+            hasher.putUnencodedChars(file.relativeTo(entry).invariantSeparatorsPath)
+            file.inputStream().buffered().use { input ->
+                val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+                while (true) {
+                    val read = input.read(buffer)
+                    if (read < 0) break
+                    hasher.putBytes(buffer, 0, read)
+                }
+            }
+        }
+        return hasher.hash().toString()
+    }
+
+    /**
+     * Returns the number of buckets the jar is split into, based on the number of classes it
+     * contains. It is never more than [numberOfBuckets] so that the outputs of the previous run
+     * can still be found by [OutputMapping.getPreviousDexOutputsForJar]. A jar with few classes
+     * is dexed as a single bucket, d8 still dexes it on several threads of the shared executor.
+     */
+    private fun getNumberOfBuckets(jar: File): Int {
+        val classCount = try {
+            ZipFile(jar).use { zip ->
+                zip.stream().filter { ClassFileInput.CLASS_MATCHER.test(it.name) }.count()
+            }
+        } catch (e: IOException) {
+            loggerWrapper.debug("Unable to count the classes of %s", jar.toString())
+            return numberOfBuckets
+        }
+        return ((classCount + MIN_CLASSES_PER_BUCKET - 1) / MIN_CLASSES_PER_BUCKET).toInt()
+            .coerceIn(1, numberOfBuckets)
+    }
+
     @Suppress("UnstableApiUsage")
     private fun deletePreviousOutputsFromDirs(inputFileChanges: Set<FileChange>, output: File) {
         // Handle dir/file deletions only. We rewrite modified files, so no need to delete those.
@@ -346,7 +477,7 @@ class DexArchiveBuilderTaskDelegate(
     ) {
         inputs.getRoots().forEach { loggerWrapper.debug("Dexing ${it.absolutePath}") }
 
-        for (bucketId in 0 until numberOfBuckets) {
+        for (bucketId in 0 until inputs.numOfBuckets) {
             // For directory inputs, we prefer dexPerClass mode to support incremental dexing per
             // class, but dexPerClass mode is not supported by D8 when generating keep rules for
             // core library desugaring
@@ -390,7 +521,8 @@ class DexArchiveBuilderTaskDelegate(
                             dexPerClass,
                             bootClasspath,
                             classpath,
-                            outputKeepRuleFile
+                            outputKeepRuleFile,
+                            numberOfThreads
                         ),
                         isIncremental = isIncremental,
                         changedFiles = changedFiles,
@@ -535,6 +667,8 @@ class DexArchiveBuilderTaskDelegate(
 
         fun getCurrentHash(file: File) = currentFileHashes.getValue(file)
 
+        fun hasCurrentHash(file: File) = file in currentFileHashes
+
         /**
          * Computes the output path without using the jar absolute path. This method will use the
          * hash of the file content to determine the final output path, and this makes sure the task is
@@ -42,6 +42,15 @@ enum class IntegerOption(
     /** Number of buckets used by `DexArchiveBuilderTask` and `DexMergingTask`. */
     DEXING_NUMBER_OF_BUCKETS("android.dexingNumberOfBuckets", ApiStage.Experimental),
 
+    /** Number of threads shared by the D8 invocations of `DexArchiveBuilderTask`. */
+    DEXING_NUMBER_OF_THREADS("android.dexingNumberOfThreads", ApiStage.Experimental),
+
+    /**
+     * Maximum size in megabytes of the dex archives of jars cached across projects, 0 disables
+     * the cache.
+     */
+    DEXING_CACHE_SIZE("android.dexingCacheSize", ApiStage.Experimental),
+
     /**
      * Maximum number of dynamic features that can be allocated before Oreo platforms.
      */
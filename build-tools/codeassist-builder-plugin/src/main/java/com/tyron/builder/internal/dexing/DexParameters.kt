@@ -20,7 +20,8 @@ class DexParameters(
         dexPerClass: Boolean,
         bootClasspath: DexArchiveBuilderTaskDelegate.ClasspathServiceKey,
         classpath: DexArchiveBuilderTaskDelegate.ClasspathServiceKey,
-        coreLibDesugarOutputKeepRuleFile: File?): DexParametersForWorkers {
+        coreLibDesugarOutputKeepRuleFile: File?,
+        numberOfThreads: Int): DexParametersForWorkers {
         return DexParametersForWorkers(
             minSdkVersion = minSdkVersion,
             debuggable = debuggable,
@@ -30,7 +31,8 @@ class DexParameters(
             desugarClasspath = classpath,
             coreLibDesugarConfig = coreLibDesugarConfig,
             coreLibDesugarOutputKeepRuleFile = coreLibDesugarOutputKeepRuleFile,
-            errorFormatMode = errorFormatMode)
+            errorFormatMode = errorFormatMode,
+            numberOfThreads = numberOfThreads)
     }
 }
 
@@ -48,7 +50,9 @@ class DexParametersForWorkers(
     val desugarClasspath: DexArchiveBuilderTaskDelegate.ClasspathServiceKey,
     val coreLibDesugarConfig: String?,
     val coreLibDesugarOutputKeepRuleFile: File?,
-    val errorFormatMode: SyncOptions.ErrorFormatMode
+    val errorFormatMode: SyncOptions.ErrorFormatMode,
+    /** The number of threads of the executor shared by the d8 invocations. */
+    val numberOfThreads: Int
 ) : Serializable {
 
     companion object {
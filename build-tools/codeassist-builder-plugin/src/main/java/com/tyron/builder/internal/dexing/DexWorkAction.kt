@@ -16,6 +16,8 @@ import java.io.FileInputStream
 import java.io.FileOutputStream
 import java.io.ObjectInputStream
 import java.io.ObjectOutputStream
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 /** Work action to process a bucket of class files. */
 abstract class DexWorkAction : WorkAction<DexWorkActionParams> {
@@ -149,12 +151,24 @@ private fun process(
 ) {
     val inputRoots = inputClassFiles.bucketGroup.getRoots()
     inputRoots.forEach { loggerWrapper.debug("Dexing '${it.path}' to '${outputPath.path}'") }
+    val started = System.nanoTime()
+    val classCount = AtomicInteger()
     try {
         Closer.create().use { closer ->
             inputClassFiles.getClassFiles(filter = inputFilter, closer = closer).use {
-                dexArchiveBuilder.convert(it, outputPath.toPath(), desugarGraphUpdater)
+                dexArchiveBuilder.convert(
+                    it.peek { classCount.incrementAndGet() },
+                    outputPath.toPath(),
+                    desugarGraphUpdater
+                )
             }
         }
+        loggerWrapper.info(
+            "Dexed bucket ${inputClassFiles.bucketNumber + 1} of " +
+                    "${inputClassFiles.bucketGroup.numOfBuckets} " +
+                    "(${classCount.get()} classes from ${inputRoots.joinToString(", ") { it.name }}) " +
+                    "in ${TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)} ms"
+        )
     } catch (ex: DexArchiveBuilderException) {
         throw DexArchiveBuilderException(
             "Failed to process: ${inputRoots.joinToString(", ") { it.path }}",
@@ -184,7 +198,8 @@ private fun getDexArchiveBuilder(
                 coreLibDesugarOutputKeepRuleFile =
                 dexSpec.dexParams.coreLibDesugarOutputKeepRuleFile,
                 messageReceiver = messageReceiver
-            )
+            ),
+            DexArchiveBuilderTaskDelegate.getD8Executor(dexSpec.dexParams.numberOfThreads)
         )
     }
     return dexArchiveBuilder
@@ -3,7 +3,9 @@ package com.tyron.lint;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.tyron.completion.java.compiler.CompileTask;
 import com.tyron.completion.java.compiler.CompilerContainer;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.compiler.JavaCompilerService;
@@ -11,6 +13,8 @@ import com.tyron.lint.api.Detector;
 import com.tyron.lint.api.Detector.JavaScanner;
 import com.tyron.lint.api.JavaContext;
 import com.tyron.lint.api.JavaVoidVisitor;
+import com.tyron.lint.client.JavaParser;
+import com.tyron.lint.client.LintTimings;
 
 import com.sun.source.tree.AnnotationTree;
 import com.sun.source.tree.IdentifierTree;
@@ -24,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class JavaVisitor {
 
@@ -34,6 +39,10 @@ public class JavaVisitor {
     private final Map<Class<? extends Tree>, List<VisitingDetector>> mTreeTypeDetectors =
             new HashMap<>(16);
     private final Map<String, List<VisitingDetector>> mMethodDetectors = new HashMap<>(16);
+    @Nullable
+    private LintTimings mTimings;
+    @Nullable
+    private JavaParser mParser;
 
     public JavaVisitor(JavaCompilerService compiler, @NonNull List<Detector> detectors) {
         mCompiler = compiler;
@@ -63,36 +72,101 @@ public class JavaVisitor {
         }
     }
 
-    public void visitFile(JavaContext context) {
-        try {
-            CompilerContainer container = mCompiler.compile(context.file.toPath());
-            container.run(task -> {
-                Tree compilationUnit = task.root();
-                context.setCompileTask(task);
+    public void setTimings(@Nullable LintTimings timings) {
+        mTimings = timings;
+    }
 
-                for (VisitingDetector v : mAllDetectors) {
-                    v.setContext(context);
-                }
+    /**
+     * Sets the parser asked for the tree of a file before compiling it
+     */
+    public void setParser(@Nullable JavaParser parser) {
+        mParser = parser;
+    }
 
-                if (!mMethodDetectors.isEmpty()) {
-                    JavaVoidVisitor visitor = new DelegatingJavaVisitor(context);
-                    compilationUnit.accept(visitor, null);
-                } else if (!mTreeTypeDetectors.isEmpty()) {
-                    JavaVoidVisitor visitor = new DispatchVisitor();
-                    compilationUnit.accept(visitor, null);
+    public void visitFile(JavaContext context) {
+        if (mParser != null) {
+            Boolean visited = mParser.runWithTree(context, () -> {
+                if (mParser.parseJava(context) == null) {
+                    return false;
                 }
+                visitTree(context);
+                return true;
             });
+            if (Boolean.TRUE.equals(visited)) {
+                return;
+            }
+        }
+        try {
+            CompilerContainer container = mCompiler.compile(context.file.toPath());
+            container.run(task -> visitFile(context, task));
         } catch (Throwable e) {
             Log.e("Lint", "Failed to analyze file", e);
             ((JavaCompilerService) mCompiler).destroy();
         }
     }
 
+    /**
+     * Runs the detectors on a file of a compilation that is already attributed.
+     *
+     * @param context the context of the file, its tree must be one of the roots of the task
+     * @param task the task the file was compiled with
+     */
+    public void visitFile(@NonNull JavaContext context, @NonNull CompileTask task) {
+        context.setCompileTask(task);
+        visitTree(context);
+    }
+
+    /**
+     * Runs the detectors on the tree attached to the context, all the detectors share a
+     * single pass over the tree. A {@code JavaVisitor} holds the state of the file it is
+     * visiting, so each thread visiting files needs its own instance.
+     */
+    public void visitTree(@NonNull JavaContext context) {
+        Tree compilationUnit = context.getCompilationUnit();
+        if (compilationUnit == null) {
+            return;
+        }
+        visitTree(context, compilationUnit);
+    }
+
+    /**
+     * Runs the detectors on a part of the tree attached to the context, such as a method
+     * whose body was reparsed. Only detectors that can analyze the part in isolation should
+     * be given to this visitor.
+     *
+     * @param context the context of the file
+     * @param tree a tree within the compilation unit of the context
+     */
+    public void visitTree(@NonNull JavaContext context, @NonNull Tree tree) {
+
+        for (VisitingDetector v : mAllDetectors) {
+            v.setContext(context);
+        }
+
+        try {
+            if (!mMethodDetectors.isEmpty()) {
+                JavaVoidVisitor visitor = new DelegatingJavaVisitor(context);
+                tree.accept(visitor, null);
+            } else if (!mTreeTypeDetectors.isEmpty()) {
+                JavaVoidVisitor visitor = new DispatchVisitor();
+                tree.accept(visitor, null);
+            }
+        } finally {
+            if (mTimings != null) {
+                for (VisitingDetector v : mAllDetectors) {
+                    mTimings.add(v.getDetector(), v.mTime);
+                }
+            }
+        }
+    }
+
     private static class VisitingDetector {
         private JavaVoidVisitor mVisitor;
         private JavaContext mContext;
         public final Detector mDetector;
         public final JavaScanner mScanner;
+        /** Time spent in this detector on the current file, in nanoseconds */
+        private long mTime;
 
         public VisitingDetector(@NonNull Detector detector, JavaScanner scanner) {
             mDetector = detector;
@@ -115,15 +189,28 @@ public class JavaVisitor {
             // The visitors are one-per-context, so clear them out here and construct
             // lazily only if needed
             mVisitor = null;
+            mTime = 0;
         }
 
         @NonNull
         JavaVoidVisitor getVisitor() {
             if (mVisitor == null) {
+                long start = System.nanoTime();
                 mVisitor = mDetector.getVisitor(mContext);
+                mTime += System.nanoTime() - start;
             }
             return mVisitor;
         }
+
+        void visit(@NonNull Consumer<JavaVoidVisitor> action) {
+            JavaVoidVisitor visitor = getVisitor();
+            long start = System.nanoTime();
+            try {
+                action.accept(visitor);
+            } finally {
+                mTime += System.nanoTime() - start;
+            }
+        }
     }
 
     private class DispatchVisitor extends JavaVoidVisitor {
@@ -133,7 +220,7 @@ public class JavaVisitor {
             List<VisitingDetector> list = mTreeTypeDetectors.get(AnnotationTree.class);
             if (list != null) {
                 for (VisitingDetector v : list) {
-                    v.getVisitor().visitAnnotation(annotationTree, unused);
+                    v.visit(visitor -> visitor.visitAnnotation(annotationTree, unused));
                 }
             }
             return null;
@@ -144,7 +231,7 @@ public class JavaVisitor {
             List<VisitingDetector> list = mTreeTypeDetectors.get(VariableTree.class);
             if (list != null) {
                 for (VisitingDetector v : list) {
-                    v.getVisitor().visitVariable(variableTree, unused);
+                    v.visit(visitor -> visitor.visitVariable(variableTree, unused));
                 }
             }
             return null;
@@ -155,7 +242,7 @@ public class JavaVisitor {
             List<VisitingDetector> list = mTreeTypeDetectors.get(MethodInvocationTree.class);
             if (list != null) {
                 for (VisitingDetector v : list) {
-                    v.getVisitor().visitMethodInvocation(methodInvocationTree, unused);
+                    v.visit(visitor -> visitor.visitMethodInvocation(methodInvocationTree, unused));
                 }
             }
             return super.visitMethodInvocation(methodInvocationTree, unused);
@@ -166,7 +253,7 @@ public class JavaVisitor {
             List<VisitingDetector> list = mTreeTypeDetectors.get(MethodTree.class);
             if (list != null) {
                 for (VisitingDetector v : list) {
-                    v.getVisitor().visitMethod(methodTree, unused);
+                    v.visit(visitor -> visitor.visitMethod(methodTree, unused));
                 }
             }
             return super.visitMethod(methodTree, unused);
@@ -177,7 +264,7 @@ public class JavaVisitor {
             List<VisitingDetector> list = mTreeTypeDetectors.get(IdentifierTree.class);
             if (list != null) {
                 for (VisitingDetector v : list) {
-                    v.getVisitor().visitIdentifier(identifierTree, unused);
+                    v.visit(visitor -> visitor.visitIdentifier(identifierTree, unused));
                 }
             }
             return super.visitIdentifier(identifierTree, unused);
@@ -222,7 +309,7 @@ public class JavaVisitor {
                 List<VisitingDetector> list = mMethodDetectors.get(methodName);
                 if (list != null) {
                     for (VisitingDetector v : list) {
-                        v.getJavaScanner().visitMethod(mContext, v.getVisitor(), node);
+                        v.visit(visitor -> v.getJavaScanner().visitMethod(mContext, visitor, node));
                     }
                 }
             }
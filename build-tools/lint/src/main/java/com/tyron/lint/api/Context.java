@@ -39,6 +39,10 @@ public class Context {
         mConfiguration = config;
     }
 
+    public JavaModule getProject() {
+        return mProject;
+    }
+
     public String getContents() {
         if (contents == null) {
             try {
@@ -50,6 +54,10 @@ public class Context {
         return contents;
     }
 
+    protected void setContents(@Nullable String contents) {
+        this.contents = contents;
+    }
+
 
     /** Returns the comment marker used in Studio to suppress statements for language, if any */
     @Nullable
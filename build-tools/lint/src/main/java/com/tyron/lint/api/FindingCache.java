@@ -0,0 +1,116 @@
+package com.tyron.lint.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.completion.model.Position;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The issues found by the last scan of each file, kept by their offsets so they can be
+ * reported again after an edit without running the detectors that found them.
+ */
+class FindingCache {
+
+    private final Map<File, List<Finding>> mFindings = new ConcurrentHashMap<>();
+
+    /**
+     * Forgets the findings of the file before it is scanned again
+     */
+    void clear(@NonNull File file) {
+        mFindings.put(file, Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    void add(@NonNull File file, @NonNull Finding finding) {
+        mFindings.computeIfAbsent(file, f -> Collections.synchronizedList(new ArrayList<>()))
+                .add(finding);
+    }
+
+    void put(@NonNull File file, @NonNull List<Finding> findings) {
+        mFindings.put(file, Collections.synchronizedList(new ArrayList<>(findings)));
+    }
+
+    /**
+     * @return a copy of the findings of the file, null if it was not scanned
+     */
+    @Nullable
+    List<Finding> get(@NonNull File file) {
+        List<Finding> findings = mFindings.get(file);
+        if (findings == null) {
+            return null;
+        }
+        synchronized (findings) {
+            return new ArrayList<>(findings);
+        }
+    }
+
+    static class Finding {
+        final Issue issue;
+        final Severity severity;
+        /** The offsets of the location of the issue, -1 if it has no location */
+        final int start;
+        final int end;
+        final String message;
+        final TextFormat format;
+
+        Finding(Issue issue, Severity severity, int start, int end, String message,
+                TextFormat format) {
+            this.issue = issue;
+            this.severity = severity;
+            this.start = start;
+            this.end = end;
+            this.message = message;
+            this.format = format;
+        }
+
+        @NonNull
+        static Finding create(@NonNull Issue issue, @NonNull Severity severity,
+                              @Nullable Location location, @NonNull String message,
+                              @NonNull TextFormat format) {
+            int start = -1;
+            int end = -1;
+            if (location != null) {
+                start = getOffset(location.getStart());
+                end = getOffset(location.getEnd());
+                if (start < 0 || end < start) {
+                    start = end = -1;
+                }
+            }
+            return new Finding(issue, severity, start, end, message, format);
+        }
+
+        private static int getOffset(@Nullable Position position) {
+            return position instanceof DefaultPosition
+                    ? ((DefaultPosition) position).getOffset()
+                    : -1;
+        }
+
+        boolean hasLocation() {
+            return start >= 0;
+        }
+
+        /**
+         * @return this finding with the offsets at or after {@code offset} moved by
+         * {@code delta} characters
+         */
+        @NonNull
+        Finding shift(int offset, int delta) {
+            if (!hasLocation() || delta == 0 || end < offset) {
+                return this;
+            }
+            return new Finding(issue, severity, start >= offset ? start + delta : start,
+                    end + delta, message, format);
+        }
+
+        @Nullable
+        Location getLocation(@NonNull File file, @Nullable String contents) {
+            return hasLocation() ? Location.create(file, contents, start, end) : null;
+        }
+    }
+}
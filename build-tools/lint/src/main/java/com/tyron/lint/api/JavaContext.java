@@ -24,14 +24,18 @@ import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
 import com.sun.source.util.SourcePositions;
 import com.sun.source.util.Trees;
 
 import java.io.File;
+import java.io.IOException;
 
 public class JavaContext extends Context {
     static final String SUPPRESS_COMMENT_PREFIX = "//noinspection ";
     private CompileTask mCompileTask;
+    private JavacTask mJavacTask;
+    private CompilationUnitTree mCompilationUnit;
 
     public JavaContext(LintDriver driver, JavaModule project, File file, Configuration config) {
         super(driver, project, file, config);
@@ -39,14 +43,66 @@ public class JavaContext extends Context {
 
     public void setCompileTask(CompileTask root) {
         mCompileTask = root;
+        mJavacTask = root.task;
+        mCompilationUnit = null;
     }
 
+    /**
+     * Uses a tree that was already parsed and attributed elsewhere, such as the tree the
+     * editor keeps of an opened file, instead of compiling the file for lint.
+     *
+     * @param task the task the tree was attributed with
+     * @param compilationUnit the tree of this file
+     */
+    public void setCompilationUnit(@NonNull JavacTask task,
+                                   @NonNull CompilationUnitTree compilationUnit) {
+        mCompileTask = null;
+        mJavacTask = task;
+        mCompilationUnit = compilationUnit;
+
+        // the tree may have been parsed from the contents of the editor, locations
+        // have to be computed from the same contents
+        try {
+            CharSequence contents = compilationUnit.getSourceFile().getCharContent(true);
+            if (contents != null) {
+                setContents(contents.toString());
+            }
+        } catch (IOException ignored) {
+            // fall back to the contents of the file
+        }
+    }
+
+    /**
+     * @return the compile task of the file, null if its tree came from somewhere else
+     */
+    @Nullable
     public CompileTask getCompileTask() {
         return mCompileTask;
     }
 
+    /**
+     * @return the task that attributed the tree of this file
+     */
+    public JavacTask getJavacTask() {
+        return mJavacTask;
+    }
+
+    public Trees getTrees() {
+        return Trees.instance(mJavacTask);
+    }
+
+    /**
+     * @return the tree of this file, the task may have compiled other files along with it
+     */
     public CompilationUnitTree getCompilationUnit() {
-        return mCompileTask.root();
+        if (mCompilationUnit == null && mCompileTask != null) {
+            if (mCompileTask.roots.size() == 1) {
+                mCompilationUnit = mCompileTask.root();
+            } else {
+                mCompilationUnit = mCompileTask.root(file);
+            }
+        }
+        return mCompilationUnit;
     }
 
     public void report(
@@ -61,7 +117,7 @@ public class JavaContext extends Context {
     }
 
     public Location getLocation(@NonNull Tree node) {
-        SourcePositions pos = Trees.instance(mCompileTask.task).getSourcePositions();
+        SourcePositions pos = getTrees().getSourcePositions();
         return Location.create(file,
                 getContents(),
                 (int) pos.getStartPosition(getCompilationUnit(), node),
@@ -5,8 +5,16 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.completion.java.parse.CompilationInfo;
+import com.tyron.completion.java.parse.DefaultPartialReparser;
+import com.tyron.completion.java.parse.PartialReparser;
 import com.tyron.lint.JavaVisitor;
 import com.tyron.lint.checks.CallSuperDetector;
 import com.tyron.lint.checks.JavaPerformanceDetector;
@@ -14,10 +22,14 @@ import com.tyron.lint.checks.SharedPrefsDetector;
 import com.tyron.lint.checks.ToastDetector;
 import com.tyron.lint.client.Configuration;
 import com.tyron.lint.client.IssueRegistry;
+import com.tyron.lint.client.JavaParser;
 import com.tyron.lint.client.LintClient;
 import com.tyron.lint.client.LintDriver;
+import com.tyron.lint.client.LintTimings;
+import com.tyron.lint.parser.CompilationInfoParser;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -25,10 +37,20 @@ import java.util.Arrays;
 import java.util.List;
 
 public class Lint {
+    private static final List<Issue> ISSUES = Arrays.asList(
+            JavaPerformanceDetector.PAINT_ALLOC,
+            SharedPrefsDetector.ISSUE,
+            CallSuperDetector.ISSUE,
+            ToastDetector.ISSUE
+    );
+
     private final JavaModule mProject;
     private final JavaCompilerService mCompiler;
     private final List<Detector> mDetectors;
     private final LintClient mClient;
+    private JavaParser mParser = new CompilationInfoParser();
+    private final PartialReparser mPartialReparser = new DefaultPartialReparser();
+    private final FindingCache mFindings = new FindingCache();
 
     public Lint(JavaCompilerService compiler, JavaModule project, LintClient client) {
         mCompiler = compiler;
@@ -43,19 +65,190 @@ public class Lint {
 
     public void scanFile(File file) {
         Instant start = Instant.now();
-        LintDriver driver = new LintDriver(new IssueRegistry() {
+        mFindings.clear(file);
+        LintDriver driver = createDriver(new RecordingClient(mFindings, mClient));
+        JavaContext context = createContext(driver, file);
+        JavaVisitor visitor = new JavaVisitor(mCompiler, mDetectors);
+        visitor.setParser(mParser);
+        visitor.visitFile(context);
+
+        Log.d("Lint", "Scanning took " + Duration.between(start, Instant.now()).toMillis() + " ms");
+    }
+
+    /**
+     * Scans the files together, the files without a tree are compiled in a single batch.
+     *
+     * @return the time spent in each detector
+     */
+    public LintTimings scanFiles(List<File> files) {
+        LintDriver driver = createDriver(new RecordingClient(mFindings, mClient));
+        List<JavaContext> contexts = new ArrayList<>(files.size());
+        for (File file : files) {
+            mFindings.clear(file);
+            contexts.add(createContext(driver, file));
+        }
+        LintTimings timings = driver.analyze(mCompiler, mParser, mDetectors, contexts);
+
+        Log.d("Lint", timings.toString());
+        return timings;
+    }
+
+    /**
+     * Lints a file after only the body of one of its methods was edited. The body is reparsed
+     * in place, the detectors that can analyze a method on its own (see
+     * {@link Scope#JAVA_METHOD}) run on that method only and their findings in the rest of
+     * the file are taken from the last scan. The other detectors run on the whole file. All
+     * the findings of the file are then reported, as a full scan would.
+     *
+     * <p>The reparse and the scan run on the lane of the {@link CompilationInfo} of the file,
+     * this waits for them. The findings are reported on the calling thread.
+     *
+     * @param file the edited file, it must be opened in the editor and scanned before
+     * @param contents the contents of the file after the edit
+     * @param method the edited method, from the current tree of the file
+     * @param newBody the new text of the body of the method, including its braces
+     * @return false if the edit can not be linted incrementally, the file should then be
+     * scanned with {@link #scanFile(File)} once its tree is updated
+     */
+    public boolean scanMethod(@NonNull File file,
+                              @NonNull String contents,
+                              @NonNull MethodTree method,
+                              @NonNull String newBody) {
+        Instant start = Instant.now();
+        List<FindingCache.Finding> previous = mFindings.get(file);
+        if (previous == null || method.getBody() == null) {
+            return false;
+        }
+        CompilationInfo info = mProject.getUserData(CompilationInfo.COMPILATION_INFO_KEY);
+        if (info == null) {
+            return false;
+        }
+
+        FindingCache found = new FindingCache();
+        LintDriver driver = createDriver(new RecordingClient(found, null));
+        JavaContext context = createContext(driver, file);
+        context.setContents(contents);
+        // the reparse changes the tree and the javac context of the editor, they are only
+        // changed and read on the lane of the compilation info
+        List<FindingCache.Finding> findings = info.runOnLane(
+                () -> scanMethod(info, context, contents, previous, found, method, newBody));
+        if (findings == null) {
+            return false;
+        }
+        mFindings.put(file, findings);
+
+        for (FindingCache.Finding finding : findings) {
+            mClient.report(context, finding.issue, finding.severity,
+                    finding.getLocation(file, contents), finding.message, finding.format);
+        }
+
+        Log.d("Lint", "Scanning method " + method.getName() + " took " +
+                Duration.between(start, Instant.now()).toMillis() + " ms");
+        return true;
+    }
+
+    /**
+     * Reparses the body of the method and scans it, runs on the lane of the compilation info.
+     *
+     * @return all the findings of the file, or null if the edit can not be linted incrementally
+     */
+    @Nullable
+    private List<FindingCache.Finding> scanMethod(@NonNull CompilationInfo info,
+                                                  @NonNull JavaContext context,
+                                                  @NonNull String contents,
+                                                  @NonNull List<FindingCache.Finding> previous,
+                                                  @NonNull FindingCache found,
+                                                  @NonNull MethodTree method,
+                                                  @NonNull String newBody) {
+        File file = context.file;
+        CompilationUnitTree unit = info.getEnteredCompilationUnit(file.toURI());
+        if (unit == null || TreePath.getPath(unit, method) == null) {
+            // the file was reparsed since the caller got the method
+            return null;
+        }
+
+        SourcePositions positions = Trees.instance(info.impl.getJavacTask()).getSourcePositions();
+        int methodStart = (int) positions.getStartPosition(unit, method);
+        int bodyStart = (int) positions.getStartPosition(unit, method.getBody());
+        int bodyEnd = (int) positions.getEndPosition(unit, method.getBody());
+        if (methodStart < 0 || bodyStart < methodStart || bodyEnd < bodyStart) {
+            return null;
+        }
+        try {
+            if (!mPartialReparser.reparseMethod(info.impl, contents, unit, method, newBody)) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        int delta = newBody.length() - (bodyEnd - bodyStart);
+
+        List<Detector> methodDetectors = new ArrayList<>();
+        List<Detector> fileDetectors = new ArrayList<>();
+        for (Detector detector : mDetectors) {
+            if (isMethodScoped(detector)) {
+                methodDetectors.add(detector);
+            } else {
+                fileDetectors.add(detector);
+            }
+        }
+
+        context.setCompilationUnit(info.impl.getJavacTask(), unit);
+        if (!methodDetectors.isEmpty()) {
+            new JavaVisitor(mCompiler, methodDetectors).visitTree(context, method);
+        }
+        if (!fileDetectors.isEmpty()) {
+            new JavaVisitor(mCompiler, fileDetectors).visitTree(context);
+        }
+
+        List<FindingCache.Finding> findings = new ArrayList<>();
+        for (FindingCache.Finding finding : previous) {
+            if (!isMethodScoped(finding.issue)) {
+                // found again by the scan of the whole file
+                continue;
+            }
+            if (finding.hasLocation() && finding.start >= methodStart && finding.start < bodyEnd) {
+                // found again by the scan of the method
+                continue;
+            }
+            findings.add(finding.shift(bodyEnd, delta));
+        }
+        List<FindingCache.Finding> current = found.get(file);
+        if (current != null) {
+            findings.addAll(current);
+        }
+        return findings;
+    }
+
+    private boolean isMethodScoped(Detector detector) {
+        boolean found = false;
+        for (Issue issue : ISSUES) {
+            if (issue.getImplementation().getDetectorClass() == detector.getClass()) {
+                if (!isMethodScoped(issue)) {
+                    return false;
+                }
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    private static boolean isMethodScoped(Issue issue) {
+        return issue.getImplementation().isAdequate(Scope.JAVA_METHOD_SCOPE);
+    }
+
+    private LintDriver createDriver(LintClient client) {
+        return new LintDriver(new IssueRegistry() {
             @NonNull
             @Override
             public List<Issue> getIssues() {
-                return Arrays.asList(
-                        JavaPerformanceDetector.PAINT_ALLOC,
-                        SharedPrefsDetector.ISSUE,
-                        CallSuperDetector.ISSUE,
-                        ToastDetector.ISSUE
-                );
+                return ISSUES;
             }
-        }, mClient);
-        JavaContext context = new JavaContext(driver, mProject, file, new Configuration() {
+        }, client);
+    }
+
+    private JavaContext createContext(LintDriver driver, File file) {
+        return new JavaContext(driver, mProject, file, new Configuration() {
             @Override
             public void ignore(@NonNull Context context, @NonNull Issue issue, @Nullable Location location, @NonNull String message) {
 
@@ -66,13 +259,58 @@ public class Lint {
 
             }
         });
-        JavaVisitor visitor = new JavaVisitor(mCompiler, mDetectors);
-        visitor.visitFile(context);
+    }
 
-        Log.d("Lint", "Scanning took " + Duration.between(start, Instant.now()).toMillis() + " ms");
+    /**
+     * Sets the parser asked for the trees of the files before they are compiled, by default
+     * the trees the editor keeps of the opened files are used
+     */
+    public void setParser(@Nullable JavaParser parser) {
+        mParser = parser;
     }
 
     public void registerDetector(Detector detector) {
         mDetectors.add(detector);
     }
+
+    /**
+     * Remembers the issues reported for each file, then passes them on to the client if any
+     */
+    private static class RecordingClient extends LintClient {
+        private final FindingCache mFindings;
+        @Nullable
+        private final LintClient mDelegate;
+
+        RecordingClient(FindingCache findings, @Nullable LintClient delegate) {
+            mFindings = findings;
+            mDelegate = delegate;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends Detector> replaceDetector(@NonNull Class<? extends Detector> detectorClass) {
+            return mDelegate != null ? mDelegate.replaceDetector(detectorClass) : detectorClass;
+        }
+
+        @Override
+        public boolean checkForSuppressComments() {
+            return mDelegate == null || mDelegate.checkForSuppressComments();
+        }
+
+        @Override
+        public void report(@NonNull Context context, @NonNull Issue issue, @NonNull Severity severity, @Nullable Location location, @NonNull String message, @NonNull TextFormat format) {
+            mFindings.add(context.file,
+                    FindingCache.Finding.create(issue, severity, location, message, format));
+            if (mDelegate != null) {
+                mDelegate.report(context, issue, severity, location, message, format);
+            }
+        }
+
+        @Override
+        public void log(Throwable t, String s, String name) {
+            if (mDelegate != null) {
+                mDelegate.log(t, s, name);
+            }
+        }
+    }
 }
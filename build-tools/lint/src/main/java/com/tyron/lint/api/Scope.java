@@ -12,8 +12,19 @@ public enum Scope {
      */
     JAVA_FILE,
 
+    /**
+     * The analysis only considers a single method at a time, including its body.
+     * <p>
+     * Issues which can be analyzed with this scope are checked again on the edited
+     * method alone when only the body of that method changed.
+     */
+    JAVA_METHOD,
+
     ALL;
 
     /** Scope-set used for detectors which are affected by a single Java source file */
     public static final EnumSet<Scope> JAVA_FILE_SCOPE = EnumSet.of(JAVA_FILE);
+
+    /** Scope-set used for detectors which can analyze a single method in isolation */
+    public static final EnumSet<Scope> JAVA_METHOD_SCOPE = EnumSet.of(JAVA_METHOD);
 }
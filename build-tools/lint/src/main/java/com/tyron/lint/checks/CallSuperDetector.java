@@ -41,7 +41,8 @@ public class CallSuperDetector extends Detector implements Detector.JavaScanner
 
     private static final Implementation IMPLEMENTATION = new Implementation(
             CallSuperDetector.class,
-            Scope.JAVA_FILE_SCOPE);
+            Scope.JAVA_FILE_SCOPE,
+            Scope.JAVA_METHOD_SCOPE);
 
     /** Missing call to super */
     public static final Issue ISSUE = Issue.create(
@@ -95,14 +96,14 @@ public class CallSuperDetector extends Detector implements Detector.JavaScanner
      */
     @Nullable
     private static ExecutableElement getRequiredSuperMethod(@NonNull JavaContext context, @NonNull MethodTree node) {
-        Trees trees = Trees.instance(context.getCompileTask().task);
+        Trees trees = context.getTrees();
         TreePath path = TreePath.getPath(context.getCompilationUnit(), node);
         Element method = trees.getElement(path);
         TypeElement typeElement = trees.getScope(path).getEnclosingClass();
         DeclaredType superClass = (DeclaredType) typeElement.getSuperclass();
         TypeElement superElement = (TypeElement) superClass.asElement();
 
-        List<? extends Element> elements = context.getCompileTask().task.getElements().getAllMembers(superElement);
+        List<? extends Element> elements = context.getJavacTask().getElements().getAllMembers(superElement);
         for (Element element : elements) {
             if (element.getKind() != ElementKind.METHOD) {
                 continue;
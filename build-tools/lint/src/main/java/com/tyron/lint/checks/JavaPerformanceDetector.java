@@ -44,7 +44,8 @@ public class JavaPerformanceDetector extends Detector implements Detector.JavaSc
 
     private static final Implementation IMPLEMENTATION = new Implementation(
             JavaPerformanceDetector.class,
-            Scope.JAVA_FILE_SCOPE);
+            Scope.JAVA_FILE_SCOPE,
+            Scope.JAVA_METHOD_SCOPE);
 
     public static final Issue PAINT_ALLOC = Issue.create(
             "DrawAllocation",
@@ -112,7 +113,7 @@ public class JavaPerformanceDetector extends Detector implements Detector.JavaSc
 
         @Override
         public Void visitNewClass(NewClassTree node, Void unused) {
-            Trees trees = Trees.instance(mContext.getCompileTask().task);
+            Trees trees = mContext.getTrees();
             TreePath parent = trees.getPath(mContext.getCompilationUnit(), node).getParentPath();
             if (mFlagAllocations && !(parent.getLeaf() instanceof  ThrowTree)) {
                 Tree method = node;
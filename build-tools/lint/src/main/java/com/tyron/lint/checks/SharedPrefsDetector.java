@@ -20,7 +20,6 @@ import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.util.TreePath;
-import com.sun.source.util.Trees;
 import com.sun.tools.javac.code.Symbol;
 
 import java.util.Collections;
@@ -40,7 +39,8 @@ public class SharedPrefsDetector extends Detector implements Detector.JavaScanne
             Severity.WARNING,
             new Implementation(
                     SharedPrefsDetector.class,
-                    Scope.JAVA_FILE_SCOPE));
+                    Scope.JAVA_FILE_SCOPE,
+                    Scope.JAVA_METHOD_SCOPE));
 
     public static final String ANDROID_CONTENT_SHARED_PREFERENCES =
             "android.content.SharedPreferences";
@@ -61,7 +61,7 @@ public class SharedPrefsDetector extends Detector implements Detector.JavaScanne
         assert JavaContext.getMethodName(node).equals("edit");
 
         TreePath path = TreePath.getPath(context.getCompilationUnit(), node);
-        Element element = Trees.instance(context.getCompileTask().task).getElement(path);
+        Element element = context.getTrees().getElement(path);
         ExecutableElement resolved = (ExecutableElement) element;
         boolean verifiedType = resolved.getReturnType().toString().equals(ANDROID_CONTENT_SHARED_PREFERENCES_EDITOR);
 
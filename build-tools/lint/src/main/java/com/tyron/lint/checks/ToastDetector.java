@@ -30,7 +30,8 @@ public class ToastDetector extends Detector implements Detector.JavaScanner {
 
     public static Implementation IMPLEMENTATION = new Implementation(
             ToastDetector.class,
-            Scope.JAVA_FILE_SCOPE);
+            Scope.JAVA_FILE_SCOPE,
+            Scope.JAVA_METHOD_SCOPE);
 
     public static Issue ISSUE = Issue.create(
             "ShowToast",
@@ -70,7 +70,7 @@ public class UnusedDetector extends Detector implements Detector.JavaScanner {
         private final Set<Element> used = new HashSet<>();
 
         public UnusedScanner(JavaContext context) {
-            this.trees = Trees.instance(context.getCompileTask().task);
+            this.trees = context.getTrees();
         }
 
         private Set<Element> notUsed() {
@@ -7,11 +7,15 @@ import com.tyron.lint.api.Context;
 import com.tyron.lint.api.JavaContext;
 import com.tyron.lint.api.Location;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+
 import org.jetbrains.kotlin.com.intellij.openapi.util.TextRange;
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement;
 import org.jetbrains.kotlin.com.intellij.psi.PsiJavaFile;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public abstract class JavaParser {
     public static final String TYPE_OBJECT = "java.lang.Object";        //$NON-NLS-1$
@@ -51,6 +55,34 @@ public abstract class JavaParser {
     @Nullable
     public abstract PsiJavaFile parseJavaToPsi(@NonNull JavaContext context);
 
+    /**
+     * Provides an attributed javac tree of the file pointed to by the given context and
+     * attaches it to the context with
+     * {@link JavaContext#setCompilationUnit(JavacTask, CompilationUnitTree)}. Parsers that
+     * can not provide one return null and the file is compiled for lint instead.
+     *
+     * @param context the context pointing to the file to be parsed
+     * @return the compilation unit tree of the file, or null
+     */
+    @Nullable
+    public CompilationUnitTree parseJava(@NonNull JavaContext context) {
+        return null;
+    }
+
+    /**
+     * Runs work that uses the tree of {@link #parseJava(JavaContext)}, from parsing the file to
+     * the end of its visit. Parsers handing out trees that are shared with other threads
+     * override this to run the work where those trees can't change meanwhile.
+     *
+     * @param context the context of the file the work is about
+     * @param work parses and visits the file
+     * @return the result of the work, null if it could not be run
+     */
+    @Nullable
+    public <T> T runWithTree(@NonNull JavaContext context, @NonNull Supplier<T> work) {
+        return work.get();
+    }
+
     /**
      * Returns a {@link Location} for the given element
      *
@@ -1,9 +1,15 @@
 package com.tyron.lint.client;
 
+import android.util.Log;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tyron.builder.model.Project;
+import com.tyron.completion.java.compiler.CompileTask;
+import com.tyron.completion.java.compiler.CompilerContainer;
+import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.lint.JavaVisitor;
 import com.tyron.lint.api.Context;
 import com.tyron.lint.api.Detector;
 import com.tyron.lint.api.Issue;
@@ -22,6 +28,8 @@ import com.sun.source.tree.ModifiersTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -62,6 +70,123 @@ public class LintDriver {
         return mClient;
     }
 
+    /**
+     * Stops a running {@link #analyze} call, files that are being visited are finished
+     * but no other files are started.
+     */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * Lints the files of a module. Files the parser has an attributed tree of are visited as
+     * they are, the others are compiled together in a single batch. Each visit runs every
+     * detector in a single pass over a tree. Issues are passed to {@link LintClient#report}
+     * as soon as they are found, one at a time.
+     *
+     * <p>The files are visited one at a time. A file with a tree of the parser is visited
+     * where {@link JavaParser#runWithTree} runs it, the others on the calling thread. The files
+     * of each group share a javac context, which is not thread safe: completing a symbol may
+     * read its class file at any time. The detectors also keep the state of the file they are
+     * visiting.
+     *
+     * @param compiler the compiler of the module the files belong to
+     * @param parser asked for the tree of each file before compiling it, may be null
+     * @param detectors the detectors to run
+     * @param contexts the files to lint
+     * @return the time spent in each detector
+     */
+    @NonNull
+    public LintTimings analyze(@NonNull JavaCompilerService compiler,
+                               @Nullable JavaParser parser,
+                               @NonNull List<Detector> detectors,
+                               @NonNull List<JavaContext> contexts) {
+        LintTimings timings = new LintTimings();
+        if (contexts.isEmpty()) {
+            return timings;
+        }
+
+        long start = System.nanoTime();
+        // the visitor keeps the state of the file being visited
+        JavaVisitor visitor = new JavaVisitor(compiler, detectors);
+        visitor.setTimings(timings);
+        try {
+            List<JavaContext> unparsed = new ArrayList<>();
+            for (JavaContext context : contexts) {
+                if (mCanceled) {
+                    return timings;
+                }
+                Boolean visited = parser == null ? Boolean.FALSE : parser.runWithTree(context,
+                        () -> visitParsed(visitor, parser, context, timings));
+                if (!Boolean.TRUE.equals(visited)) {
+                    unparsed.add(context);
+                }
+            }
+            if (!unparsed.isEmpty()) {
+                Path[] files = new Path[unparsed.size()];
+                for (int i = 0; i < files.length; i++) {
+                    files[i] = unparsed.get(i).file.toPath();
+                }
+                CompilerContainer container = compiler.compile(files);
+                container.run(task -> visitFiles(task, visitor, unparsed, timings));
+            }
+        } catch (Throwable e) {
+            Log.e("Lint", "Failed to analyze files", e);
+            compiler.destroy();
+        } finally {
+            timings.setElapsedTime(System.nanoTime() - start);
+        }
+        return timings;
+    }
+
+    /**
+     * Visits the file with the tree of the parser, it is run through
+     * {@link JavaParser#runWithTree(JavaContext, java.util.function.Supplier)}.
+     *
+     * @return false if the parser has no tree of the file and it has to be compiled
+     */
+    private boolean visitParsed(JavaVisitor visitor,
+                                JavaParser parser,
+                                JavaContext context,
+                                LintTimings timings) {
+        if (parser.parseJava(context) == null) {
+            return false;
+        }
+        try {
+            visitor.visitTree(context);
+        } catch (Throwable e) {
+            Log.e("Lint", "Failed to analyze " + context.file, e);
+        }
+        timings.fileVisited();
+        return true;
+    }
+
+    /**
+     * Visits the files one after the other, they all belong to the same javac context.
+     *
+     * @param task the task the files were compiled with
+     */
+    private void visitFiles(CompileTask task,
+                            JavaVisitor visitor,
+                            List<JavaContext> contexts,
+                            LintTimings timings) {
+        for (JavaContext context : contexts) {
+            if (mCanceled) {
+                return;
+            }
+            try {
+                visitor.visitFile(context, task);
+            } catch (Throwable e) {
+                Log.e("Lint", "Failed to analyze " + context.file, e);
+            }
+            timings.fileVisited();
+        }
+    }
+
     public boolean isSuppressed(@Nullable JavaContext context, @NonNull Issue issue,
                                 @Nullable Tree scope) {
         boolean checkComments = mClient.checkForSuppressComments() &&
@@ -160,8 +285,10 @@ public class LintDriver {
             return mDelegate.checkForSuppressComments();
         }
 
+        // files are visited one at a time, but either on the lane of the parser or on the
+        // calling thread, so a client may be called from both
         @Override
-        public void report(@NonNull Context context, @NonNull Issue issue, @NonNull Severity severity, @Nullable Location location, @NonNull String message, @NonNull TextFormat format) {
+        public synchronized void report(@NonNull Context context, @NonNull Issue issue, @NonNull Severity severity, @Nullable Location location, @NonNull String message, @NonNull TextFormat format) {
             mDelegate.report(context, issue, severity, location, message, format);
         }
 
@@ -0,0 +1,87 @@
+package com.tyron.lint.client;
+
+import androidx.annotation.NonNull;
+
+import com.tyron.lint.api.Detector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time spent in each detector during a lint run, so slow checks can be spotted.
+ * Files may be visited concurrently, so all the counters are thread safe.
+ */
+public class LintTimings {
+
+    private final Map<Class<? extends Detector>, LongAdder> mDetectorTimes =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger mFileCount = new AtomicInteger();
+    private volatile long mElapsedTime;
+
+    /**
+     * Adds the time the detector took on a single file
+     *
+     * @param detector the detector that was run
+     * @param nanos the time spent in the detector, in nanoseconds
+     */
+    public void add(@NonNull Detector detector, long nanos) {
+        mDetectorTimes.computeIfAbsent(detector.getClass(), k -> new LongAdder()).add(nanos);
+    }
+
+    void fileVisited() {
+        mFileCount.incrementAndGet();
+    }
+
+    void setElapsedTime(long nanos) {
+        mElapsedTime = nanos;
+    }
+
+    /**
+     * @return the total time spent in the detector across all the files
+     */
+    public long getTime(@NonNull Class<? extends Detector> detector, @NonNull TimeUnit unit) {
+        LongAdder time = mDetectorTimes.get(detector);
+        return time == null ? 0 : unit.convert(time.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the detectors that were run, the slowest first
+     */
+    @NonNull
+    public List<Class<? extends Detector>> getDetectors() {
+        List<Class<? extends Detector>> detectors = new ArrayList<>(mDetectorTimes.keySet());
+        Collections.sort(detectors, (a, b) -> Long.compare(
+                getTime(b, TimeUnit.NANOSECONDS), getTime(a, TimeUnit.NANOSECONDS)));
+        return detectors;
+    }
+
+    public int getFileCount() {
+        return mFileCount.get();
+    }
+
+    /**
+     * @return the wall clock time of the run, including compiling the files
+     */
+    public long getElapsedTime(@NonNull TimeUnit unit) {
+        return unit.convert(mElapsedTime, TimeUnit.NANOSECONDS);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Linted ").append(getFileCount()).append(" files in ")
+                .append(getElapsedTime(TimeUnit.MILLISECONDS)).append(" ms");
+        for (Class<? extends Detector> detector : getDetectors()) {
+            builder.append("\n    ").append(detector.getSimpleName()).append(": ")
+                    .append(getTime(detector, TimeUnit.MILLISECONDS)).append(" ms");
+        }
+        return builder.toString();
+    }
+}
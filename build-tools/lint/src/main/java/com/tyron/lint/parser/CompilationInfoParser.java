@@ -0,0 +1,81 @@
+package com.tyron.lint.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.tyron.builder.project.api.JavaModule;
+import com.tyron.completion.java.parse.CompilationInfo;
+import com.tyron.lint.api.JavaContext;
+import com.tyron.lint.client.JavaParser;
+
+import org.jetbrains.kotlin.com.intellij.psi.PsiJavaFile;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A {@link JavaParser} that hands lint the trees the completion engine already keeps of the
+ * opened files. Those trees are parsed and attributed by {@link CompilationInfo} as the file
+ * is edited, so linting an opened file does not parse it again nor keep a second copy of its
+ * tree. Files without a tree are compiled for lint as before.
+ *
+ * <p>The trees are read and visited on the lane of the {@link CompilationInfo}, so the editor
+ * can't reparse them nor completion change the javac context while lint uses them.
+ */
+public class CompilationInfoParser extends JavaParser {
+
+    @Override
+    public void prepareJavaParse(@NonNull List<JavaContext> contexts) {
+        // the trees are kept up to date by the editor
+    }
+
+    @Nullable
+    @Override
+    public PsiJavaFile parseJavaToPsi(@NonNull JavaContext context) {
+        return null;
+    }
+
+    /**
+     * Runs the work on the lane of the {@link CompilationInfo}, the trees and the javac
+     * context it keeps are only used and changed there.
+     */
+    @Nullable
+    @Override
+    public <T> T runWithTree(@NonNull JavaContext context, @NonNull Supplier<T> work) {
+        CompilationInfo info = getCompilationInfo(context);
+        if (info == null) {
+            return work.get();
+        }
+        return info.runOnLane(work);
+    }
+
+    /**
+     * Must be called from {@link #runWithTree(JavaContext, Supplier)}.
+     */
+    @Nullable
+    @Override
+    public CompilationUnitTree parseJava(@NonNull JavaContext context) {
+        CompilationInfo info = getCompilationInfo(context);
+        if (info == null) {
+            return null;
+        }
+        // the tree of the editor contents, not the one completion is working on
+        CompilationUnitTree unit = info.getEnteredCompilationUnit(context.file.toURI());
+        if (unit == null) {
+            return null;
+        }
+        context.setCompilationUnit(info.impl.getJavacTask(), unit);
+        return unit;
+    }
+
+    @Nullable
+    private static CompilationInfo getCompilationInfo(@NonNull JavaContext context) {
+        JavaModule module = context.getProject();
+        if (module == null) {
+            return null;
+        }
+        // only files that are already opened have a compilation info, don't create one
+        return module.getUserData(CompilationInfo.COMPILATION_INFO_KEY);
+    }
+}
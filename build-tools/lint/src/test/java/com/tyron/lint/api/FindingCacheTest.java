@@ -0,0 +1,51 @@
+package com.tyron.lint.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+public class FindingCacheTest {
+
+    private static FindingCache.Finding finding(int start, int end) {
+        return new FindingCache.Finding(null, Severity.WARNING, start, end, "", TextFormat.RAW);
+    }
+
+    @Test
+    public void testShiftMovesFindingsAfterTheEdit() {
+        FindingCache.Finding before = finding(10, 20);
+        assertSame(before, before.shift(30, 5));
+
+        FindingCache.Finding after = finding(40, 50).shift(30, 5);
+        assertEquals(45, after.start);
+        assertEquals(55, after.end);
+
+        FindingCache.Finding spanning = finding(10, 50).shift(30, -5);
+        assertEquals(10, spanning.start);
+        assertEquals(45, spanning.end);
+    }
+
+    @Test
+    public void testFindingsWithoutLocationAreNotShifted() {
+        FindingCache.Finding finding = finding(-1, -1);
+        assertSame(finding, finding.shift(0, 10));
+    }
+
+    @Test
+    public void testClearForgetsPreviousScan() {
+        FindingCache cache = new FindingCache();
+        File file = new File("Main.java");
+        assertNull(cache.get(file));
+
+        cache.add(file, finding(0, 1));
+        List<FindingCache.Finding> findings = cache.get(file);
+        assertEquals(1, findings.size());
+
+        cache.clear(file);
+        assertEquals(0, cache.get(file).size());
+    }
+}
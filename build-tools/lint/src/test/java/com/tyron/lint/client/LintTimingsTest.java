@@ -0,0 +1,51 @@
+package com.tyron.lint.client;
+
+import static org.junit.Assert.assertEquals;
+
+import com.tyron.lint.api.Detector;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class LintTimingsTest {
+
+    private static class FastDetector extends Detector {
+    }
+
+    private static class SlowDetector extends Detector {
+    }
+
+    @Test
+    public void testSlowestDetectorFirst() {
+        LintTimings timings = new LintTimings();
+        timings.add(new FastDetector(), TimeUnit.MILLISECONDS.toNanos(1));
+        timings.add(new SlowDetector(), TimeUnit.MILLISECONDS.toNanos(3));
+        timings.add(new FastDetector(), TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertEquals(Arrays.asList(SlowDetector.class, FastDetector.class),
+                timings.getDetectors());
+        assertEquals(2, timings.getTime(FastDetector.class, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testConcurrentAdds() {
+        LintTimings timings = new LintTimings();
+        Detector detector = new FastDetector();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    timings.add(detector, 1);
+                    timings.fileVisited();
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        assertEquals(4000, timings.getTime(FastDetector.class, TimeUnit.NANOSECONDS));
+        assertEquals(4000, timings.getFileCount());
+    }
+}
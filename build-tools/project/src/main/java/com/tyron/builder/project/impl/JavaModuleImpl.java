@@ -7,7 +7,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.util.LibraryClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.common.logging.IdeLog;
 import com.tyron.common.util.StringSearch;
 
 import org.apache.commons.io.FileUtils;
@@ -18,17 +20,17 @@ import org.jetbrains.kotlin.com.intellij.util.ReflectionUtil;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.logging.Logger;
 
 public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
+    private static final Logger LOG = IdeLog.getCurrentLogger(JavaModuleImpl.class);
+
     // Map of fully qualified names and the jar they are contained in
     private final Map<String, File> mClassFiles;
     private final Map<String, File> mJavaFiles;
@@ -39,8 +41,14 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     // the index of all the class files in this module
     private final PackageTrie mClassIndex = new PackageTrie();
 
+    // persistent index of the classes in each library jar
+    private final LibraryClassIndex mLibraryIndex;
+
     public JavaModuleImpl(File root) {
         super(root);
+        mLibraryIndex = new LibraryClassIndex(root == null
+                ? null
+                : new File(root, "build/intermediates/class_index/libraries.bin"));
         mJavaFiles = new HashMap<>();
         mClassFiles = new HashMap<>();
         mLibraries = new HashSet<>();
@@ -113,8 +121,9 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
             return;
         }
         try {
-            // noinspection unused, used to check if jar is valid.
-            JarFile jarFile = new JarFile(jar);
+            // throws if the jar has to be scanned and can't be read. A jar found in the
+            // library index is not opened again: it was valid when it was scanned and its
+            // size and modification time haven't changed since
             putJar(jar);
             mLibraries.add(jar);
         } catch (IOException e) {
@@ -126,27 +135,9 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         if (file == null) {
             return;
         }
-        try (JarFile jar = new JarFile(file)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-
-                if (!entry.getName().endsWith(".class")) {
-                    continue;
-                }
-
-                // We only want top level classes, if it contains $ then
-                // its an inner class, we ignore it
-                if (entry.getName().contains("$")) {
-                    continue;
-                }
-
-                String packageName = entry.getName().replace("/", ".")
-                        .substring(0, entry.getName().length() - ".class".length());
-
-                mClassFiles.put(packageName, file);
-                mClassIndex.add(packageName);
-            }
+        for (String className : mLibraryIndex.getClasses(file)) {
+            mClassFiles.put(className, file);
+            mClassIndex.add(className);
         }
     }
 
@@ -243,7 +234,18 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
     @Override
     public void index() {
+        mClassIndex.compact();
+        try {
+            // libraries are added before the module is indexed, persist what has been scanned
+            mLibraryIndex.save();
+        } catch (IOException e) {
+            LOG.warning("Failed to save the class index: " + e.getMessage());
+        }
+    }
 
+    @NonNull
+    public LibraryClassIndex getLibraryIndex() {
+        return mLibraryIndex;
     }
 
     @Override
@@ -0,0 +1,329 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.common.logging.IdeLog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+
+/**
+ * A persistent index of the top level classes contained in library jars.
+ *
+ * <p>Each jar is keyed by its absolute path and fingerprinted by its size and last modified
+ * time. The index file is memory mapped and opened lazily on the first query, the class names
+ * of a jar are only decoded when that jar is requested. Jars whose fingerprint no longer
+ * matches are scanned again and the index is rewritten on {@link #save()}. An index without
+ * a file only keeps the scanned jars in memory.
+ *
+ * <p>File format, all values are big endian:
+ * <pre>
+ *     int magic, int version, int jarCount
+ *     jarCount times:
+ *         short pathLength, byte[] path (UTF-8), long size, long lastModified,
+ *         int classCount, int blockLength,
+ *         classCount times: short nameLength, byte[] name (UTF-8)
+ * </pre>
+ */
+public class LibraryClassIndex {
+
+    private static final Logger LOG = IdeLog.getCurrentLogger(LibraryClassIndex.class);
+
+    private static final int MAGIC = 0x43414349;
+    private static final int VERSION = 1;
+
+    @Nullable
+    private final File mIndexFile;
+
+    /**
+     * Entries read from the index file, class names are decoded lazily
+     */
+    private Map<String, MappedEntry> mMapped;
+    /**
+     * Entries that were requested in this session, these are the ones written on save
+     */
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>();
+
+    private boolean mDirty;
+    private long mLoadTime;
+    private int mHits;
+    private int mMisses;
+
+    public LibraryClassIndex(@Nullable File indexFile) {
+        mIndexFile = indexFile;
+    }
+
+    /**
+     * Returns the fully qualified names of the top level classes of the given jar. The
+     * result is read from the index if the jar has not changed since it was indexed,
+     * otherwise the jar is scanned.
+     *
+     * @param jar The jar file
+     * @return fully qualified names of the top level classes in the jar
+     * @throws IOException if the jar needs to be scanned and it cannot be read
+     */
+    @NonNull
+    public synchronized List<String> getClasses(@NonNull File jar) throws IOException {
+        ensureLoaded();
+
+        String path = jar.getAbsolutePath();
+        long size = jar.length();
+        long lastModified = jar.lastModified();
+
+        Entry entry = mEntries.get(path);
+        if (entry != null && entry.matches(size, lastModified)) {
+            return entry.classes;
+        }
+
+        MappedEntry mapped = mMapped.get(path);
+        if (mapped != null && mapped.matches(size, lastModified)) {
+            List<String> classes = mapped.readClasses();
+            if (classes != null) {
+                mHits++;
+                mEntries.put(path, new Entry(size, lastModified, classes));
+                return classes;
+            }
+        }
+
+        mMisses++;
+        List<String> classes = scan(jar);
+        mEntries.put(path, new Entry(size, lastModified, classes));
+        mDirty = true;
+        return classes;
+    }
+
+    /**
+     * Writes the jars requested since this index was opened, jars that were not requested
+     * are dropped from the index. Does nothing if nothing has been scanned.
+     */
+    public synchronized void save() throws IOException {
+        if (mIndexFile == null) {
+            return;
+        }
+        if (mMapped != null && mMapped.size() != mEntries.size()) {
+            mDirty = true;
+        }
+        if (!mDirty) {
+            return;
+        }
+
+        File parent = mIndexFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+
+        File temp = new File(mIndexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mEntries.size());
+            for (Map.Entry<String, Entry> it : mEntries.entrySet()) {
+                Entry entry = it.getValue();
+                writeString(out, it.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeInt(entry.classes.size());
+
+                int blockLength = 0;
+                List<byte[]> names = new ArrayList<>(entry.classes.size());
+                for (String name : entry.classes) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    names.add(bytes);
+                    blockLength += 2 + bytes.length;
+                }
+                out.writeInt(blockLength);
+                for (byte[] name : names) {
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+            }
+        }
+        // the old file may still be mapped, replace it instead of writing over it
+        Files.move(temp.toPath(), mIndexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        mDirty = false;
+    }
+
+    /**
+     * @return the time in milliseconds it took to open the index file
+     */
+    public synchronized long getLoadTime() {
+        return mLoadTime;
+    }
+
+    /**
+     * @return the number of jars that were read from the index
+     */
+    public synchronized int getHitCount() {
+        return mHits;
+    }
+
+    /**
+     * @return the number of jars that had to be scanned
+     */
+    public synchronized int getMissCount() {
+        return mMisses;
+    }
+
+    private void ensureLoaded() {
+        if (mMapped != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            mMapped = load(mIndexFile);
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("Unable to read class index " + mIndexFile + ": " + e.getMessage());
+            mMapped = Collections.emptyMap();
+        }
+        mLoadTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("Loaded class index of " + mMapped.size() + " jars in " + mLoadTime + "ms");
+    }
+
+    private static Map<String, MappedEntry> load(@Nullable File file) throws IOException {
+        if (file == null || !file.exists()) {
+            return Collections.emptyMap();
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Collections.emptyMap();
+            }
+            int count = buffer.getInt();
+            Map<String, MappedEntry> entries = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String path = readString(buffer);
+                long size = buffer.getLong();
+                long lastModified = buffer.getLong();
+                int classCount = buffer.getInt();
+                int blockLength = buffer.getInt();
+                int offset = buffer.position();
+                buffer.position(offset + blockLength);
+                entries.put(path,
+                        new MappedEntry(buffer, size, lastModified, classCount, offset));
+            }
+            return entries;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Class index is corrupted", e);
+        }
+    }
+
+    private static List<String> scan(File file) throws IOException {
+        List<String> classes = new ArrayList<>();
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+
+                // We only want top level classes, if it contains $ then
+                // its an inner class, we ignore it
+                if (entry.getName().contains("$")) {
+                    continue;
+                }
+
+                String packageName = entry.getName().replace("/", ".")
+                        .substring(0, entry.getName().length() - ".class".length());
+                classes.add(packageName);
+            }
+        }
+        return classes;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        final long size;
+        final long lastModified;
+        final List<String> classes;
+
+        Entry(long size, long lastModified, List<String> classes) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classes = classes;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+
+    private static class MappedEntry {
+        final ByteBuffer buffer;
+        final long size;
+        final long lastModified;
+        final int classCount;
+        final int offset;
+
+        MappedEntry(ByteBuffer buffer, long size, long lastModified, int classCount, int offset) {
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.classCount = classCount;
+            this.offset = offset;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+
+        /**
+         * @return the decoded class names, or null if the block is corrupted
+         */
+        List<String> readClasses() {
+            ByteBuffer slice = buffer.duplicate();
+            try {
+                slice.position(offset);
+                List<String> classes = new ArrayList<>(classCount);
+                for (int i = 0; i < classCount; i++) {
+                    classes.add(readString(slice));
+                }
+                return classes;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -2,14 +2,15 @@ package com.tyron.builder.project.util;
 
 import androidx.annotation.NonNull;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 /**
  * A trie that stores package segments to a node.
@@ -22,13 +23,35 @@ import java.util.function.Function;
  *     /  \
  * String Object
  * </p>
+ *
+ * Segments are interned and shared between all tries, children of a node are kept in a
+ * sorted array. Use {@link #forEachLeaf(String, LeafVisitor)} to iterate over the classes
+ * without allocating a string for each of them.
  */
 public class PackageTrie {
 
+    /**
+     * Receives the leaf nodes of a trie.
+     */
+    public interface LeafVisitor {
+
+        /**
+         * @param simpleName         The last segment of the fully qualified name
+         * @param fullyQualifiedName The fully qualified name, only valid during this call.
+         *                           Call {@code toString()} on it to keep it.
+         * @return false to stop visiting
+         */
+        boolean visit(@NonNull String simpleName, @NonNull CharSequence fullyQualifiedName);
+    }
+
+    private static final Interner<String> SEGMENTS = Interners.newWeakInterner();
+
+    private static final Node[] EMPTY = new Node[0];
+
     private final Node mRoot;
 
     public PackageTrie() {
-        mRoot = new Node();
+        mRoot = new Node(null);
     }
 
     /**
@@ -37,10 +60,12 @@ public class PackageTrie {
      * @param fqn The fully qualified name of a class, including its name
      */
     public void add(@NonNull String fqn) {
-        String[] parts = getParts(fqn);
         Node current = mRoot;
-        for (String part : parts) {
-            current = current.getOrCreateChild(part);
+        int start = 0;
+        while (start <= fqn.length()) {
+            int end = segmentEnd(fqn, start);
+            current = current.getOrCreateChild(fqn, start, end);
+            start = end + 1;
         }
         // this is the end node, so mark it as a leaf
         current.isLeaf = true;
@@ -63,145 +88,211 @@ public class PackageTrie {
      * @param leafOnly Whether to delete the leaf only
      */
     public void remove(@NonNull String fqn, boolean leafOnly) {
-        String[] parts = getParts(fqn);
         Node current = mRoot;
-        for (int i = 0; i < parts.length; i++) {
-            String part = parts[i];
-            boolean isLeaf = i == parts.length - 1;
-
-            if (current == null) {
-                break;
-            }
-            if (current.getChildren() == null) {
-                current = null;
-            } else {
-                Node next = current.getChildren().get(part);
-                if (next != null && (isLeaf || !leafOnly)) {
-                    current.getChildren().remove(next.getValue());
-                }
-                current = next;
+        int start = 0;
+        while (current != null && start <= fqn.length()) {
+            int end = segmentEnd(fqn, start);
+            boolean isLeaf = end == fqn.length();
+
+            int index = current.indexOf(fqn, start, end);
+            Node next = index < 0 ? null : current.mChildren[index];
+            if (next != null && (isLeaf || !leafOnly)) {
+                current.removeChild(index);
             }
+            current = next;
+            start = end + 1;
         }
     }
 
-    public List<String> getMatchingPackages(String packageQuery) {
-        List<String> result = new ArrayList<>();
-        StringBuilder currentPackage = new StringBuilder();
-        String[] parts = getParts(packageQuery);
-        Node current = mRoot;
-        for (String part : parts) {
-            if (current == null || current.getChildren() == null || !current.getChildren().containsKey(part)) {
-                return result;
-            }
-
-            if (current.isLeaf) {
-                String fqn = currentPackage.length() > 0
-                        ? currentPackage + "." + part
-                        : part;
-                result.add(fqn);
-            } else {
-                boolean insertDot = currentPackage.length() > 0;
-                if (insertDot) {
-                    currentPackage.append('.');
-                }
-                currentPackage.append(part);
-            }
+    /**
+     * Visits all the leaf nodes in this trie.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean forEachLeaf(@NonNull LeafVisitor visitor) {
+        return visitChildren(mRoot, new StringBuilder(), visitor);
+    }
 
-            current = current.getChildren().get(part);
+    /**
+     * Visits all the leaf nodes below the given package, the node of the package itself
+     * is not visited.
+     *
+     * @param packageName The package name, an empty string visits the whole trie
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean forEachLeaf(@NonNull String packageName, @NonNull LeafVisitor visitor) {
+        if (packageName.isEmpty()) {
+            return forEachLeaf(visitor);
         }
-
-        if (current.getChildren() != null) {
-            for (Node node : current.getChildren().values()) {
-                recurse(node, currentPackage.toString(), result);
-            }
+        Node node = find(packageName);
+        if (node == null) {
+            return true;
         }
+        StringBuilder builder = new StringBuilder(packageName.length() + 32);
+        builder.append(packageName);
+        return visitChildren(node, builder, visitor);
+    }
 
+    public List<String> getMatchingPackages(String packageQuery) {
+        List<String> result = new ArrayList<>();
+        forEachLeaf(packageQuery, (simpleName, fullyQualifiedName) -> {
+            result.add(fullyQualifiedName.toString());
+            return true;
+        });
         return result;
     }
 
     public Set<String> getTopLevelNonLeafNodes() {
-        if (mRoot.getChildren() == null) {
+        if (mRoot.mChildCount == 0) {
             return Collections.emptySet();
         }
 
-        return mRoot.getChildren().keySet();
+        Set<String> nodes = new HashSet<>(mRoot.mChildCount);
+        for (int i = 0; i < mRoot.mChildCount; i++) {
+            nodes.add(mRoot.mChildren[i].mValue);
+        }
+        return nodes;
     }
 
     public Set<String> getLeafNodes() {
-        return new HashSet<>(getLeafNodes("", mRoot));
+        Set<String> leafNodes = new HashSet<>();
+        forEachLeaf((simpleName, fullyQualifiedName) -> {
+            leafNodes.add(fullyQualifiedName.toString());
+            return true;
+        });
+        return leafNodes;
     }
 
-    private Set<String> getLeafNodes(String currentPackage, Node current) {
-        if (current.isLeaf) {
-            return Collections.singleton(currentPackage);
-        } else {
-            if (current.getChildren() == null || current.getChildren().isEmpty()) {
-                return Collections.emptySet();
-            }
-            Set<String> leafNodes = new HashSet<>();
-            for (Node value : current.getChildren().values()) {
-                String newPackage = currentPackage.isEmpty()
-                        ? value.getValue()
-                        : currentPackage + "." + value.getValue();
-                leafNodes.addAll(getLeafNodes(newPackage, value));
-            }
-            return leafNodes;
-        }
+    /**
+     * Trims the children arrays of each node to their size, call this after adding
+     * a large amount of names at once.
+     */
+    public void compact() {
+        compact(mRoot);
     }
 
-    private void recurse(Node node, String currentPackage, List<String> result) {
-        if (node.isLeaf) {
-            String newResult = currentPackage.length() > 0
-                    ? currentPackage + "." + node.getValue()
-                    : node.getValue();
-            result.add(newResult);
-        } else {
-            currentPackage = currentPackage.isEmpty()
-                    ? node.getValue()
-                    : currentPackage + "." + node.getValue();
+    private static void compact(Node node) {
+        if (node.mChildren.length != node.mChildCount) {
+            node.mChildren = node.mChildCount == 0
+                    ? EMPTY
+                    : Arrays.copyOf(node.mChildren, node.mChildCount);
         }
+        for (int i = 0; i < node.mChildCount; i++) {
+            compact(node.mChildren[i]);
+        }
+    }
 
-        if (node.getChildren() == null) {
-            return;
+    private Node find(String fqn) {
+        Node current = mRoot;
+        int start = 0;
+        while (current != null && start <= fqn.length()) {
+            int end = segmentEnd(fqn, start);
+            int index = current.indexOf(fqn, start, end);
+            current = index < 0 ? null : current.mChildren[index];
+            start = end + 1;
         }
-        for (Node child : node.getChildren().values()) {
-            recurse(child, currentPackage, result);
+        return current;
+    }
+
+    private static boolean visitChildren(Node node, StringBuilder builder, LeafVisitor visitor) {
+        int length = builder.length();
+        for (int i = 0; i < node.mChildCount; i++) {
+            Node child = node.mChildren[i];
+            if (length > 0) {
+                builder.append('.');
+            }
+            builder.append(child.mValue);
+
+            if (child.isLeaf && !visitor.visit(child.mValue, builder)) {
+                return false;
+            }
+            if (!visitChildren(child, builder, visitor)) {
+                return false;
+            }
+            builder.setLength(length);
         }
+        return true;
     }
 
-    private String[] getParts(String fqn) {
-        if (fqn.contains(".")) {
-            return fqn.split("\\.");
+    private static int segmentEnd(String fqn, int start) {
+        int end = fqn.indexOf('.', start);
+        return end == -1 ? fqn.length() : end;
+    }
+
+    /**
+     * Compares the segment {@code [start, end)} of the name to the given value without
+     * creating a substring.
+     */
+    private static int compare(String value, String name, int start, int end) {
+        int length = end - start;
+        int limit = Math.min(value.length(), length);
+        for (int i = 0; i < limit; i++) {
+            char a = value.charAt(i);
+            char b = name.charAt(start + i);
+            if (a != b) {
+                return a - b;
+            }
         }
-        return new String[]{fqn};
+        return value.length() - length;
     }
 
     private static class Node {
 
-        private Map<String, Node> mChildren;
+        private Node[] mChildren = EMPTY;
 
-        private boolean isLeaf;
+        private int mChildCount;
 
-        private String mValue;
+        private boolean isLeaf;
 
-        public Node() {
-
-        }
+        private final String mValue;
 
         public Node(String value) {
             mValue = value;
         }
 
-        public Node getOrCreateChild(String part) {
-            if (mChildren == null) {
-                mChildren = new HashMap<>();
+        /**
+         * @return the index of the child, or {@code -(insertion point) - 1} if it does not exist
+         */
+        int indexOf(String name, int start, int end) {
+            int low = 0;
+            int high = mChildCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(mChildren[mid].mValue, name, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Node getOrCreateChild(String name, int start, int end) {
+            int index = indexOf(name, start, end);
+            if (index >= 0) {
+                return mChildren[index];
+            }
+
+            int insertion = -(index + 1);
+            if (mChildCount == mChildren.length) {
+                mChildren = Arrays.copyOf(mChildren, Math.max(2, mChildCount * 2));
             }
+            System.arraycopy(mChildren, insertion, mChildren, insertion + 1,
+                    mChildCount - insertion);
 
-            return mChildren.computeIfAbsent(part, Node::new);
+            Node child = new Node(SEGMENTS.intern(name.substring(start, end)));
+            mChildren[insertion] = child;
+            mChildCount++;
+            return child;
         }
 
-        public Map<String, Node> getChildren() {
-            return mChildren;
+        void removeChild(int index) {
+            System.arraycopy(mChildren, index + 1, mChildren, index, mChildCount - index - 1);
+            mChildCount--;
+            mChildren[mChildCount] = null;
         }
 
         public String getValue() {
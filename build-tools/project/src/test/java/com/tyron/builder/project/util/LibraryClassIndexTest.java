@@ -0,0 +1,81 @@
+package com.tyron.builder.project.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class LibraryClassIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testScanSkipsInnerClasses() throws IOException {
+        File jar = createJar("a.jar", "com/test/Main.class", "com/test/Main$Inner.class",
+                "META-INF/MANIFEST.MF");
+
+        LibraryClassIndex index = new LibraryClassIndex(null);
+        List<String> classes = index.getClasses(jar);
+
+        assertEquals(1, classes.size());
+        assertEquals("com.test.Main", classes.get(0));
+    }
+
+    @Test
+    public void testUnchangedJarIsReadFromIndex() throws IOException {
+        File jar = createJar("a.jar", "com/test/Main.class", "com/test/Other.class");
+        File indexFile = new File(mFolder.getRoot(), "index/libraries.bin");
+
+        LibraryClassIndex index = new LibraryClassIndex(indexFile);
+        index.getClasses(jar);
+        index.save();
+        assertTrue(indexFile.exists());
+
+        LibraryClassIndex reopened = new LibraryClassIndex(indexFile);
+        List<String> classes = reopened.getClasses(jar);
+        assertEquals(2, classes.size());
+        assertTrue(classes.contains("com.test.Other"));
+        assertEquals(1, reopened.getHitCount());
+        assertEquals(0, reopened.getMissCount());
+    }
+
+    @Test
+    public void testChangedJarIsScannedAgain() throws IOException {
+        File jar = createJar("a.jar", "com/test/Main.class");
+        File indexFile = new File(mFolder.getRoot(), "libraries.bin");
+
+        LibraryClassIndex index = new LibraryClassIndex(indexFile);
+        index.getClasses(jar);
+        index.save();
+
+        jar = createJar("a.jar", "com/test/Main.class", "com/test/Added.class");
+        assertTrue(jar.setLastModified(jar.lastModified() + 2000));
+
+        LibraryClassIndex reopened = new LibraryClassIndex(indexFile);
+        List<String> classes = reopened.getClasses(jar);
+        assertEquals(2, classes.size());
+        assertEquals(1, reopened.getMissCount());
+    }
+
+    private File createJar(String name, String... entries) throws IOException {
+        File file = new File(mFolder.getRoot(), name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+            for (String entry : entries) {
+                out.putNextEntry(new JarEntry(entry));
+                out.write(new byte[]{0});
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+}
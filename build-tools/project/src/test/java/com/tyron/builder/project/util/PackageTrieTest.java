@@ -2,6 +2,8 @@ package com.tyron.builder.project.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class PackageTrieTest {
@@ -47,4 +49,47 @@ public class PackageTrieTest {
         List<String> packages = trie.getMatchingPackages("a");
         assert packages.size() == 1;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testForEachLeafIsSorted() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("java.util.List");
+        trie.add("java.lang.String");
+        trie.add("java.lang.Object");
+
+        List<String> names = new ArrayList<>();
+        trie.forEachLeaf((simpleName, fullyQualifiedName) -> {
+            names.add(fullyQualifiedName.toString());
+            return true;
+        });
+        assert names.equals(Arrays.asList("java.lang.Object", "java.lang.String",
+                "java.util.List"));
+    }
+
+    @Test
+    public void testForEachLeafStops() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.A");
+        trie.add("a.B");
+        trie.add("a.C");
+
+        List<String> names = new ArrayList<>();
+        boolean completed = trie.forEachLeaf("a", (simpleName, fullyQualifiedName) -> {
+            names.add(simpleName);
+            return names.size() < 2;
+        });
+        assert !completed;
+        assert names.equals(Arrays.asList("A", "B"));
+    }
+
+    @Test
+    public void testLeafWithChildren() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.b");
+        trie.add("a.b.c");
+
+        List<String> packages = trie.getMatchingPackages("a");
+        assert packages.size() == 2;
+        assert packages.contains("a.b.c");
+    }
+}
@@ -30,22 +30,42 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 public class SimpleResourceRepository implements Repository {
 
-    private static final ImmutableMap<ResourceFolderType, ResourceParser> sParsers;
+    /**
+     * The parsers of each thread, so that files can be parsed concurrently without sharing
+     * parser instances.
+     */
+    private static final ThreadLocal<ImmutableMap<ResourceFolderType, ResourceParser>> sParsers =
+            ThreadLocal.withInitial(SimpleResourceRepository::createParsers);
 
-    static {
+    private static final int PARSER_THREADS =
+            Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static ExecutorService sParserPool;
+
+    private static ImmutableMap<ResourceFolderType, ResourceParser> createParsers() {
         ImmutableMap.Builder<ResourceFolderType, ResourceParser> parsers = ImmutableMap.builder();
         parsers.put(ResourceFolderType.VALUES, new ValuesXmlParser());
         parsers.put(ResourceFolderType.LAYOUT, new LayoutXmlParser());
@@ -57,7 +77,20 @@ public class SimpleResourceRepository implements Repository {
         parsers.put(ResourceFolderType.FONT, new TemporaryParser(ResourceType.FONT));
         parsers.put(ResourceFolderType.DRAWABLE, new TemporaryParser(ResourceType.DRAWABLE));
         parsers.put(ResourceFolderType.ANIM, new TemporaryParser(ResourceType.ANIM));
-        sParsers = parsers.build();
+        return parsers.build();
+    }
+
+    private static synchronized ExecutorService getParserPool() {
+        if (sParserPool == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            sParserPool = Executors.newFixedThreadPool(PARSER_THREADS, runnable -> {
+                Thread thread = new Thread(runnable,
+                                           "ResourceParser-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sParserPool;
     }
 
     private final Logger logger = IdeLog.getCurrentLogger(this);
@@ -67,7 +100,10 @@ public class SimpleResourceRepository implements Repository {
     protected final ResourceTable mTable = new ResourceTable();
     protected final Multimap<File, ResourceItem> mFileItems = ArrayListMultimap.create();
 
+    private final Map<File, Long> mFolderParseTimes = new ConcurrentHashMap<>();
+
     private FolderConfiguration mConfiguration;
+    private boolean mParallelParsing = true;
 
     public SimpleResourceRepository(File resDir, ResourceNamespace namespace) {
         mResDir = resDir;
@@ -81,26 +117,122 @@ public class SimpleResourceRepository implements Repository {
         parse(mResDir, mNamespace, null);
     }
 
+    /**
+     * Sets whether the files of the resource folders are parsed on a pool of worker threads
+     * when the repository is initialized. Parallel parsing is enabled by default.
+     */
+    public void setParallelParsing(boolean parallelParsing) {
+        mParallelParsing = parallelParsing;
+    }
+
+    /**
+     * @return the time it took to parse the files of each resource folder, in milliseconds. In
+     * parallel mode, this is the sum of the time each file took to parse.
+     */
+    @NotNull
+    public Map<File, Long> getFolderParseTimes() {
+        return Collections.unmodifiableMap(mFolderParseTimes);
+    }
+
     protected void parse(File resDir, ResourceNamespace namespace, String name) throws IOException {
+        long start = System.currentTimeMillis();
         Collection<File> dirs = FileUtils.listFilesAndDirs(resDir, FalseFileFilter.INSTANCE,
                                                            TrueFileFilter.INSTANCE);
-        for (File dir : dirs) {
+        if (mParallelParsing) {
+            parseParallel(dirs, namespace, name);
+        } else {
+            for (File dir : dirs) {
+                if (getParser(dir) == null) {
+                    continue;
+                }
 
-            ResourceParser parser = getParser(dir);
-            if (parser == null) {
+                long folderStart = System.currentTimeMillis();
+                Collection<File> xmlFiles =
+                        FileUtils.listFiles(dir, TrueFileFilter.INSTANCE, FalseFileFilter.INSTANCE);
+                for (File xmlFile : xmlFiles) {
+                    addValues(xmlFile, dir.getName(), parseFile(xmlFile, dir, namespace, name));
+                }
+                recordFolderTime(dir, xmlFiles.size(), System.currentTimeMillis() - folderStart);
+            }
+        }
+        logger.info("Parsed resources of " + resDir + " in " +
+                    (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Parses the files on the parser pool, then adds their resources to the table on the
+     * calling thread in the order of the folders and of their files, the same order as a
+     * sequential parse. The order of the items does not depend on which file finished first.
+     */
+    private void parseParallel(Collection<File> dirs,
+                               ResourceNamespace namespace,
+                               String name) throws IOException {
+        ExecutorService pool = getParserPool();
+        List<ParsingFolder> folders = new ArrayList<>();
+        for (File dir : dirs) {
+            if (getParser(dir) == null) {
                 continue;
             }
 
             Collection<File> xmlFiles =
                     FileUtils.listFiles(dir, TrueFileFilter.INSTANCE, FalseFileFilter.INSTANCE);
+            ParsingFolder folder = new ParsingFolder(dir);
             for (File xmlFile : xmlFiles) {
+                folder.files.put(xmlFile, pool.submit(() -> {
+                    long fileStart = System.currentTimeMillis();
+                    try {
+                        return parseFile(xmlFile, dir, namespace, name);
+                    } finally {
+                        folder.time.add(System.currentTimeMillis() - fileStart);
+                    }
+                }));
+            }
+            folders.add(folder);
+        }
+
+        for (ParsingFolder folder : folders) {
+            for (Map.Entry<File, Future<List<ResourceValue>>> entry : folder.files.entrySet()) {
                 try {
-                    String contents = FileUtils.readFileToString(xmlFile, StandardCharsets.UTF_8);
-                    parseFile(parser, xmlFile, contents, dir.getName(), namespace, name);
-                } catch (IOException e) {
-                    logger.warning("Unable to parse " + xmlFile.getName() + ": " + e.getMessage());
+                    addValues(entry.getKey(), folder.dir.getName(), entry.getValue().get());
+                } catch (InterruptedException e) {
+                    folders.forEach(f -> f.files.values().forEach(t -> t.cancel(true)));
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while parsing resources");
+                } catch (ExecutionException e) {
+                    logger.warning("Unable to parse " + entry.getKey().getName() + ": " +
+                                   e.getCause());
                 }
             }
+            recordFolderTime(folder.dir, folder.files.size(), folder.time.sum());
+        }
+    }
+
+    private void recordFolderTime(File dir, int fileCount, long time) {
+        mFolderParseTimes.put(dir, time);
+        logger.fine("Parsed " + fileCount + " files of " + dir.getName() + " in " + time + " ms");
+    }
+
+    /**
+     * Reads and parses a file of a resource folder. It does not touch the table, so it can run
+     * on any thread.
+     *
+     * @return the resources of the file, empty if it could not be read
+     */
+    @NotNull
+    private List<ResourceValue> parseFile(File xmlFile,
+                                          File dir,
+                                          ResourceNamespace namespace,
+                                          String name) {
+        ResourceParser parser = getParser(dir);
+        if (parser == null) {
+            return Collections.emptyList();
+        }
+        try {
+            String contents = FileUtils.readFileToString(xmlFile, StandardCharsets.UTF_8);
+            return parser.parse(xmlFile, contents, namespace, name);
+        } catch (IOException e) {
+            logger.warning("Unable to parse " + xmlFile.getName() + ": " + e.getMessage());
+            return Collections.emptyList();
         }
     }
 
@@ -110,16 +242,12 @@ public class SimpleResourceRepository implements Repository {
         if (folderType == null) {
             return null;
         }
-        return sParsers.get(folderType);
+        return sParsers.get().get(folderType);
     }
 
-    private synchronized void parseFile(@NotNull ResourceParser parser,
-                           @NotNull File xmlFile,
-                           @Nullable String contents,
-                           @NotNull String folderName,
-                           @NotNull ResourceNamespace namespace,
-                           @Nullable String libraryName) throws IOException {
-        List<ResourceValue> values = parser.parse(xmlFile, contents, namespace, libraryName);
+    private synchronized void addValues(@NotNull File xmlFile,
+                                        @NotNull String folderName,
+                                        @NotNull List<ResourceValue> values) {
         for (ResourceValue value : values) {
             ListMultimap<String, ResourceItem> tableValue =
                     mTable.getOrPutEmpty(value.getNamespace(), value.getResourceType());
@@ -150,7 +278,7 @@ public class SimpleResourceRepository implements Repository {
             return;
         }
 
-        parseFile(parser, file, contents, parent.getName(), mNamespace, null);
+        addValues(file, parent.getName(), parser.parse(file, contents, mNamespace, null));
     }
 
     @NotNull
@@ -344,4 +472,19 @@ public class SimpleResourceRepository implements Repository {
         }
         throw new IllegalArgumentException("Unknown color");
     }
+
+    /**
+     * The files of a resource folder being parsed on the parser pool, in the order they were
+     * listed
+     */
+    private static final class ParsingFolder {
+        private final File dir;
+        private final Map<File, Future<List<ResourceValue>>> files = new LinkedHashMap<>();
+        /** The sum of the time each file took to parse, in milliseconds */
+        private final LongAdder time = new LongAdder();
+
+        private ParsingFolder(File dir) {
+            this.dir = dir;
+        }
+    }
 }
@@ -16,6 +16,7 @@ public class SharedPreferenceKeys {
     public static final String KOTLIN_HIGHLIGHTING = "kotlin_error_highlight";
     public static final String JAVA_ERROR_HIGHLIGHTING = "code_editor_error_highlight";
     public static final String JAVA_CODE_COMPLETION = "code_editor_completion";
+    public static final String INJECT_R_CLASS_FILES = "inject_r_class_files";
     public static final String SCHEME = "scheme";
     public static final String THEME = "theme";
     public static final String EDITOR_TAB_UNIQUE_FILE_NAME = "editor_tab_unique_file_name";
@@ -0,0 +1,209 @@
+package com.tyron.common.util;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a file + an arbitrary key to a value, like {@link Cache}, but with a bounded total
+ * weight and least recently used eviction.
+ *
+ * Unlike {@link Cache}, entries are not validated against the modification time of the file
+ * on every lookup. Owners are expected to call {@link #invalidate(Path)} when the file changes,
+ * which drops every key associated with that file at once.
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * Computes the weight of a value, the total weight of the cache never exceeds its maximum
+     */
+    public interface Weigher<V> {
+        int weigh(V value);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final int weight;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final long mMaxWeight;
+    private final Weigher<? super V> mWeigher;
+
+    // access ordered, the first entry is the least recently used
+    private final LinkedHashMap<Cache.Key<K>, Entry<V>> mMap =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Set<Cache.Key<K>>> mKeysByFile = new HashMap<>();
+
+    private long mWeight;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    /**
+     * Creates a cache that holds at most {@code maxSize} entries
+     */
+    public BoundedCache(long maxSize) {
+        this(maxSize, value -> 1);
+    }
+
+    public BoundedCache(long maxWeight, Weigher<? super V> weigher) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        mMaxWeight = maxWeight;
+        mWeigher = weigher;
+    }
+
+    public synchronized boolean has(Path file, K k) {
+        return mMap.containsKey(new Cache.Key<>(file, k));
+    }
+
+    public boolean needs(Path file, K k) {
+        return getIfPresent(file, k) == null;
+    }
+
+    /**
+     * @return The cached value, or null if it is not in the cache. Null values cannot be
+     * distinguished from missing ones.
+     */
+    public synchronized V getIfPresent(Path file, K k) {
+        Entry<V> entry = mMap.get(new Cache.Key<>(file, k));
+        if (entry == null) {
+            mMisses++;
+            return null;
+        }
+        mHits++;
+        return entry.value;
+    }
+
+    public synchronized V get(Path file, K k) {
+        Cache.Key<K> key = new Cache.Key<>(file, k);
+        Entry<V> entry = mMap.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException(k + " is not in cache for " + file);
+        }
+        return entry.value;
+    }
+
+    public synchronized void load(Path file, K k, V v) {
+        Cache.Key<K> key = new Cache.Key<>(file, k);
+        int weight = Math.max(0, mWeigher.weigh(v));
+        Entry<V> previous = mMap.put(key, new Entry<>(v, weight));
+        if (previous != null) {
+            mWeight -= previous.weight;
+        }
+        mWeight += weight;
+
+        Set<Cache.Key<K>> keys = mKeysByFile.get(file);
+        if (keys == null) {
+            keys = new HashSet<>();
+            mKeysByFile.put(file, keys);
+        }
+        keys.add(key);
+
+        trim();
+    }
+
+    @SafeVarargs
+    public final synchronized void remove(Path file, K... keys) {
+        for (K k : keys) {
+            removeKey(new Cache.Key<>(file, k));
+        }
+    }
+
+    /**
+     * Removes all the keys associated with the file
+     */
+    public synchronized void invalidate(Path file) {
+        Set<Cache.Key<K>> keys = mKeysByFile.remove(file);
+        if (keys == null) {
+            return;
+        }
+        for (Cache.Key<K> key : keys) {
+            Entry<V> entry = mMap.remove(key);
+            if (entry != null) {
+                mWeight -= entry.weight;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mMap.clear();
+        mKeysByFile.clear();
+        mWeight = 0;
+    }
+
+    public synchronized int size() {
+        return mMap.size();
+    }
+
+    public synchronized long weight() {
+        return mWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return mHits;
+    }
+
+    public synchronized long getMissCount() {
+        return mMisses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return mEvictions;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Cache.Key<K>, Entry<V>>> iterator = mMap.entrySet().iterator();
+        while (mWeight > mMaxWeight && iterator.hasNext()) {
+            Map.Entry<Cache.Key<K>, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            mWeight -= eldest.getValue().weight;
+            mEvictions++;
+
+            Path file = eldest.getKey().file;
+            Set<Cache.Key<K>> keys = mKeysByFile.get(file);
+            if (keys != null) {
+                keys.remove(eldest.getKey());
+                if (keys.isEmpty()) {
+                    mKeysByFile.remove(file);
+                }
+            }
+        }
+    }
+
+    private void removeKey(Cache.Key<K> key) {
+        Entry<V> entry = mMap.remove(key);
+        if (entry == null) {
+            return;
+        }
+        mWeight -= entry.weight;
+        Set<Cache.Key<K>> keys = mKeysByFile.get(key.file);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                mKeysByFile.remove(key.file);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BoundedCache{" +
+               "size=" + mMap.size() +
+               ", weight=" + mWeight +
+               ", hits=" + mHits +
+               ", misses=" + mMisses +
+               ", evictions=" + mEvictions +
+               '}';
+    }
+}
@@ -0,0 +1,69 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class BoundedCacheTest {
+
+    private static final Path FIRST = Paths.get("First.java");
+    private static final Path SECOND = Paths.get("Second.java");
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        cache.load(FIRST, "a", "a");
+        cache.load(FIRST, "b", "b");
+
+        // touch a so that b becomes the eldest
+        cache.getIfPresent(FIRST, "a");
+        cache.load(SECOND, "c", "c");
+
+        assertTrue(cache.has(FIRST, "a"));
+        assertFalse(cache.has(FIRST, "b"));
+        assertTrue(cache.has(SECOND, "c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testWeight() {
+        BoundedCache<Void, String> cache = new BoundedCache<>(5, String::length);
+        cache.load(FIRST, null, "abc");
+        cache.load(SECOND, null, "abc");
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.weight());
+    }
+
+    @Test
+    public void testInvalidateRemovesAllKeysOfFile() {
+        BoundedCache<String, Boolean> cache = new BoundedCache<>(10);
+        cache.load(FIRST, "a", true);
+        cache.load(FIRST, "b", false);
+        cache.load(SECOND, "a", true);
+
+        cache.invalidate(FIRST);
+
+        assertTrue(cache.needs(FIRST, "a"));
+        assertTrue(cache.needs(FIRST, "b"));
+        assertFalse(cache.needs(SECOND, "a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testHitAndMissCounts() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        assertNull(cache.getIfPresent(FIRST, "a"));
+        cache.load(FIRST, "a", "value");
+        assertEquals("value", cache.getIfPresent(FIRST, "a"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+}
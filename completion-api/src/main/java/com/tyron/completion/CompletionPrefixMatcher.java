@@ -29,22 +29,65 @@ public class CompletionPrefixMatcher {
     }
 
     public static MatchLevel computeMatchLevel(String candidateName, String completionPrefix) {
+        return computeMatchLevel(candidateName, candidateName.toLowerCase(), null,
+                completionPrefix, completionPrefix.toLowerCase());
+    }
+
+    /**
+     * Same as {@link #computeMatchLevel(String, String)} but with the lower case forms of the
+     * candidate and prefix already computed, so that filtering a list of candidates does not
+     * allocate for each candidate.
+     *
+     * @param camelHumps The result of {@link #camelHumps(String)} for the candidate, if null the
+     *                   candidate is not matched by its camel humps.
+     */
+    public static MatchLevel computeMatchLevel(String candidateName,
+                                               String lowerCaseCandidate,
+                                               String camelHumps,
+                                               String completionPrefix,
+                                               String lowerCasePrefix) {
         if (candidateName.startsWith(completionPrefix)) {
             return candidateName.length() == completionPrefix.length()
                     ? MatchLevel.CASE_SENSITIVE_EQUAL
                     : MatchLevel.CASE_SENSITIVE_PREFIX;
         }
 
-        if (candidateName.toLowerCase().startsWith(completionPrefix.toLowerCase())) {
+        if (lowerCaseCandidate.startsWith(lowerCasePrefix)) {
             return candidateName.length() == completionPrefix.length()
                     ? MatchLevel.CASE_INSENSITIVE_EQUAL
                     : MatchLevel.CASE_INSENSITIVE_PREFIX;
         }
 
+        if (camelHumps != null && lowerCasePrefix.length() > 1 &&
+            camelHumps.startsWith(lowerCasePrefix)) {
+            return MatchLevel.PARTIAL_MATCH;
+        }
+
         int score = FuzzySearch.ratio(candidateName, completionPrefix);
         if (score > MINIMUM_SCORE) {
             return MatchLevel.PARTIAL_MATCH;
         }
         return MatchLevel.NOT_MATCH;
     }
+
+    /**
+     * Returns the lower cased first letter of each word of the name,
+     * e.g. {@code "al"} for {@code ArrayList} and {@code "mv"} for {@code MAX_VALUE}
+     */
+    public static String camelHumps(String name) {
+        StringBuilder humps = new StringBuilder(4);
+        boolean wordStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '_' || c == '$') {
+                wordStart = true;
+                continue;
+            }
+            if (wordStart || (Character.isUpperCase(c) && !Character.isUpperCase(name.charAt(i - 1)))) {
+                humps.append(Character.toLowerCase(c));
+            }
+            wordStart = false;
+        }
+        return humps.toString();
+    }
 }
@@ -35,6 +35,21 @@ public class CompletionList {
 
     public List<CompletionItem> items = new ArrayList<>();
 
+    /**
+     * The prefix the items of this list were matched against
+     */
+    private String prefix;
+
+    /**
+     * The precomputed match data of each item in {@link #items}, in the same order
+     */
+    private List<MatchEntry> entries = Collections.emptyList();
+
+    /**
+     * The list built by a completion provider that this list has been filtered from
+     */
+    private CompletionList root = this;
+
     /**
      * For performance reasons, the completion items are limited to a certain amount.
      * A completion provider may indicate that its results are incomplete so next as
@@ -54,24 +69,103 @@ public class CompletionList {
         return items;
     }
 
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Filters the list with a new prefix.
+     *
+     * When the new prefix extends the prefix of the old list, only the items that matched
+     * the old prefix are matched again, so narrowing the list by one more character costs time
+     * proportional to the survivors of the previous filter. Otherwise, the items of the list
+     * originally built by the provider are matched again. The lower case and camel hump forms of
+     * each item are computed once when the item is first added and reused by every copy.
+     *
+     * <p>Prefix and camel hump matches never gain items as the prefix grows, but fuzzy matches
+     * may: an item rejected for a prefix can match once the prefix is longer. If no survivor
+     * matches the new prefix, the original items are matched again so those are still found.
+     *
+     * @param old       the list to filter, typically the result of the previous copy
+     * @param newPrefix the new completion prefix
+     * @return a new list with the items matching the new prefix
+     */
     public static CompletionList copy(CompletionList old, String newPrefix) {
+        CompletionList source = old;
+        if (old.prefix == null || !newPrefix.startsWith(old.prefix)) {
+            source = old.root;
+        }
+        CompletionList list = filter(source, old.isIncomplete, newPrefix);
+        if (list.items.isEmpty() && source != old.root) {
+            list = filter(old.root, old.isIncomplete, newPrefix);
+        }
+        list.root = old.root;
+        return list;
+    }
+
+    private static CompletionList filter(CompletionList source, boolean incomplete,
+                                         String newPrefix) {
         Builder builder = CompletionList.builder(newPrefix);
-        if (old.isIncomplete) {
+        if (incomplete) {
             builder.incomplete();
         }
-        builder.addItems(old.getItems());
+        if (source.items.size() != source.entries.size()) {
+            // items were modified directly, the match index cannot be used
+            builder.addItems(source.getItems());
+            return builder.build();
+        }
+        for (MatchEntry entry : source.entries) {
+            builder.addEntry(entry);
+        }
         return builder.build();
     }
 
+    /**
+     * The filter texts of an item along with their lower case and camel hump forms
+     */
+    private static class MatchEntry {
+        final CompletionItem item;
+        final String[] filterTexts;
+        final String[] lowerCaseFilterTexts;
+        final String[] camelHumps;
+
+        MatchEntry(CompletionItem item) {
+            this.item = item;
+            List<String> texts = item.getFilterTexts();
+            int size = texts.size();
+            filterTexts = texts.toArray(new String[size]);
+            lowerCaseFilterTexts = new String[size];
+            camelHumps = new String[size];
+            for (int i = 0; i < size; i++) {
+                lowerCaseFilterTexts[i] = filterTexts[i].toLowerCase();
+                camelHumps[i] = CompletionPrefixMatcher.camelHumps(filterTexts[i]);
+            }
+        }
+
+        MatchLevel match(String prefix, String lowerCasePrefix) {
+            MatchLevel best = MatchLevel.NOT_MATCH;
+            for (int i = 0; i < filterTexts.length; i++) {
+                MatchLevel level = CompletionPrefixMatcher.computeMatchLevel(filterTexts[i],
+                        lowerCaseFilterTexts[i], camelHumps[i], prefix, lowerCasePrefix);
+                if (level.compareTo(best) > 0) {
+                    best = level;
+                }
+            }
+            return best;
+        }
+    }
+
     public static class Builder {
-        private final List<CompletionItem> items;
+        private final List<MatchEntry> entries;
         private boolean incomplete;
 
         private final String completionPrefix;
+        private final String lowerCasePrefix;
 
         public Builder(String completionPrefix) {
-            items = new ArrayList<>();
+            entries = new ArrayList<>();
             this.completionPrefix = completionPrefix;
+            this.lowerCasePrefix = completionPrefix.toLowerCase();
         }
 
         public String getPrefix() {
@@ -94,27 +188,21 @@ public class CompletionList {
         }
 
         public Builder addItem(CompletionItem item) {
-            List<MatchLevel> matchLevels = new ArrayList<>();
-            for (String filterText : item.getFilterTexts()) {
-                MatchLevel matchLevel =
-                        CompletionPrefixMatcher.computeMatchLevel(filterText, completionPrefix);
-                if (matchLevel == MatchLevel.NOT_MATCH) {
-                    continue;
-                }
-                matchLevels.add(matchLevel);
-            }
-            if (matchLevels.isEmpty()) {
+            return addEntry(new MatchEntry(item));
+        }
+
+        private Builder addEntry(MatchEntry entry) {
+            MatchLevel matchLevel = entry.match(completionPrefix, lowerCasePrefix);
+            if (matchLevel == MatchLevel.NOT_MATCH) {
                 return this;
             }
-            Collections.sort(matchLevels);
-            MatchLevel matchLevel = matchLevels.get(matchLevels.size() - 1);
-            item.setMatchLevel(matchLevel);
-            items.add(item);
+            entry.item.setMatchLevel(matchLevel);
+            entries.add(entry);
             return this;
         }
 
         public int getItemCount() {
-            return items.size();
+            return entries.size();
         }
 
         public void incomplete() {
@@ -129,7 +217,16 @@ public class CompletionList {
         public CompletionList build() {
             CompletionList list = new CompletionList();
             list.isIncomplete = this.incomplete;
-            list.items = ITEM_ORDERING.immutableSortedCopy(items);
+            list.prefix = completionPrefix;
+
+            List<MatchEntry> sorted = new ArrayList<>(entries);
+            sorted.sort((a, b) -> ITEM_ORDERING.compare(a.item, b.item));
+            ImmutableList.Builder<CompletionItem> items = ImmutableList.builderWithExpectedSize(sorted.size());
+            for (MatchEntry entry : sorted) {
+                items.add(entry.item);
+            }
+            list.items = items.build();
+            list.entries = sorted;
             return list;
         }
     }
@@ -0,0 +1,159 @@
+package com.tyron.completion.progress;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor with as many threads as the device has cores. Queued interactive tasks, such as
+ * completions and hovers, are run before queued background tasks, such as indexing; tasks of
+ * the same priority are run in the order they were submitted.
+ *
+ * <p>Background tasks never take all the threads of an executor with more than one thread, one
+ * is always left for interactive tasks. A long background task, or one that blocks, can't keep
+ * interactive tasks from running.
+ */
+public class AdaptiveExecutor implements Executor {
+
+    public enum Priority {
+        /** Work the user is waiting on */
+        INTERACTIVE,
+        /** Work whose result is not needed right away */
+        BACKGROUND
+    }
+
+    private final ThreadPoolExecutor mPool;
+    private final int mMaxBackgroundTasks;
+    /** Background tasks waiting for a background task in the pool to finish, guarded by this */
+    private final Queue<PrioritizedTask> mPendingBackgroundTasks = new ArrayDeque<>();
+    /** The number of background tasks queued in the pool or running, guarded by this */
+    private int mBackgroundTaskCount;
+    private final AtomicLong mSequence = new AtomicLong();
+    private final LongAdder[] mWaitTimes = new LongAdder[Priority.values().length];
+    private final LongAdder[] mTaskCounts = new LongAdder[Priority.values().length];
+
+    public AdaptiveExecutor() {
+        this(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public AdaptiveExecutor(int threadCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "ProgressManager-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        mPool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        mMaxBackgroundTasks = Math.max(1, threadCount - 1);
+        for (int i = 0; i < mWaitTimes.length; i++) {
+            mWaitTimes[i] = new LongAdder();
+            mTaskCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Runs the task in the background
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, Priority.BACKGROUND);
+    }
+
+    public void execute(Runnable command, Priority priority) {
+        PrioritizedTask task = new PrioritizedTask(command, priority, mSequence.getAndIncrement());
+        if (priority == Priority.BACKGROUND) {
+            synchronized (this) {
+                if (mBackgroundTaskCount >= mMaxBackgroundTasks) {
+                    mPendingBackgroundTasks.add(task);
+                    return;
+                }
+                mBackgroundTaskCount++;
+            }
+        }
+        mPool.execute(task);
+    }
+
+    /**
+     * Hands the next pending background task to the pool, in place of the one that finished
+     */
+    private void backgroundTaskFinished() {
+        PrioritizedTask next;
+        synchronized (this) {
+            next = mPendingBackgroundTasks.poll();
+            if (next == null) {
+                mBackgroundTaskCount--;
+                return;
+            }
+        }
+        mPool.execute(next);
+    }
+
+    public int getThreadCount() {
+        return mPool.getMaximumPoolSize();
+    }
+
+    /**
+     * @return the number of background tasks that may run at the same time
+     */
+    public int getMaxBackgroundTasks() {
+        return mMaxBackgroundTasks;
+    }
+
+    /**
+     * @return the number of tasks of the priority that were started
+     */
+    public long getTaskCount(Priority priority) {
+        return mTaskCounts[priority.ordinal()].sum();
+    }
+
+    /**
+     * @return the total time the started tasks of the priority spent queued before they ran
+     */
+    public long getQueueWaitTime(Priority priority, TimeUnit unit) {
+        return unit.convert(mWaitTimes[priority.ordinal()].sum(), TimeUnit.NANOSECONDS);
+    }
+
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        private final Runnable mRunnable;
+        private final Priority mPriority;
+        private final long mSequence;
+        private final long mQueueTime = System.nanoTime();
+
+        private PrioritizedTask(Runnable runnable, Priority priority, long sequence) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            mWaitTimes[mPriority.ordinal()].add(System.nanoTime() - mQueueTime);
+            mTaskCounts[mPriority.ordinal()].increment();
+            try {
+                mRunnable.run();
+            } finally {
+                if (mPriority == Priority.BACKGROUND) {
+                    backgroundTaskFinished();
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask o) {
+            int result = mPriority.compareTo(o.mPriority);
+            if (result != 0) {
+                return result;
+            }
+            return Long.compare(mSequence, o.mSequence);
+        }
+    }
+}
@@ -4,12 +4,16 @@ public class ProgressIndicator {
 
     private volatile boolean mCanceled;
     private volatile boolean mRunning;
+    private volatile long mCancelTime;
 
     public ProgressIndicator() {
 
     }
 
     public void setCanceled(boolean cancel) {
+        if (cancel && !mCanceled) {
+            mCancelTime = System.nanoTime();
+        }
         mCanceled = cancel;
     }
 
@@ -28,4 +32,11 @@ public class ProgressIndicator {
     public boolean isRunning() {
         return mRunning;
     }
+
+    /**
+     * @return the {@link System#nanoTime()} at which this indicator was canceled
+     */
+    long getCancelTime() {
+        return mCancelTime;
+    }
 }
@@ -11,38 +11,57 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.tyron.common.TestUtil;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 public class ProgressManager {
 
-    private static ProgressManager sInstance = null;
+    private static volatile ProgressManager sInstance = null;
 
     public static ProgressManager getInstance() {
-        if (sInstance == null) {
-            sInstance = new ProgressManager();
+        ProgressManager instance = sInstance;
+        if (instance == null) {
+            synchronized (ProgressManager.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = sInstance = new ProgressManager();
+                }
+            }
         }
-        return sInstance;
+        return instance;
     }
 
     public static void checkCanceled() {
         getInstance().doCheckCanceled();
     }
 
-    private final ExecutorService mPool = Executors.newFixedThreadPool(32);
+    private final AdaptiveExecutor mPool = new AdaptiveExecutor();
     private final HandlerInterface mMainHandler;
 
-    private final Map<Thread, ProgressIndicator> mThreadToIndicator;
+    /**
+     * The indicator of the cancelable task running on the current thread, read on every call
+     * to {@link #checkCanceled()}
+     */
+    private final ThreadLocal<ProgressIndicator> mCurrentIndicator = new ThreadLocal<>();
+
+    /**
+     * The indicators of the threads running cancelable tasks, so they can be canceled from
+     * other threads. Only changed when a task starts or ends.
+     */
+    private final Map<Thread, ProgressIndicator> mThreadToIndicator = new ConcurrentHashMap<>();
+
+    /**
+     * Threads that were canceled while they were not running a cancelable task
+     */
+    private final Map<Thread, ProgressIndicator> mPendingCancellations = new ConcurrentHashMap<>();
+
+    private final LongAdder mCancellationCount = new LongAdder();
+    private final LongAdder mCancellationLatency = new LongAdder();
 
     public ProgressManager() {
-        mThreadToIndicator = new WeakHashMap<>();
         if (TestUtil.isDalvik()) {
             mMainHandler = new DefaultHandlerInterface(new Handler(Looper.getMainLooper()));
         } else {
@@ -65,15 +84,17 @@ public class ProgressManager {
             Thread currentThread = Thread.currentThread();
             try {
                 mThreadToIndicator.put(currentThread, indicator);
+                mCurrentIndicator.set(indicator);
                 indicator.setRunning(true);
                 runnable.run();
             } catch (ProcessCanceledException e) {
                 cancelConsumer.accept(indicator);
             } finally {
                 indicator.setRunning(false);
+                mCurrentIndicator.remove();
                 mThreadToIndicator.remove(currentThread);
             }
-        });
+        }, AdaptiveExecutor.Priority.INTERACTIVE);
     }
 
     public void runAsync(Context uiContext,
@@ -103,21 +124,40 @@ public class ProgressManager {
             taskToRun.run();
             cancelRunLater(loadingRunnable);
             finishRunnable.run();
-        });
+        }, AdaptiveExecutor.Priority.INTERACTIVE);
         runLater(loadingRunnable, 2000);
     }
 
     /**
-     * Run an asynchronous operation that is not cancelable.
+     * Run an asynchronous operation that is not cancelable in the background. Most callers
+     * are user actions, such as building or opening a project, so it is run as interactive
+     * work. Work such as indexing should pass {@link AdaptiveExecutor.Priority#BACKGROUND}.
      *
      * @param runnable The code to run
      */
     public void runNonCancelableAsync(Runnable runnable) {
-        mPool.execute(runnable);
+        runNonCancelableAsync(runnable, AdaptiveExecutor.Priority.INTERACTIVE);
     }
 
+    /**
+     * Run an asynchronous operation that is not cancelable.
+     *
+     * @param runnable The code to run
+     * @param priority Whether the user is waiting on the result of the operation
+     */
+    public void runNonCancelableAsync(Runnable runnable, AdaptiveExecutor.Priority priority) {
+        mPool.execute(runnable, priority);
+    }
+
+    /**
+     * Computes a value that is not cancelable. The callers wait on the result, so it is run
+     * as interactive work.
+     *
+     * @param callable The code computing the value
+     */
     public <T> ListenableFuture<T> computeNonCancelableAsync(AsyncCallable<T> callable) {
-        return Futures.submitAsync(callable, mPool);
+        return Futures.submitAsync(callable,
+                runnable -> mPool.execute(runnable, AdaptiveExecutor.Priority.INTERACTIVE));
     }
 
     /**
@@ -144,20 +184,57 @@ public class ProgressManager {
 
     public void cancelThread(Thread thread) {
         ProgressIndicator indicator = mThreadToIndicator.get(thread);
-        if (indicator == null) {
-            indicator = new ProgressIndicator();
+        if (indicator != null) {
+            indicator.cancel();
+            return;
         }
+        indicator = new ProgressIndicator();
         indicator.cancel();
-        mThreadToIndicator.put(thread, indicator);
+        mPendingCancellations.put(thread, indicator);
+    }
+
+    /**
+     * @return the executor the tasks are run on, with its queue wait counters
+     */
+    public AdaptiveExecutor getExecutor() {
+        return mPool;
+    }
+
+    /**
+     * @return the number of tasks that stopped because they were canceled
+     */
+    public long getCancellationCount() {
+        return mCancellationCount.sum();
+    }
+
+    /**
+     * @return the total time between the cancellation of the tasks and the moment they
+     * noticed it
+     */
+    public long getCancellationLatency(TimeUnit unit) {
+        return unit.convert(mCancellationLatency.sum(), TimeUnit.NANOSECONDS);
     }
 
     private void doCheckCanceled() {
-        ProgressIndicator indicator = mThreadToIndicator.get(Thread.currentThread());
+        ProgressIndicator indicator = mCurrentIndicator.get();
         if (indicator != null) {
             if (indicator.isCanceled()) {
-                mThreadToIndicator.remove(Thread.currentThread());
-                throw new ProcessCanceledException();
+                mCurrentIndicator.remove();
+                onCanceled(indicator);
             }
+            return;
         }
+        if (!mPendingCancellations.isEmpty()) {
+            indicator = mPendingCancellations.remove(Thread.currentThread());
+            if (indicator != null) {
+                onCanceled(indicator);
+            }
+        }
+    }
+
+    private void onCanceled(ProgressIndicator indicator) {
+        mCancellationCount.increment();
+        mCancellationLatency.add(System.nanoTime() - indicator.getCancelTime());
+        throw new ProcessCanceledException();
     }
 }
@@ -0,0 +1,99 @@
+package com.tyron.completion.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.completion.CompletionPrefixMatcher;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CompletionListTest {
+
+    @Test
+    public void testCamelHumps() {
+        assertEquals("al", CompletionPrefixMatcher.camelHumps("ArrayList"));
+        assertEquals("mv", CompletionPrefixMatcher.camelHumps("MAX_VALUE"));
+        assertEquals("gvbi", CompletionPrefixMatcher.camelHumps("getViewById"));
+    }
+
+    @Test
+    public void testNarrowing() {
+        CompletionList list = create("", "ArrayList", "ArrayDeque", "HashMap", "Array");
+
+        CompletionList narrowed = CompletionList.copy(list, "Arr");
+        assertEquals("Arr", narrowed.getPrefix());
+        assertTrue(labels(narrowed).contains("ArrayList"));
+        assertTrue(!labels(narrowed).contains("HashMap"));
+
+        CompletionList exact = CompletionList.copy(narrowed, "Array");
+        assertEquals("Array", exact.getItems().get(0).getLabel());
+    }
+
+    @Test
+    public void testWideningUsesOriginalItems() {
+        CompletionList list = create("", "ArrayList", "HashMap");
+
+        CompletionList narrowed = CompletionList.copy(list, "Arr");
+        assertEquals(1, narrowed.getItems().size());
+
+        CompletionList widened = CompletionList.copy(narrowed, "");
+        assertEquals(2, widened.getItems().size());
+    }
+
+    @Test
+    public void testFuzzyMatchIsNotNarrowedAway() {
+        CompletionList list = create("", "List", "HashMap");
+
+        // "List" doesn't match "Ls" but it does match the longer "Lst"
+        CompletionList first = CompletionList.copy(list, "Ls");
+        assertTrue(!labels(first).contains("List"));
+
+        CompletionList second = CompletionList.copy(first, "Lst");
+        assertTrue(labels(second).contains("List"));
+    }
+
+    @Test
+    public void testNarrowingOnlyMatchesSurvivors() {
+        CompletionList list = create("", "ArrayList", "ArrayDeque", "HashMap");
+
+        CompletionList narrowed = CompletionList.copy(list, "Arr");
+        list.items = new ArrayList<>(list.items);
+        list.items.clear();
+
+        // the root list can't be used anymore, the survivors are enough
+        CompletionList further = CompletionList.copy(narrowed, "ArrayL");
+        assertEquals(1, further.getItems().size());
+        assertEquals("ArrayList", further.getItems().get(0).getLabel());
+    }
+
+    @Test
+    public void testCamelHumpMatch() {
+        CompletionList list = create("", "ArrayList", "HashMap");
+
+        CompletionList humps = CompletionList.copy(list, "AL");
+        assertEquals(1, humps.getItems().size());
+        assertEquals(CompletionPrefixMatcher.MatchLevel.PARTIAL_MATCH,
+                humps.getItems().get(0).getMatchLevel());
+    }
+
+    private static CompletionList create(String prefix, String... labels) {
+        CompletionList.Builder builder = CompletionList.builder(prefix);
+        for (String label : labels) {
+            CompletionItem item = new CompletionItem(label);
+            item.setSortText("");
+            builder.addItem(item);
+        }
+        return builder.build();
+    }
+
+    private static List<String> labels(CompletionList list) {
+        List<String> labels = new ArrayList<>();
+        for (CompletionItem item : list.getItems()) {
+            labels.add(item.getLabel());
+        }
+        return labels;
+    }
+}
@@ -0,0 +1,85 @@
+package com.tyron.completion.progress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveExecutorTest {
+
+    @Test
+    public void testInteractiveTasksRunFirst() throws InterruptedException {
+        AdaptiveExecutor executor = new AdaptiveExecutor(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        started.await();
+
+        executor.execute(() -> {
+            order.add("index");
+            finished.countDown();
+        }, AdaptiveExecutor.Priority.BACKGROUND);
+        executor.execute(() -> {
+            order.add("complete");
+            finished.countDown();
+        }, AdaptiveExecutor.Priority.INTERACTIVE);
+        executor.execute(() -> {
+            order.add("index2");
+            finished.countDown();
+        }, AdaptiveExecutor.Priority.BACKGROUND);
+        executor.execute(() -> {
+            order.add("hover");
+            finished.countDown();
+        }, AdaptiveExecutor.Priority.INTERACTIVE);
+        release.countDown();
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("complete", "hover", "index", "index2"), order);
+        assertEquals(2, executor.getTaskCount(AdaptiveExecutor.Priority.INTERACTIVE));
+        assertEquals(3, executor.getTaskCount(AdaptiveExecutor.Priority.BACKGROUND));
+        assertTrue(executor.getQueueWaitTime(AdaptiveExecutor.Priority.BACKGROUND,
+                TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testBackgroundTasksLeaveAThreadForInteractiveTasks() throws InterruptedException {
+        AdaptiveExecutor executor = new AdaptiveExecutor(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch backgroundStarted = new CountDownLatch(2);
+        CountDownLatch interactiveFinished = new CountDownLatch(1);
+
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                backgroundStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }, AdaptiveExecutor.Priority.BACKGROUND);
+        }
+        executor.execute(interactiveFinished::countDown, AdaptiveExecutor.Priority.INTERACTIVE);
+
+        assertTrue(interactiveFinished.await(10, TimeUnit.SECONDS));
+        // the second background task waits for the first one
+        assertEquals(1, backgroundStarted.getCount());
+        release.countDown();
+        assertTrue(backgroundStarted.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>
@@ -48,8 +49,17 @@ public class ComparableVersion
 
     private static final int MAX_LONGITEM_LENGTH = 18;
 
+    /**
+     * Upper bound of the number of parsed versions kept by {@link #of(String)}
+     */
+    private static final int MAX_CACHED_VERSIONS = 4096;
+
+    private static final ConcurrentHashMap<String, ComparableVersion> CACHE = new ConcurrentHashMap<>();
+
     private String value;
 
+    private boolean shared;
+
     private String canonical;
 
     private ListItem items;
@@ -604,9 +614,50 @@ public class ComparableVersion
         parseVersion( version );
     }
 
+    /**
+     * Returns the parsed version of the given string. Versions are memoized, parsing the same
+     * string again returns the same instance. The returned instance is shared and cannot be
+     * parsed again with {@link #parseVersion(String)}.
+     */
+    public static ComparableVersion of( String version )
+    {
+        ComparableVersion cached = CACHE.get( version );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        if ( CACHE.size() >= MAX_CACHED_VERSIONS )
+        {
+            // versions in a dependency graph are few and repeated, starting over is cheaper
+            // than tracking the least recently used ones
+            CACHE.clear();
+        }
+        ComparableVersion parsed = new ComparableVersion( version );
+        parsed.shared = true;
+        ComparableVersion previous = CACHE.putIfAbsent( version, parsed );
+        return previous != null ? previous : parsed;
+    }
+
+    /**
+     * Compares two version strings using the memoized versions of {@link #of(String)}.
+     */
+    public static int compare( String first, String second )
+    {
+        if ( first.equals( second ) )
+        {
+            return 0;
+        }
+        return of( first ).compareTo( of( second ) );
+    }
+
     @SuppressWarnings( "checkstyle:innerassignment" )
     public final void parseVersion( String version )
     {
+        if ( shared )
+        {
+            throw new UnsupportedOperationException( "Shared versions cannot be parsed again" );
+        }
         this.value = version;
 
         items = new ListItem();
@@ -1,33 +1,130 @@
 package com.tyron.resolver;
 
-import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.tyron.common.logging.IdeLog;
 import com.tyron.resolver.model.Dependency;
 import com.tyron.resolver.model.Pom;
 import com.tyron.resolver.repository.RepositoryManager;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
+/**
+ * Resolves the transitive dependencies of a list of declared dependencies.
+ *
+ * <p>The POMs of the dependency graph are fetched concurrently on a bounded executor before
+ * the graph is resolved, concurrent lookups of the same coordinates share a single request.
+ * Version conflicts are then resolved serially in declaration order, so the result does not
+ * depend on the order in which the POMs were fetched.
+ *
+ * <p>If a cache file is set, by default in the cache directory of the repository, the result
+ * of {@link #resolveDependencies(List)} is stored in it keyed by the declared dependencies,
+ * and an unchanged set of declared dependencies is answered from the file without fetching
+ * any POM. The POMs read from the cache only contain
+ * their coordinates and packaging.
+ */
 public class DependencyResolver {
 
+    private static final Logger LOG = IdeLog.getCurrentLogger(DependencyResolver.class);
+
+    private static final int CACHE_MAGIC = 0x44455052;
+    private static final int CACHE_VERSION = 1;
+
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * The name of the file in the cache directory of the repository where the resolved graph
+     * is stored by default
+     */
+    public static final String GRAPH_CACHE_FILE_NAME = "resolved-graph.bin";
+
     private final RepositoryManager repository;
     private final Map<Pom, String> resolvedPoms;
+    private final VersionIndex versionIndex;
+    private final int parallelism;
 
     private ResolveListener mListener;
+    private File mCacheFile;
+
+    /**
+     * The POMs fetched during the current resolution, only set while resolving
+     */
+    private PomFetcher mFetcher;
+    private boolean mFailed;
 
     public DependencyResolver(RepositoryManager repository) {
+        this(repository, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism the maximum number of POMs fetched at the same time
+     */
+    public DependencyResolver(RepositoryManager repository, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
         this.repository = repository;
+        this.parallelism = parallelism;
         this.resolvedPoms = new HashMap<>();
+        this.versionIndex = new VersionIndex();
+
+        File cacheDirectory = repository.getCacheDirectory();
+        if (cacheDirectory != null) {
+            mCacheFile = new File(cacheDirectory, GRAPH_CACHE_FILE_NAME);
+        }
+    }
+
+    /**
+     * @return every version of each artifact that was requested while resolving, the
+     * resolved version is the highest one unless it was declared by the user. Version
+     * ranges are resolved against it.
+     */
+    public VersionIndex getVersionIndex() {
+        return versionIndex;
     }
 
     public void setResolveListener(ResolveListener listener) {
         mListener = listener;
     }
 
+    /**
+     * Sets the file where the resolved graph is stored, null disables the cache. Defaults to
+     * {@link #GRAPH_CACHE_FILE_NAME} in the cache directory of the repository, if it has one.
+     */
+    public void setCacheFile(@Nullable File cacheFile) {
+        mCacheFile = cacheFile;
+    }
+
     public interface ResolveListener {
         void onResolve(String message);
 
@@ -35,24 +132,54 @@ public class DependencyResolver {
     }
 
     public List<Pom> resolveDependencies(List<Dependency> declaredDependencies) {
-        List<Pom> poms = new ArrayList<>();
-        for (Dependency dependency : declaredDependencies) {
+        String key = getCacheKey(declaredDependencies);
+        List<Pom> cached = readCache(key);
+        if (cached != null) {
             if (mListener != null) {
-                mListener.onResolve("Getting POM: " + dependency);
+                mListener.onResolve("Dependencies are up to date");
             }
+            return cached;
+        }
 
-            Pom pom = repository.getPom(dependency.toString());
-            if (pom != null) {
-                pom.setExcludes(dependency.getExcludes());
-                pom.setUserDefined(true);
-                poms.add(pom);
-            } else {
+        ExecutorService executor = newExecutor();
+        mFetcher = new PomFetcher(repository, executor);
+        mFailed = false;
+        try {
+            // request all the declared POMs first so they are fetched concurrently
+            List<CompletableFuture<Pom>> futures = new ArrayList<>(declaredDependencies.size());
+            for (Dependency dependency : declaredDependencies) {
                 if (mListener != null) {
-                    mListener.onFailure("Unable to retrieve POM of " + dependency);
+                    mListener.onResolve("Getting POM: " + dependency);
+                }
+                futures.add(mFetcher.fetch(dependency.toString()));
+            }
+
+            List<Pom> poms = new ArrayList<>();
+            for (int i = 0; i < declaredDependencies.size(); i++) {
+                Dependency dependency = declaredDependencies.get(i);
+                Pom pom = mFetcher.await(futures.get(i));
+                if (pom != null) {
+                    pom.setExcludes(dependency.getExcludes());
+                    pom.setUserDefined(true);
+                    poms.add(pom);
+                } else {
+                    mFailed = true;
+                    if (mListener != null) {
+                        mListener.onFailure("Unable to retrieve POM of " + dependency);
+                    }
                 }
             }
+
+            List<Pom> resolved = resolveInternal(poms);
+            if (!mFailed) {
+                writeCache(key, resolved);
+            }
+            repository.saveCache();
+            return resolved;
+        } finally {
+            mFetcher = null;
+            executor.shutdownNow();
         }
-        return resolve(poms);
     }
 
     /**
@@ -60,13 +187,91 @@ public class DependencyResolver {
      * the conflicting libraries
      */
     public List<Pom> resolve(List<Pom> declaredDependencies) {
+        if (mFetcher != null) {
+            return resolveInternal(declaredDependencies);
+        }
+
+        ExecutorService executor = newExecutor();
+        mFetcher = new PomFetcher(repository, executor);
+        try {
+            return resolveInternal(declaredDependencies);
+        } finally {
+            mFetcher = null;
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Pom> resolveInternal(List<Pom> declaredDependencies) {
+        prefetch(declaredDependencies);
         for (Pom pom : declaredDependencies) {
             resolve(pom);
         }
         return new ArrayList<>(resolvedPoms.keySet());
     }
 
+    /**
+     * Walks the dependency graph breadth first and fetches the POMs of every level
+     * concurrently, so that {@link #resolve(Pom)} finds them already fetched.
+     *
+     * <p>Only the subtree of the highest version of an artifact seen so far is walked, the
+     * subtrees of lower versions usually lose conflict resolution. If a lower version wins
+     * after all, e.g. because the higher one was excluded, {@link #resolve(Pom)} fetches its
+     * dependencies when it gets to them.
+     */
+    private void prefetch(List<Pom> declaredDependencies) {
+        Deque<Pending> pending = new ArrayDeque<>();
+        Set<String> visited = new HashSet<>();
+        Map<String, String> highest = new HashMap<>();
+        for (Pom pom : declaredDependencies) {
+            visited.add(pom.getDeclarationString());
+            pending.add(new Pending(CompletableFuture.completedFuture(pom), pom.getExcludes(),
+                    null, null));
+        }
+
+        while (!pending.isEmpty()) {
+            Pending next = pending.poll();
+            if (next.artifact != null
+                && !next.version.equals(highest.get(next.artifact))) {
+                // a higher version was requested while this one was being fetched
+                continue;
+            }
+            Pom pom = mFetcher.await(next.future);
+            if (pom == null) {
+                continue;
+            }
+            for (Dependency dependency : pom.getDependencies()) {
+                if ("test".equals(dependency.getScope())) {
+                    continue;
+                }
+                if (isExcluded(next.excludes, dependency)) {
+                    continue;
+                }
+                String declaration = getDeclaration(dependency);
+                String artifact = dependency.getGroupId() + ":" + dependency.getArtifactId();
+                String version = declaration.substring(artifact.length() + 1);
+                String known = highest.get(artifact);
+                if (known != null && getHigherVersion(known, version) >= 0) {
+                    continue;
+                }
+                highest.put(artifact, version);
+                if (dependency.getGroupId() != null && dependency.getArtifactId() != null) {
+                    versionIndex.add(dependency.getGroupId(), dependency.getArtifactId(),
+                            version);
+                }
+                if (visited.add(declaration)) {
+                    pending.add(new Pending(mFetcher.fetch(declaration), next.excludes,
+                            artifact, version));
+                }
+            }
+        }
+    }
+
     private void resolve(Pom pom) {
+        if (pom.getGroupId() != null && pom.getArtifactId() != null
+            && pom.getVersionName() != null) {
+            versionIndex.add(pom.getGroupId(), pom.getArtifactId(), pom.getVersionName());
+        }
+
         if (resolvedPoms.containsKey(pom)) {
             if (pom.isUserDefined()) {
                 resolvedPoms.remove(pom);
@@ -96,36 +301,13 @@ public class DependencyResolver {
                 continue;
             }
 
-            boolean excluded = excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
-                if (ex == null) {
-                    return false;
-                }
-                if (ex.getGroupId() == null) {
-                    return false;
-                }
-                if (!ex.getGroupId().equals(dependency.getGroupId())) {
-                    return false;
-                }
-
-                if (ex.getArtifactId() == null) {
-                    return false;
-                }
-
-                if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
-                    return false;
-                }
-                if (TextUtils.isEmpty(ex.getVersionName())) {
-                    return true;
-                }
-                return ex.getVersionName().equals(dependency.getVersionName());
-            });
-
-            if (excluded) {
+            if (isExcluded(excludes, dependency)) {
                 continue;
             }
 
-            Pom resolvedPom = repository.getPom(dependency.toString());
+            Pom resolvedPom = mFetcher.await(mFetcher.fetch(getDeclaration(dependency)));
             if (resolvedPom == null) {
+                mFailed = true;
                 if (mListener != null) {
                     mListener.onFailure("Failed to resolve " + dependency);
                 }
@@ -139,9 +321,197 @@ public class DependencyResolver {
         resolvedPoms.put(pom, pom.getVersionName());
     }
 
+    /**
+     * @return the coordinates to fetch for the dependency. A version range is resolved to the
+     * highest version within it that is already known for the artifact, so that the range
+     * doesn't pull in another version of an artifact that is in the graph. Otherwise the
+     * first version of the range is used.
+     */
+    private String getDeclaration(Dependency dependency) {
+        String range = dependency.getVersionRange();
+        if (range != null && dependency.getGroupId() != null
+            && dependency.getArtifactId() != null) {
+            String known;
+            try {
+                known = versionIndex.getHighest(dependency.getGroupId(),
+                        dependency.getArtifactId(), range);
+            } catch (IllegalArgumentException e) {
+                known = null;
+            }
+            if (known != null) {
+                return dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + known;
+            }
+        }
+        return dependency.toString();
+    }
+
+    private static boolean isExcluded(List<Dependency> excludes, Dependency dependency) {
+        return excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
+            if (ex.getGroupId() == null) {
+                return false;
+            }
+            if (!ex.getGroupId().equals(dependency.getGroupId())) {
+                return false;
+            }
+
+            if (ex.getArtifactId() == null) {
+                return false;
+            }
+
+            if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
+                return false;
+            }
+            // getVersionName() never returns null
+            if (ex.getVersionName().isEmpty()) {
+                return true;
+            }
+            return ex.getVersionName().equals(dependency.getVersionName());
+        });
+    }
+
     private int getHigherVersion(String firstVersion, String secondVersion) {
-        ComparableVersion firstComparableVersion = new ComparableVersion(firstVersion);
-        ComparableVersion secondComparableVersion = new ComparableVersion(secondVersion);
-        return firstComparableVersion.compareTo(secondComparableVersion);
+        return ComparableVersion.compare(firstVersion, secondVersion);
+    }
+
+    private ExecutorService newExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "DependencyResolver-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The key of the declared dependencies, independent of their order
+     */
+    private static String getCacheKey(List<Dependency> declaredDependencies) {
+        List<String> declarations = new ArrayList<>(declaredDependencies.size());
+        for (Dependency dependency : declaredDependencies) {
+            StringBuilder builder = new StringBuilder(dependency.toString());
+            for (Dependency exclude : dependency.getExcludes()) {
+                builder.append(";-")
+                        .append(exclude.getGroupId())
+                        .append(':')
+                        .append(exclude.getArtifactId());
+            }
+            declarations.add(builder.toString());
+        }
+        Collections.sort(declarations);
+        return Hashing.sha256()
+                .hashString(String.join("\n", declarations), StandardCharsets.UTF_8)
+                .toString();
+    }
+
+    @Nullable
+    private List<Pom> readCache(String key) {
+        if (mCacheFile == null || !mCacheFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mCacheFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                return null;
+            }
+            if (!key.equals(in.readUTF())) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Pom> poms = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Pom pom = Pom.valueOf(Strings.emptyToNull(in.readUTF()),
+                        Strings.emptyToNull(in.readUTF()), Strings.emptyToNull(in.readUTF()));
+                pom.setPackaging(Strings.emptyToNull(in.readUTF()));
+                pom.setUserDefined(in.readBoolean());
+                poms.add(pom);
+            }
+            return poms;
+        } catch (IOException e) {
+            LOG.warning("Unable to read dependency cache " + mCacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCache(String key, List<Pom> poms) {
+        if (mCacheFile == null) {
+            return;
+        }
+        File temp = new File(mCacheFile.getPath() + ".tmp");
+        try {
+            File parent = mCacheFile.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create directory " + parent);
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(CACHE_MAGIC);
+                out.writeInt(CACHE_VERSION);
+                out.writeUTF(key);
+                out.writeInt(poms.size());
+                for (Pom pom : poms) {
+                    out.writeUTF(Strings.nullToEmpty(pom.getGroupId()));
+                    out.writeUTF(Strings.nullToEmpty(pom.getArtifactId()));
+                    out.writeUTF(Strings.nullToEmpty(pom.getVersionName()));
+                    out.writeUTF(Strings.nullToEmpty(pom.getPackaging()));
+                    out.writeBoolean(pom.isUserDefined());
+                }
+            }
+            Files.move(temp.toPath(), mCacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.warning("Unable to write dependency cache " + mCacheFile + ": " + e.getMessage());
+        }
+    }
+
+    private static class Pending {
+        final CompletableFuture<Pom> future;
+        final List<Dependency> excludes;
+        /**
+         * The {@code groupId:artifactId} and version of a transitive dependency, null for
+         * the declared dependencies which are always walked
+         */
+        final String artifact;
+        final String version;
+
+        Pending(CompletableFuture<Pom> future, List<Dependency> excludes,
+                String artifact, String version) {
+            this.future = future;
+            this.excludes = excludes;
+            this.artifact = artifact;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Fetches POMs on an executor, each coordinate is only requested once from the
+     * repository no matter how many times and from how many threads it is fetched.
+     */
+    private static class PomFetcher {
+
+        private final RepositoryManager mRepository;
+        private final ExecutorService mExecutor;
+        private final Map<String, CompletableFuture<Pom>> mInFlight = new ConcurrentHashMap<>();
+
+        PomFetcher(RepositoryManager repository, ExecutorService executor) {
+            mRepository = repository;
+            mExecutor = executor;
+        }
+
+        CompletableFuture<Pom> fetch(@NonNull String declaration) {
+            return mInFlight.computeIfAbsent(declaration, it ->
+                    CompletableFuture.supplyAsync(() -> mRepository.getPom(it), mExecutor));
+        }
+
+        @Nullable
+        Pom await(CompletableFuture<Pom> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                LOG.warning("Failed to fetch POM: " + e.getCause());
+                return null;
+            }
+        }
     }
 }
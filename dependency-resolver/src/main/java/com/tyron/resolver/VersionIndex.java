@@ -0,0 +1,219 @@
+package com.tyron.resolver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps the known versions of each artifact sorted, so the highest version and the versions
+ * within a range can be queried without parsing and comparing the version strings again.
+ *
+ * <p>Ranges use the maven syntax, e.g. {@code [1.0,2.0)}, {@code (,1.0]}, {@code [1.5]} or
+ * a union such as {@code (,1.0],[1.2,)}. A plain version only matches itself.
+ */
+public class VersionIndex {
+
+    private final Map<String, NavigableMap<ComparableVersion, String>> mVersions =
+            new HashMap<>();
+
+    /**
+     * Adds the version of the artifact, versions that are equal to a known version, such as
+     * {@code 1.0} and {@code 1.0.0}, are only stored once.
+     */
+    public synchronized void add(@NonNull String groupId, @NonNull String artifactId,
+                                 @NonNull String version) {
+        String key = groupId + ":" + artifactId;
+        NavigableMap<ComparableVersion, String> versions = mVersions.get(key);
+        if (versions == null) {
+            versions = new TreeMap<>();
+            mVersions.put(key, versions);
+        }
+        ComparableVersion comparable = ComparableVersion.of(version);
+        if (!versions.containsKey(comparable)) {
+            versions.put(comparable, version);
+        }
+    }
+
+    /**
+     * @return the highest known version of the artifact, or null if none is known
+     */
+    @Nullable
+    public synchronized String getHighest(@NonNull String groupId, @NonNull String artifactId) {
+        NavigableMap<ComparableVersion, String> versions = get(groupId, artifactId);
+        return versions.isEmpty() ? null : versions.lastEntry().getValue();
+    }
+
+    /**
+     * @return the highest known version of the artifact within the range, or null if
+     * no known version satisfies it
+     */
+    @Nullable
+    public synchronized String getHighest(@NonNull String groupId, @NonNull String artifactId,
+                                          @NonNull String range) {
+        NavigableMap<ComparableVersion, String> versions = get(groupId, artifactId);
+        Map.Entry<ComparableVersion, String> highest = null;
+        for (Interval interval : parseRange(range)) {
+            Map.Entry<ComparableVersion, String> candidate = interval.highest(versions);
+            if (candidate != null
+                && (highest == null || candidate.getKey().compareTo(highest.getKey()) > 0)) {
+                highest = candidate;
+            }
+        }
+        return highest == null ? null : highest.getValue();
+    }
+
+    /**
+     * @return the known versions of the artifact from lowest to highest
+     */
+    @NonNull
+    public synchronized List<String> getVersions(@NonNull String groupId,
+                                                 @NonNull String artifactId) {
+        return new ArrayList<>(get(groupId, artifactId).values());
+    }
+
+    /**
+     * @return the known versions of the artifact within the range from lowest to highest
+     */
+    @NonNull
+    public synchronized List<String> getVersions(@NonNull String groupId,
+                                                 @NonNull String artifactId,
+                                                 @NonNull String range) {
+        NavigableMap<ComparableVersion, String> versions = get(groupId, artifactId);
+        NavigableMap<ComparableVersion, String> result = new TreeMap<>();
+        for (Interval interval : parseRange(range)) {
+            result.putAll(interval.subMap(versions));
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    public synchronized void clear() {
+        mVersions.clear();
+    }
+
+    private NavigableMap<ComparableVersion, String> get(String groupId, String artifactId) {
+        NavigableMap<ComparableVersion, String> versions =
+                mVersions.get(groupId + ":" + artifactId);
+        return versions == null ? Collections.emptyNavigableMap() : versions;
+    }
+
+    /**
+     * @return whether the version is a range rather than a single version
+     */
+    public static boolean isRange(@NonNull String version) {
+        String trimmed = version.trim();
+        return trimmed.startsWith("[") || trimmed.startsWith("(");
+    }
+
+    static List<Interval> parseRange(String range) {
+        String spec = range.replace(" ", "");
+        if (!isRange(spec)) {
+            ComparableVersion version = ComparableVersion.of(spec);
+            return Collections.singletonList(new Interval(version, true, version, true));
+        }
+
+        List<Interval> intervals = new ArrayList<>(1);
+        int index = 0;
+        while (index < spec.length()) {
+            char open = spec.charAt(index);
+            if (open == ',') {
+                index++;
+                continue;
+            }
+            if (open != '[' && open != '(') {
+                throw new IllegalArgumentException("Invalid version range: " + range);
+            }
+            int close = index + 1;
+            while (close < spec.length() && spec.charAt(close) != ']'
+                   && spec.charAt(close) != ')') {
+                close++;
+            }
+            if (close == spec.length()) {
+                throw new IllegalArgumentException("Unclosed version range: " + range);
+            }
+
+            boolean lowerInclusive = open == '[';
+            boolean upperInclusive = spec.charAt(close) == ']';
+            String contents = spec.substring(index + 1, close);
+            int comma = contents.indexOf(',');
+            if (comma == -1) {
+                if (!lowerInclusive || !upperInclusive || contents.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid version range: " + range);
+                }
+                ComparableVersion version = ComparableVersion.of(contents);
+                intervals.add(new Interval(version, true, version, true));
+            } else {
+                String lower = contents.substring(0, comma);
+                String upper = contents.substring(comma + 1);
+                intervals.add(new Interval(
+                        lower.isEmpty() ? null : ComparableVersion.of(lower), lowerInclusive,
+                        upper.isEmpty() ? null : ComparableVersion.of(upper), upperInclusive));
+            }
+            index = close + 1;
+        }
+        return intervals;
+    }
+
+    /**
+     * A range of versions, a null bound is unbounded
+     */
+    static class Interval {
+        final ComparableVersion lower;
+        final boolean lowerInclusive;
+        final ComparableVersion upper;
+        final boolean upperInclusive;
+
+        Interval(ComparableVersion lower, boolean lowerInclusive,
+                 ComparableVersion upper, boolean upperInclusive) {
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        boolean contains(ComparableVersion version) {
+            if (lower != null) {
+                int result = version.compareTo(lower);
+                if (result < 0 || (result == 0 && !lowerInclusive)) {
+                    return false;
+                }
+            }
+            if (upper != null) {
+                int result = version.compareTo(upper);
+                return result < 0 || (result == 0 && upperInclusive);
+            }
+            return true;
+        }
+
+        Map.Entry<ComparableVersion, String> highest(
+                NavigableMap<ComparableVersion, String> versions) {
+            Map.Entry<ComparableVersion, String> entry;
+            if (upper == null) {
+                entry = versions.lastEntry();
+            } else if (upperInclusive) {
+                entry = versions.floorEntry(upper);
+            } else {
+                entry = versions.lowerEntry(upper);
+            }
+            return entry != null && contains(entry.getKey()) ? entry : null;
+        }
+
+        NavigableMap<ComparableVersion, String> subMap(
+                NavigableMap<ComparableVersion, String> versions) {
+            NavigableMap<ComparableVersion, String> result = versions;
+            if (lower != null) {
+                result = result.tailMap(lower, lowerInclusive);
+            }
+            if (upper != null) {
+                result = result.headMap(upper, upperInclusive);
+            }
+            return result;
+        }
+    }
+}
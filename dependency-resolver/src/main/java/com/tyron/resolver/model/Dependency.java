@@ -1,6 +1,9 @@
 package com.tyron.resolver.model;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.resolver.VersionIndex;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -79,6 +82,18 @@ public class Dependency {
         return temp;
     }
 
+    /**
+     * @return the version as it was declared if it is a range, e.g. {@code [1.0,2.0)},
+     * null otherwise. {@link #getVersionName()} returns the first version of the range.
+     */
+    @Nullable
+    public String getVersionRange() {
+        if (versionName == null || !VersionIndex.isRange(versionName)) {
+            return null;
+        }
+        return versionName.trim();
+    }
+
     public void setVersionName(String versionName) {
         this.versionName = versionName;
     }
@@ -159,6 +159,10 @@ public class Pom {
         return properties.get(key);
     }
 
+    public Map<String, String> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
     @Nullable
     public Pom getParent() {
         return parent;
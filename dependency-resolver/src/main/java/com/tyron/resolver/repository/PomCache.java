@@ -0,0 +1,341 @@
+package com.tyron.resolver.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.tyron.common.logging.IdeLog;
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory cache of parsed {@link Pom} files keyed by {@code groupId:artifactId:version},
+ * which can be written to and read from a compact binary file.
+ *
+ * <p>Group ids, artifact ids and versions are interned since the same strings are repeated
+ * across the dependencies of hundreds of POMs. Each entry remembers the size and modification
+ * time of the file it was parsed from, so a POM on disk only has to be parsed again when it has
+ * changed.
+ *
+ * <p>Only what is read from the POM file is stored, the excludes and the user defined flag
+ * set during dependency resolution are not.
+ *
+ * <p>File format, see {@link DataOutputStream} for the encoding of each value:
+ * <pre>
+ *     int magic, int version, int pomCount
+ *     pomCount times:
+ *         String key, long sourceSize, long sourceModified, String? groupId, String? artifactId,
+ *         String? version, String? packaging, String? parentKey,
+ *         int propertyCount, propertyCount times: String key, String value
+ *         int dependencyCount, dependencyCount times: Dependency
+ *         int managedCount, managedCount times: Dependency
+ *     Dependency:
+ *         String? groupId, String? artifactId, String? version, String? scope, String? type,
+ *         int excludeCount, excludeCount times: String? groupId, String? artifactId
+ * </pre>
+ * where {@code String?} is a boolean telling whether the string that follows is present.
+ */
+public class PomCache {
+
+    private static final Logger LOG = IdeLog.getCurrentLogger(PomCache.class);
+
+    private static final int MAGIC = 0x504F4D43;
+    private static final int VERSION = 2;
+
+    /**
+     * The source size and modification time of POMs that were not read from a local file
+     */
+    public static final long UNKNOWN_SIZE = -1;
+    public static final long UNKNOWN_MODIFIED = -1;
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    private final Map<String, Entry> mEntries = new ConcurrentHashMap<>();
+    private volatile boolean mDirty;
+
+    /**
+     * @param key the coordinates in the format {@code groupId:artifactId:version}
+     * @return the parsed POM or null if it is not cached
+     */
+    @Nullable
+    public Pom get(@NonNull String key) {
+        Entry entry = mEntries.get(key);
+        return entry == null ? null : entry.pom;
+    }
+
+    /**
+     * @return the parsed POM if it was parsed from a file of the given size and modification time
+     */
+    @Nullable
+    public Pom get(@NonNull String key, long sourceSize, long sourceModified) {
+        Entry entry = mEntries.get(key);
+        if (entry == null || entry.sourceSize != sourceSize ||
+            entry.sourceModified != sourceModified) {
+            return null;
+        }
+        return entry.pom;
+    }
+
+    public void put(@NonNull String key, @NonNull Pom pom) {
+        put(key, pom, UNKNOWN_SIZE, UNKNOWN_MODIFIED);
+    }
+
+    /**
+     * Caches the parsed POM, its strings are interned.
+     *
+     * @param sourceSize     the size of the file the POM was parsed from
+     * @param sourceModified the modification time of the file the POM was parsed from
+     */
+    public void put(@NonNull String key, @NonNull Pom pom, long sourceSize, long sourceModified) {
+        intern(pom);
+        mEntries.put(intern(key), new Entry(pom, sourceSize, sourceModified));
+        mDirty = true;
+    }
+
+    public boolean contains(@NonNull String key) {
+        return mEntries.containsKey(key);
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public void clear() {
+        mDirty |= !mEntries.isEmpty();
+        mEntries.clear();
+    }
+
+    /**
+     * @return whether POMs have been added since the last load or save
+     */
+    public boolean isDirty() {
+        return mDirty;
+    }
+
+    /**
+     * Adds the POMs stored in the file to this cache. A missing, outdated or corrupted
+     * file is ignored.
+     *
+     * @return the number of POMs read
+     */
+    public synchronized int load(@NonNull File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        Map<String, Entry> entries = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return 0;
+            }
+
+            int count = in.readInt();
+            // POMs of different versions are equal, use their identity
+            Map<Pom, String> parents = new IdentityHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = intern(in.readUTF());
+                long sourceSize = in.readLong();
+                long sourceModified = in.readLong();
+                Pom pom = new Pom();
+                pom.setGroupId(intern(readString(in)));
+                pom.setArtifactId(intern(readString(in)));
+                pom.setVersionName(intern(readString(in)));
+                pom.setPackaging(readString(in));
+                String parent = readString(in);
+                if (parent != null) {
+                    parents.put(pom, parent);
+                }
+                int propertyCount = in.readInt();
+                for (int j = 0; j < propertyCount; j++) {
+                    pom.addProperty(in.readUTF(), in.readUTF());
+                }
+                pom.setDependencies(readDependencies(in));
+                pom.setManagedDependencies(readDependencies(in));
+                entries.put(key, new Entry(pom, sourceSize, sourceModified));
+            }
+
+            // parents are written by reference, link them once every POM is read
+            for (Map.Entry<Pom, String> it : parents.entrySet()) {
+                Entry parent = entries.get(it.getValue());
+                if (parent == null) {
+                    parent = mEntries.get(it.getValue());
+                }
+                if (parent != null) {
+                    it.getKey().setParent(parent.pom);
+                }
+            }
+        } catch (EOFException e) {
+            LOG.warning("POM cache " + file + " is truncated, ignoring it.");
+            return 0;
+        } catch (IOException e) {
+            LOG.warning("Unable to read POM cache " + file + ": " + e.getMessage());
+            return 0;
+        }
+
+        for (Map.Entry<String, Entry> it : entries.entrySet()) {
+            mEntries.putIfAbsent(it.getKey(), it.getValue());
+        }
+        return entries.size();
+    }
+
+    /**
+     * Writes every cached POM to the file, replacing its contents.
+     */
+    public synchronized void save(@NonNull File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+
+        // POMs only know their parent instance, look up its key by identity
+        Map<Pom, String> keys = new IdentityHashMap<>();
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(mEntries.entrySet());
+        for (Map.Entry<String, Entry> it : entries) {
+            keys.put(it.getValue().pom, it.getKey());
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> it : entries) {
+                Pom pom = it.getValue().pom;
+                out.writeUTF(it.getKey());
+                out.writeLong(it.getValue().sourceSize);
+                out.writeLong(it.getValue().sourceModified);
+                writeString(out, pom.getGroupId());
+                writeString(out, pom.getArtifactId());
+                writeString(out, pom.getVersionName());
+                writeString(out, pom.getPackaging());
+                Pom parentPom = pom.getParent();
+                String parentKey = null;
+                if (parentPom != null) {
+                    parentKey = keys.get(parentPom);
+                    if (parentKey == null) {
+                        parentKey = parentPom.getDeclarationString();
+                    }
+                }
+                writeString(out, parentKey);
+
+                Map<String, String> properties = pom.getProperties();
+                out.writeInt(properties.size());
+                for (Map.Entry<String, String> property : properties.entrySet()) {
+                    out.writeUTF(property.getKey());
+                    out.writeUTF(property.getValue());
+                }
+                writeDependencies(out, pom.getDependencies());
+                writeDependencies(out, pom.getManagedDependencies());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        mDirty = false;
+    }
+
+    private static void intern(Pom pom) {
+        pom.setGroupId(intern(pom.getGroupId()));
+        pom.setArtifactId(intern(pom.getArtifactId()));
+        pom.setVersionName(intern(pom.getVersionName()));
+        for (Dependency dependency : pom.getDependencies()) {
+            intern(dependency);
+        }
+        for (Dependency dependency : pom.getManagedDependencies()) {
+            intern(dependency);
+        }
+    }
+
+    private static void intern(Dependency dependency) {
+        dependency.setGroupId(intern(dependency.getGroupId()));
+        dependency.setArtifactId(intern(dependency.getArtifactId()));
+        dependency.setScope(intern(dependency.getScope()));
+    }
+
+    private static String intern(@Nullable String string) {
+        return string == null ? null : STRINGS.intern(string);
+    }
+
+    private static List<Dependency> readDependencies(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Dependency> dependencies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId(intern(readString(in)));
+            dependency.setArtifactId(intern(readString(in)));
+            dependency.setVersionName(intern(readString(in)));
+            dependency.setScope(intern(readString(in)));
+            dependency.setType(readString(in));
+            int excludeCount = in.readInt();
+            for (int j = 0; j < excludeCount; j++) {
+                Dependency exclude = new Dependency();
+                exclude.setGroupId(intern(readString(in)));
+                exclude.setArtifactId(intern(readString(in)));
+                dependency.addExclude(exclude);
+            }
+            dependencies.add(dependency);
+        }
+        return dependencies;
+    }
+
+    private static void writeDependencies(DataOutputStream out, List<Dependency> dependencies)
+            throws IOException {
+        out.writeInt(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            writeString(out, dependency.getGroupId());
+            writeString(out, dependency.getArtifactId());
+            writeString(out, dependency.getVersionName());
+            writeString(out, dependency.getScope());
+            writeString(out, dependency.getType());
+            out.writeInt(dependency.getExcludes().size());
+            for (Dependency exclude : dependency.getExcludes()) {
+                writeString(out, exclude.getGroupId());
+                writeString(out, exclude.getArtifactId());
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String string)
+            throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static class Entry {
+        final Pom pom;
+        final long sourceSize;
+        final long sourceModified;
+
+        Entry(Pom pom, long sourceSize, long sourceModified) {
+            this.pom = pom;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+        }
+    }
+}
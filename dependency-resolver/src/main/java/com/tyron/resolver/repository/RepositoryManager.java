@@ -26,6 +26,14 @@ public interface RepositoryManager {
 
     void setCacheDirectory(File directory);
 
+    /**
+     * @return the directory set by {@link #setCacheDirectory(File)}, null if there is none
+     */
+    @Nullable
+    default File getCacheDirectory() {
+        return null;
+    }
+
     /**
      * Adds a repository to search for
      * @param name the name of the cache directory
@@ -40,4 +48,12 @@ public interface RepositoryManager {
     void addRepository(@NonNull Repository repository);
 
     void initialize();
+
+    /**
+     * Persists the POMs parsed so far so that they do not have to be parsed again in
+     * the next session. Does nothing by default.
+     */
+    default void saveCache() {
+
+    }
 }
@@ -20,10 +20,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.JarFile;
 import java.util.logging.Logger;
 import java.util.zip.ZipFile;
@@ -36,13 +38,25 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     private File cacheDir;
     private final List<Repository> repositories;
-    private final List<Pom> pomFiles;
+    /**
+     * Parsed POMs keyed by {@code groupId:artifactId:version}, persisted across sessions
+     */
+    private final PomCache pomFiles;
+    /**
+     * Locks of the POMs that are being fetched, so that concurrent lookups of the
+     * same coordinates only download and parse it once
+     */
+    private final Map<String, Object> pomLocks;
 
     public RepositoryManagerImpl() {
-        this.repositories = new ArrayList<>();
-        this.pomFiles = new ArrayList<>();
+        this.repositories = new CopyOnWriteArrayList<>();
+        this.pomFiles = new PomCache();
+        this.pomLocks = new ConcurrentHashMap<>();
     }
 
+    /**
+     * This method is safe to call from multiple threads.
+     */
     @Override
     @Nullable
     public Pom getPom(String declaration) {
@@ -50,19 +64,18 @@ public class RepositoryManagerImpl implements RepositoryManager {
         if (pomNames == null) {
             return null;
         }
-        for (Pom pom : pomFiles) {
-            if (!pomNames[0].equals(pom.getGroupId())) {
-                continue;
-            }
-            if (!pomNames[1].equals(pom.getArtifactId())) {
-                continue;
-            }
-            if (!pomNames[2].equals(pom.getVersionName())) {
-                continue;
-            }
+        String key = pomNames[0] + ":" + pomNames[1] + ":" + pomNames[2];
+        Pom pom = pomFiles.get(key);
+        if (pom != null) {
             return pom;
         }
-        return getPomFromUrls(pomNames);
+        synchronized (pomLocks.computeIfAbsent(key, k -> new Object())) {
+            pom = pomFiles.get(key);
+            if (pom != null) {
+                return pom;
+            }
+            return getPomFromUrls(pomNames);
+        }
     }
 
     private Pom getPomFromUrls(String[] names) {
@@ -72,10 +85,13 @@ public class RepositoryManagerImpl implements RepositoryManager {
             try {
                 contents = CharStreams.toString(new InputStreamReader(is));
                 Pom parsed = new PomParser(this).parse(contents);
+                if (parsed == null) {
+                    return null;
+                }
                 parsed.setGroupId(names[0]);
                 parsed.setArtifactId(names[1]);
                 parsed.setVersionName(names[2]);
-                pomFiles.add(parsed);
+                pomFiles.put(parsed.getDeclarationString(), parsed);
                 return parsed;
             } catch (IOException | XmlPullParserException | SAXException e) {
                 String message = "Failed to parse input stream.\n" +
@@ -187,6 +203,12 @@ public class RepositoryManagerImpl implements RepositoryManager {
         this.cacheDir = directory;
     }
 
+    @Nullable
+    @Override
+    public File getCacheDirectory() {
+        return cacheDir;
+    }
+
     @Override
     public void addRepository(@NonNull Repository repository) {
         repositories.add(repository);
@@ -203,6 +225,10 @@ public class RepositoryManagerImpl implements RepositoryManager {
             throw new IllegalStateException("Cache directory is not set.");
         }
 
+        long start = System.currentTimeMillis();
+        int cached = pomFiles.load(getPomCacheFile());
+        int parsedCount = 0;
+
         for (Repository repository : repositories) {
             repository.setCacheDirectory(cacheDir);
 
@@ -216,10 +242,22 @@ public class RepositoryManagerImpl implements RepositoryManager {
             // save pom files for later
             while (pomFiles.hasNext()) {
                 File pom = pomFiles.next();
+                String key = getKeyFromPath(rootDirectory, pom);
+                if (key != null && this.pomFiles.get(key, pom.length(), pom.lastModified()) != null) {
+                    continue;
+                }
+
                 PomParser parser = new PomParser(this);
                 try {
                     Pom parsed = parser.parse(pom);
-                    this.pomFiles.add(parsed);
+                    if (parsed == null) {
+                        continue;
+                    }
+                    if (key == null) {
+                        key = parsed.getDeclarationString();
+                    }
+                    this.pomFiles.put(key, parsed, pom.length(), pom.lastModified());
+                    parsedCount++;
                 } catch (XmlPullParserException | IOException | SAXException e) {
                     // ignored
                     // TODO: should the file be deleted if its corrupt?
@@ -228,5 +266,56 @@ public class RepositoryManagerImpl implements RepositoryManager {
                 }
             }
         }
+
+        sLogger.info("Loaded " + cached + " cached POMs and parsed " + parsedCount + " in " +
+                     (System.currentTimeMillis() - start) + "ms");
+        saveCache();
+    }
+
+    /**
+     * Writes the parsed POMs to the cache directory if new POMs have been parsed, so the
+     * next session does not have to parse them again.
+     */
+    @Override
+    public void saveCache() {
+        if (cacheDir == null || !pomFiles.isDirty()) {
+            return;
+        }
+        try {
+            pomFiles.save(getPomCacheFile());
+        } catch (IOException e) {
+            sLogger.warning("Unable to save POM cache: " + e.getMessage());
+        }
+    }
+
+    private File getPomCacheFile() {
+        return new File(cacheDir, "poms.bin");
+    }
+
+    /**
+     * @return the coordinates of a POM from its path in the maven layout
+     * {@code group/id/artifactId/version/artifactId-version.pom}, or null if the path
+     * does not follow it
+     */
+    @Nullable
+    private static String getKeyFromPath(File rootDirectory, File pom) {
+        File versionDir = pom.getParentFile();
+        File artifactDir = versionDir == null ? null : versionDir.getParentFile();
+        File groupDir = artifactDir == null ? null : artifactDir.getParentFile();
+        if (groupDir == null) {
+            return null;
+        }
+        String root = rootDirectory.getAbsolutePath();
+        String group = groupDir.getAbsolutePath();
+        if (group.length() <= root.length() + 1 || !group.startsWith(root)) {
+            return null;
+        }
+        String groupId = group.substring(root.length() + 1).replace(File.separatorChar, '.');
+        String version = versionDir.getName();
+        String artifactId = artifactDir.getName();
+        if (!pom.getName().equals(artifactId + "-" + version + ".pom")) {
+            return null;
+        }
+        return groupId + ":" + artifactId + ":" + version;
     }
 }
@@ -1,22 +1,40 @@
 package com.tyron.resolver;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.google.common.collect.ImmutableList;
 import com.tyron.common.TestUtil;
+import com.tyron.resolver.model.Dependency;
 import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.parser.PomParser;
+import com.tyron.resolver.repository.Repository;
 import com.tyron.resolver.repository.RepositoryManager;
 import com.tyron.resolver.repository.RepositoryManagerImpl;
 
 import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DependencyResolverTest {
 
     private final RepositoryManager repository = new RepositoryManagerImpl();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testDependencyResolution() throws IOException {
         File cacheDir = new File(TestUtil.getResourcesDirectory(), "cache");
@@ -60,4 +78,231 @@ public class DependencyResolverTest {
 
         FileUtils.forceDelete(cacheDir);
     }
+
+    @Test
+    public void testParallelResolution() throws IOException {
+        FileRepositoryManager manager = createRepository();
+        DependencyResolver resolver = new DependencyResolver(manager, 4);
+
+        List<Pom> resolved = resolver.resolveDependencies(ImmutableList.of(
+                Dependency.valueOf("test:app:1.0"),
+                Dependency.valueOf("test:lib:1.0")));
+
+        assertEquals(5, resolved.size());
+        // core 1.0 and core 2.0 are both requested, the higher version wins
+        Pom core = resolved.get(resolved.indexOf(Pom.valueOf("test", "core", "")));
+        assertEquals("2.0", core.getVersionName());
+        assertTrue(resolved.contains(Pom.valueOf("test", "annotation", "")));
+
+        // every coordinate is only requested once, even though some are shared
+        for (Map.Entry<String, AtomicInteger> entry : manager.requests.entrySet()) {
+            assertEquals(entry.getKey(), 1, entry.getValue().get());
+        }
+    }
+
+    @Test
+    public void testLosingVersionsAreNotWalked() throws IOException {
+        File root = new File(temporaryFolder.getRoot(), "conflicts");
+        writePom(root, "test", "lib", "1.0", "test:core:2.0");
+        writePom(root, "test", "app", "1.0", "test:core:1.0");
+        writePom(root, "test", "core", "2.0");
+        writePom(root, "test", "core", "1.0", "test:legacy:1.0");
+        writePom(root, "test", "legacy", "1.0");
+        FileRepositoryManager manager = new FileRepositoryManager(root);
+
+        List<Pom> resolved = new DependencyResolver(manager).resolveDependencies(
+                ImmutableList.of(Dependency.valueOf("test:lib:1.0"),
+                        Dependency.valueOf("test:app:1.0")));
+
+        Pom core = resolved.get(resolved.indexOf(Pom.valueOf("test", "core", "")));
+        assertEquals("2.0", core.getVersionName());
+        assertTrue(!resolved.contains(Pom.valueOf("test", "legacy", "")));
+        // core 1.0 loses to core 2.0, its dependencies are never fetched
+        assertTrue(!manager.requests.containsKey("test:legacy:1.0"));
+    }
+
+    @Test
+    public void testVersionRangeUsesKnownVersion() throws IOException {
+        File root = new File(temporaryFolder.getRoot(), "ranges");
+        writePom(root, "test", "app", "1.0", "test:core:1.5");
+        writePom(root, "test", "lib", "1.0", "test:core:[1.0,2.0)");
+        writePom(root, "test", "core", "1.0");
+        writePom(root, "test", "core", "1.5");
+        FileRepositoryManager manager = new FileRepositoryManager(root);
+
+        List<Pom> resolved = new DependencyResolver(manager).resolveDependencies(
+                ImmutableList.of(Dependency.valueOf("test:app:1.0"),
+                        Dependency.valueOf("test:lib:1.0")));
+
+        Pom core = resolved.get(resolved.indexOf(Pom.valueOf("test", "core", "")));
+        assertEquals("1.5", core.getVersionName());
+        // the range is satisfied by the version already in the graph
+        assertTrue(!manager.requests.containsKey("test:core:1.0"));
+    }
+
+    @Test
+    public void testResolvedGraphIsCachedInRepositoryCacheDirectory() throws IOException {
+        File cacheDirectory = temporaryFolder.newFolder("cache");
+        FileRepositoryManager manager = createRepository();
+        manager.setCacheDirectory(cacheDirectory);
+
+        new DependencyResolver(manager).resolveDependencies(
+                ImmutableList.of(Dependency.valueOf("test:app:1.0")));
+
+        assertTrue(new File(cacheDirectory, DependencyResolver.GRAPH_CACHE_FILE_NAME).exists());
+    }
+
+    @Test
+    public void testResolvedGraphIsCached() throws IOException {
+        File cacheFile = new File(temporaryFolder.getRoot(), "resolved.bin");
+        List<Dependency> declared = ImmutableList.of(
+                Dependency.valueOf("test:app:1.0"),
+                Dependency.valueOf("test:lib:1.0"));
+
+        FileRepositoryManager manager = createRepository();
+        DependencyResolver resolver = new DependencyResolver(manager);
+        resolver.setCacheFile(cacheFile);
+        List<Pom> resolved = resolver.resolveDependencies(declared);
+        assertTrue(cacheFile.exists());
+
+        // the same declared dependencies in a different order do not fetch any POM
+        FileRepositoryManager second = createRepository();
+        resolver = new DependencyResolver(second);
+        resolver.setCacheFile(cacheFile);
+        List<Pom> cached = resolver.resolveDependencies(ImmutableList.of(
+                declared.get(1), declared.get(0)));
+        assertEquals(0, second.getRequestCount());
+        assertEquals(resolved.size(), cached.size());
+        for (Pom pom : resolved) {
+            Pom cachedPom = cached.get(cached.indexOf(pom));
+            assertEquals(pom.getVersionName(), cachedPom.getVersionName());
+            assertEquals(pom.getPackaging(), cachedPom.getPackaging());
+        }
+
+        // changing the declared dependencies resolves again
+        resolver = new DependencyResolver(second);
+        resolver.setCacheFile(cacheFile);
+        resolver.resolveDependencies(ImmutableList.of(Dependency.valueOf("test:lib:1.0")));
+        assertTrue(second.getRequestCount() > 0);
+    }
+
+    private FileRepositoryManager createRepository() throws IOException {
+        File root = new File(temporaryFolder.getRoot(), "repository");
+        if (root.exists()) {
+            return new FileRepositoryManager(root);
+        }
+        writePom(root, "test", "app", "1.0", "test:core:1.0", "test:widget:1.0");
+        writePom(root, "test", "lib", "1.0", "test:core:2.0", "test:widget:1.0");
+        writePom(root, "test", "widget", "1.0", "test:annotation:1.0");
+        writePom(root, "test", "core", "1.0", "test:annotation:1.0");
+        writePom(root, "test", "core", "2.0", "test:annotation:1.0");
+        writePom(root, "test", "annotation", "1.0");
+        return new FileRepositoryManager(root);
+    }
+
+    private static void writePom(File root, String groupId, String artifactId, String version,
+                                 String... dependencies) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<project>\n")
+                .append("  <groupId>").append(groupId).append("</groupId>\n")
+                .append("  <artifactId>").append(artifactId).append("</artifactId>\n")
+                .append("  <version>").append(version).append("</version>\n")
+                .append("  <packaging>jar</packaging>\n")
+                .append("  <dependencies>\n");
+        for (String declaration : dependencies) {
+            Dependency dependency = Dependency.valueOf(declaration);
+            builder.append("    <dependency>\n")
+                    .append("      <groupId>").append(dependency.getGroupId())
+                    .append("</groupId>\n")
+                    .append("      <artifactId>").append(dependency.getArtifactId())
+                    .append("</artifactId>\n")
+                    .append("      <version>").append(dependency.getVersionRange() != null
+                            ? dependency.getVersionRange() : dependency.getVersionName())
+                    .append("</version>\n")
+                    .append("    </dependency>\n");
+        }
+        builder.append("  </dependencies>\n</project>\n");
+
+        File file = new File(root, groupId + "/" + artifactId + "/" + version + "/"
+                                   + artifactId + "-" + version + ".pom");
+        FileUtils.writeStringToFile(file, builder.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A repository that parses POMs from a local directory with the maven layout, every
+     * lookup is delayed to simulate a remote repository.
+     */
+    private static class FileRepositoryManager implements RepositoryManager {
+
+        private final File root;
+        private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        private File cacheDirectory;
+
+        FileRepositoryManager(File root) {
+            this.root = root;
+        }
+
+        int getRequestCount() {
+            int count = 0;
+            for (AtomicInteger value : requests.values()) {
+                count += value.get();
+            }
+            return count;
+        }
+
+        @Nullable
+        @Override
+        public Pom getPom(String declaration) {
+            requests.computeIfAbsent(declaration, it -> new AtomicInteger()).incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            Pom pom = Pom.valueOf(declaration);
+            File file = new File(root, pom.getPath() + "/" + pom.getFileName() + ".pom");
+            if (!file.exists()) {
+                return null;
+            }
+            try {
+                return new PomParser(this).parse(file);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Nullable
+        @Override
+        public File getLibrary(Pom pom) {
+            return null;
+        }
+
+        @Override
+        public void setCacheDirectory(File directory) {
+            cacheDirectory = directory;
+        }
+
+        @Nullable
+        @Override
+        public File getCacheDirectory() {
+            return cacheDirectory;
+        }
+
+        @Override
+        public void addRepository(@NonNull String name, @NonNull String url) {
+
+        }
+
+        @Override
+        public void addRepository(@NonNull Repository repository) {
+
+        }
+
+        @Override
+        public void initialize() {
+
+        }
+    }
 }
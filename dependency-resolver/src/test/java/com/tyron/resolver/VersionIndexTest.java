@@ -0,0 +1,67 @@
+package com.tyron.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class VersionIndexTest {
+
+    @Test
+    public void testMemoizedVersions() {
+        assertSame(ComparableVersion.of("1.3.4"), ComparableVersion.of("1.3.4"));
+        assertTrue(ComparableVersion.compare("1.3.4", "1.3.10") < 0);
+        assertTrue(ComparableVersion.compare("1.0.0", "1.0.0-rc01") > 0);
+        assertEquals(0, ComparableVersion.compare("1.0", "1.0.0"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSharedVersionsAreImmutable() {
+        ComparableVersion.of("2.0").parseVersion("3.0");
+    }
+
+    @Test
+    public void testHighest() {
+        VersionIndex index = createIndex();
+        assertEquals("2.0.0-alpha01", index.getHighest("androidx.core", "core"));
+        assertNull(index.getHighest("androidx.core", "missing"));
+        assertEquals(Arrays.asList("1.0.0", "1.2.0", "1.5.0-rc01", "1.5.0", "2.0.0-alpha01"),
+                index.getVersions("androidx.core", "core"));
+    }
+
+    @Test
+    public void testRanges() {
+        VersionIndex index = createIndex();
+        assertEquals("1.5.0", index.getHighest("androidx.core", "core", "[1.0,1.9)"));
+        // pre-releases are lower than the release, as in maven
+        assertEquals("2.0.0-alpha01", index.getHighest("androidx.core", "core", "[1.0,2.0)"));
+        assertEquals("1.2.0", index.getHighest("androidx.core", "core", "(,1.5.0-rc01)"));
+        assertEquals("1.2.0", index.getHighest("androidx.core", "core", "[1.2.0]"));
+        assertEquals("1.2.0", index.getHighest("androidx.core", "core", "1.2.0"));
+        assertNull(index.getHighest("androidx.core", "core", "[3.0,)"));
+
+        assertEquals(Arrays.asList("1.0.0", "1.5.0", "2.0.0-alpha01"),
+                index.getVersions("androidx.core", "core", "(,1.0.0],[1.5.0,)"));
+        assertEquals(Collections.emptyList(),
+                index.getVersions("androidx.core", "core", "(1.0.0,1.2.0)"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        createIndex().getHighest("androidx.core", "core", "[1.0,2.0");
+    }
+
+    private static VersionIndex createIndex() {
+        VersionIndex index = new VersionIndex();
+        for (String version : new String[]{"1.2.0", "1.0.0", "2.0.0-alpha01", "1.5.0",
+                "1.5.0-rc01", "1.0"}) {
+            index.add("androidx.core", "core", version);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,149 @@
+package com.tyron.resolver.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class PomCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Pom parent = Pom.valueOf("androidx.test", "parent", "1.0");
+        Dependency managed = Dependency.valueOf("androidx.test:core:1.2.0");
+        managed.setScope("compile");
+        parent.setManagedDependencies(ImmutableList.of(managed));
+
+        Pom pom = Pom.valueOf("androidx.test", "library", "1.0");
+        pom.setPackaging("aar");
+        pom.setParent(parent);
+        pom.addProperty("kotlin.version", "1.6.0");
+        Dependency dependency = Dependency.valueOf("androidx.test:core:1.2.0");
+        dependency.setType("aar");
+        dependency.addExclude(new Dependency("androidx.test", "excluded", null));
+        pom.setDependencies(ImmutableList.of(dependency));
+
+        PomCache cache = new PomCache();
+        cache.put(parent.getDeclarationString(), parent);
+        cache.put(pom.getDeclarationString(), pom, 120, 1000);
+
+        File file = temporaryFolder.newFile("poms.bin");
+        cache.save(file);
+
+        PomCache loaded = new PomCache();
+        assertEquals(2, loaded.load(file));
+
+        Pom loadedPom = loaded.get("androidx.test:library:1.0", 120, 1000);
+        assertNotNull(loadedPom);
+        assertNull(loaded.get("androidx.test:library:1.0", 121, 1000));
+        assertNull(loaded.get("androidx.test:library:1.0", 120, 1001));
+        assertEquals("aar", loadedPom.getPackaging());
+        assertEquals("1.6.0", loadedPom.getProperty("kotlin.version"));
+
+        Dependency loadedDependency = loadedPom.getDependencies().get(0);
+        assertEquals("androidx.test:core:1.2.0", loadedDependency.toString());
+        assertEquals("aar", loadedDependency.getType());
+        assertEquals("excluded", loadedDependency.getExcludes().get(0).getArtifactId());
+
+        Pom loadedParent = loaded.get("androidx.test:parent:1.0");
+        assertSame(loadedParent, loadedPom.getParent());
+        assertEquals("compile", loadedParent.getManagedDependencies().get(0).getScope());
+
+        // strings shared between POMs are interned
+        assertSame(loadedPom.getGroupId(), loadedParent.getGroupId());
+        assertSame(loadedPom.getGroupId(), loadedDependency.getGroupId());
+    }
+
+    @Test
+    public void testCorruptedFileIsIgnored() throws IOException {
+        File file = temporaryFolder.newFile("poms.bin");
+        FileUtils.writeStringToFile(file, "not a cache", StandardCharsets.UTF_8);
+
+        PomCache cache = new PomCache();
+        assertEquals(0, cache.load(file));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInitializeUsesCache() throws IOException {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File pomFile = new File(cacheDir, "local/com/example/library/1.0/library-1.0.pom");
+        String contents = "<project>\n" +
+                          "  <groupId>com.example</groupId>\n" +
+                          "  <artifactId>library</artifactId>\n" +
+                          "  <version>1.0</version>\n" +
+                          "  <packaging>aar</packaging>\n" +
+                          "</project>\n";
+        FileUtils.writeStringToFile(pomFile, contents, StandardCharsets.UTF_8);
+
+        RepositoryManagerImpl first = new RepositoryManagerImpl();
+        first.addRepository(new LocalRepository("local"));
+        first.setCacheDirectory(cacheDir);
+        first.initialize();
+        assertNotNull(first.getPom("com.example:library:1.0"));
+        assertEquals(true, new File(cacheDir, "poms.bin").exists());
+
+        // a file of the same size and modification time is not parsed again,
+        // the cached POM is used instead
+        long lastModified = pomFile.lastModified();
+        FileUtils.writeStringToFile(pomFile, contents.replace('<', ' '), StandardCharsets.UTF_8);
+        assertTrue(pomFile.setLastModified(lastModified));
+
+        RepositoryManagerImpl second = new RepositoryManagerImpl();
+        second.addRepository(new LocalRepository("local"));
+        second.setCacheDirectory(cacheDir);
+        second.initialize();
+        Pom pom = second.getPom("com.example:library:1.0");
+        assertNotNull(pom);
+        assertEquals("aar", pom.getPackaging());
+    }
+
+    @Test
+    public void testInitializeParsesModifiedFileOfSameSize() throws IOException {
+        File cacheDir = temporaryFolder.newFolder("cache");
+        File pomFile = new File(cacheDir, "local/com/example/library/1.0/library-1.0.pom");
+        String contents = "<project>\n" +
+                          "  <groupId>com.example</groupId>\n" +
+                          "  <artifactId>library</artifactId>\n" +
+                          "  <version>1.0</version>\n" +
+                          "  <packaging>aar</packaging>\n" +
+                          "</project>\n";
+        FileUtils.writeStringToFile(pomFile, contents, StandardCharsets.UTF_8);
+
+        RepositoryManagerImpl first = new RepositoryManagerImpl();
+        first.addRepository(new LocalRepository("local"));
+        first.setCacheDirectory(cacheDir);
+        first.initialize();
+
+        // same size, different contents and modification time
+        long lastModified = pomFile.lastModified();
+        FileUtils.writeStringToFile(pomFile, contents.replace("aar", "jar"),
+                StandardCharsets.UTF_8);
+        assertTrue(pomFile.setLastModified(lastModified + 2000));
+
+        RepositoryManagerImpl second = new RepositoryManagerImpl();
+        second.addRepository(new LocalRepository("local"));
+        second.setCacheDirectory(cacheDir);
+        second.initialize();
+        Pom pom = second.getPom("com.example:library:1.0");
+        assertNotNull(pom);
+        assertEquals("jar", pom.getPackaging());
+    }
+}
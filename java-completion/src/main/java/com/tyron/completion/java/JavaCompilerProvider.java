@@ -50,6 +50,9 @@ public class JavaCompilerProvider extends CompilerProvider<JavaCompilerService>
 
     public void destroy() {
         mCachedPaths.clear();
+        if (mProvider != null) {
+            mProvider.dispose();
+        }
         mProvider = null;
     }
 
@@ -71,6 +74,9 @@ public class JavaCompilerProvider extends CompilerProvider<JavaCompilerService>
         }
 
         if (mProvider == null || changed(mCachedPaths, paths)) {
+            if (mProvider != null) {
+                mProvider.dispose();
+            }
             mProvider = new JavaCompilerService(project, paths, Collections.emptySet(),
                                                 Collections.emptySet());
 
@@ -116,6 +122,9 @@ public class JavaCompilerProvider extends CompilerProvider<JavaCompilerService>
     }
 
     public void clear() {
+        if (mProvider != null) {
+            mProvider.dispose();
+        }
         mProvider = null;
     }
 }
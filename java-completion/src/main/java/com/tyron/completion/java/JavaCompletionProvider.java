@@ -68,6 +68,12 @@ public class JavaCompletionProvider extends CompletionProvider {
 
     private CachedCompletion mCachedCompletion;
 
+    /**
+     * The last list filtered from the cached completion, narrowing it further
+     * only needs to look at the items that are left
+     */
+    private CompletionList mLastFilteredList;
+
     @SuppressWarnings("ALL")
     public JavaCompletionProvider() {
 
@@ -88,12 +94,14 @@ public class JavaCompletionProvider extends CompletionProvider {
         if (isIncrementalCompletion(mCachedCompletion, params)) {
             String partial = partialIdentifier(params.getPrefix(), params.getPrefix().length());
             CompletionList cachedList = mCachedCompletion.getCompletionList();
-            CompletionList copy = CompletionList.copy(cachedList, partial);
+            CompletionList source = mLastFilteredList != null ? mLastFilteredList : cachedList;
+            CompletionList copy = CompletionList.copy(source, partial);
 
             // if the cached completion is incomplete,
             // chances are there will be new items that are not in the cache
             // so don't return the cached items
             if (!copy.isIncomplete && !copy.items.isEmpty()) {
+                mLastFilteredList = copy;
                 return copy;
             }
         }
@@ -118,6 +126,7 @@ public class JavaCompletionProvider extends CompletionProvider {
         mCachedCompletion =
                 new CachedCompletion(params.getFile(), params.getLine(), params.getColumn(),
                         newPrefix, list);
+        mLastFilteredList = null;
         return list;
     }
 
@@ -140,7 +149,7 @@ public class JavaCompletionProvider extends CompletionProvider {
                     }
                 };
 
-        JCTree.JCCompilationUnit unit = compilationInfo.updateImmediately(fileObject);
+        JCTree.JCCompilationUnit unit = compilationInfo.parseScratch(fileObject);
         if (unit == null) {
             return null;
         }
@@ -3,6 +3,7 @@ package com.tyron.completion.java;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.impl.JavaModuleImpl;
+import com.tyron.builder.project.util.PackageTrie;
 
 import java.util.Deque;
 import java.util.HashSet;
@@ -28,7 +29,7 @@ public class ShortNamesCache {
     }
 
     /**
-     * module used to store JDK indexes
+     * module used to store JDK indexes, shared between all modules
      */
     private static final JavaModule JDK_MODULE = new JavaModuleImpl(null);
 
@@ -47,12 +48,26 @@ public class ShortNamesCache {
      * libraries.
      */
     public String[] getAllClassNames() {
+        Set<String> classNames = new HashSet<>();
+        processAllClassNames((simpleName, fullyQualifiedName) -> {
+            classNames.add(fullyQualifiedName.toString());
+            return true;
+        });
+        return classNames.toArray(new String[0]);
+    }
+
+    /**
+     * Visits the classes in the project, its module dependencies and the JDK without
+     * copying them. A class may be visited more than once if it is declared in more than one
+     * module.
+     *
+     * @return false if the visitor stopped the iteration
+     */
+    public boolean processAllClassNames(PackageTrie.LeafVisitor visitor) {
         if (!(module instanceof JavaModule)) {
-            return new String[0];
+            return true;
         }
 
-        Set<String> classNames = new HashSet<>();
-
         Deque<Module> queue = new LinkedList<>();
         Set<Module> visitedModules = new HashSet<>();
         queue.addLast(module);
@@ -62,7 +77,9 @@ public class ShortNamesCache {
 
             if (current instanceof JavaModule) {
                 JavaModule javaModule = (JavaModule) current;
-                classNames.addAll(javaModule.getClassIndex().getLeafNodes());
+                if (!javaModule.getClassIndex().forEachLeaf(visitor)) {
+                    return false;
+                }
             }
 
             visitedModules.add(current);
@@ -74,7 +91,6 @@ public class ShortNamesCache {
             }
         }
 
-        classNames.addAll(JDK_MODULE.getClassIndex().getLeafNodes());
-        return classNames.toArray(new String[0]);
+        return JDK_MODULE.getClassIndex().forEachLeaf(visitor);
     }
 }
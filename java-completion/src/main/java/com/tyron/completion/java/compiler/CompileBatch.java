@@ -68,8 +68,17 @@ public class CompileBatch implements AutoCloseable {
             // The results of borrow.task.analyze() are unreliable when errors are present
             // You can get at `Element` values using `Trees`
             task.analyze();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        } catch (Throwable t) {
+            // nobody holds this batch yet, return its compiler before propagating
+            try {
+                borrow.close();
+            } catch (Throwable e) {
+                t.addSuppressed(e);
+            }
+            if (t instanceof IOException) {
+                throw new RuntimeException(t);
+            }
+            throw t;
         }
     }
 
@@ -160,8 +169,7 @@ public class CompileBatch implements AutoCloseable {
             extends JavaFileObject> sources) {
         parent.clearDiagnostics();
         List<String> options = options(parent.classPath, parent.addExports);
-        return parent.compiler.getTask(parent.mSourceFileManager, parent::addDiagnostic, options,
-                Collections.emptyList(), sources);
+        return parent.borrowTask(options, sources);
     }
 
     /**
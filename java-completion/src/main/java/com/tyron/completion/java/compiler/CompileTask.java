@@ -70,11 +70,9 @@ public class CompileTask implements AutoCloseable {
 
     @Override
     public void close() {
+        // the batch stays cached with its compiler checked out, JavaCompilerService returns
+        // the compiler to the pool once the batch is replaced
         mCompileBatch.close();
-        ReusableCompiler.Borrow borrow = mCompileBatch.borrow;
-        if (borrow != null && !borrow.closed) {
-            borrow.close();
-        }
     }
 
     public boolean isClosed() {
@@ -8,17 +8,22 @@ import androidx.annotation.NonNull;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.util.Context;
 import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
+import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
+import com.tyron.builder.project.listener.FileListener;
 import com.tyron.builder.project.util.PackageTrie;
-import com.tyron.common.util.Cache;
+import com.tyron.common.util.BoundedCache;
 import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.Docs;
 import com.tyron.completion.java.FindTypeDeclarations;
 
+import org.apache.commons.io.FileUtils;
+
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileObject;
@@ -32,6 +37,7 @@ import com.tyron.completion.progress.ProcessCanceledException;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
@@ -44,8 +50,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -62,15 +70,42 @@ public class JavaCompilerService implements CompilerProvider {
     private JavaModule mCurrentModule;
     public final Set<File> classPath, docPath;
     public final Set<String> addExports;
-    public ReusableCompiler compiler = new ReusableCompiler();
+    private final ReusableCompilerPool mCompilerPool = ReusableCompilerPool.getInstance();
     private final Docs docs;
 
     private final CompilerContainer mContainer = new CompilerContainer();
-    private CompileBatch cachedCompile;
+    private volatile CompileBatch cachedCompile;
     private final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
 
     public final ReentrantLock mLock = new ReentrantLock();
 
+    /**
+     * Drops the cached information of a file as soon as its snapshot changes. Snapshot events
+     * are sent from the UI thread, so the file is only tokenized later by
+     * {@link #flushIndexUpdates()}, keystrokes in between replace the pending contents.
+     */
+    private final FileListener mSnapshotListener = (file, contents) -> {
+        invalidateCaches(file.toPath());
+        if (file.getName().endsWith(".java") && contents != null) {
+            mPendingIndexUpdates.put(file.toPath(), contents.toString());
+            try {
+                mIndexExecutor.execute(this::flushIndexUpdates);
+            } catch (RejectedExecutionException e) {
+                // disposed while the event was being delivered
+            }
+        }
+    };
+    private final Map<Path, String> mPendingIndexUpdates = new ConcurrentHashMap<>();
+    private final ExecutorService mIndexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "JavaCompilerService-Index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final SourceIdentifierIndex mIdentifierIndex = new SourceIdentifierIndex();
+    private final Set<FileManager> mListenedFileManagers = new HashSet<>();
+    // modification time on disk of the files in the caches and the identifier index
+    private final Map<Path, Long> mDiskModified = new ConcurrentHashMap<>();
+
     public JavaCompilerService(Project project,
                                Set<File> classPath,
                                Set<File> docPath,
@@ -90,6 +125,97 @@ public class JavaCompilerService implements CompilerProvider {
     public void setCurrentModule(@NonNull JavaModule module) {
         mSourceFileManager.setCurrentModule(module);
         mCurrentModule = module;
+
+        detachFileManagers();
+        List<Module> modules = new ArrayList<>();
+        modules.add(module);
+        if (mProject != null) {
+            modules.addAll(mProject.getDependencies(module));
+        }
+        for (Module it : modules) {
+            FileManager fileManager = it.getFileManager();
+            if (fileManager != null && mListenedFileManagers.add(fileManager)) {
+                fileManager.addSnapshotListener(mSnapshotListener);
+            }
+        }
+    }
+
+    private void detachFileManagers() {
+        for (FileManager fileManager : mListenedFileManagers) {
+            fileManager.removeSnapshotListener(mSnapshotListener);
+        }
+        mListenedFileManagers.clear();
+    }
+
+    /**
+     * Stops listening to file changes, returns the compiler of the cached batch to the pool
+     * and releases the cached parse results, called when this service is no longer used.
+     */
+    public void dispose() {
+        mContainer.initialize(() -> {
+            close();
+            releaseCachedCompile();
+        });
+        detachFileManagers();
+        mIndexExecutor.shutdownNow();
+        mPendingIndexUpdates.clear();
+        mIdentifierIndex.clear();
+        cacheContainsType.clear();
+        parseCache.clear();
+        mDiskModified.clear();
+    }
+
+    /**
+     * Applies the snapshot changes that are not in the identifier index yet, called before the
+     * index is queried so that it never misses what was just typed.
+     */
+    private void flushIndexUpdates() {
+        // one flush at a time, so older contents can't overwrite newer ones
+        synchronized (mPendingIndexUpdates) {
+            for (Map.Entry<Path, String> entry : mPendingIndexUpdates.entrySet()) {
+                if (mPendingIndexUpdates.remove(entry.getKey(), entry.getValue())) {
+                    mIdentifierIndex.update(entry.getKey(), entry.getValue(),
+                            System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    private void invalidateCaches(Path file) {
+        cacheContainsType.invalidate(file);
+        parseCache.invalidate(file);
+    }
+
+    /**
+     * Records the modification time on disk of a file that is being loaded into the caches,
+     * so that {@link #revalidateDiskFiles()} can tell when it changed.
+     */
+    private void recordDiskModified(Path file) {
+        mDiskModified.put(file, file.toFile().lastModified());
+    }
+
+    /**
+     * Snapshot events only cover the files open in the editor, files that are changed on disk
+     * (a regenerated R.java, a git checkout) are detected by their modification time. This is
+     * checked once per compile for the files in the caches instead of on every lookup.
+     */
+    private void revalidateDiskFiles() {
+        for (Path file : mDiskModified.keySet()) {
+            revalidateDiskFile(file);
+        }
+    }
+
+    private void revalidateDiskFile(Path file) {
+        Long recorded = mDiskModified.get(file);
+        if (recorded == null) {
+            return;
+        }
+        long lastModified = file.toFile().lastModified();
+        if (lastModified != recorded && mDiskModified.replace(file, recorded, lastModified)) {
+            invalidateCaches(file);
+            // read again by the next lookup
+            mIdentifierIndex.remove(file);
+        }
     }
 
     /**
@@ -119,11 +245,11 @@ public class JavaCompilerService implements CompilerProvider {
 
     private synchronized void loadCompile(Collection<? extends JavaFileObject> sources) {
         if (cachedCompile != null) {
-            if (!cachedCompile.closed) {
-                throw new RuntimeException("Compiler is still in-use!");
-            }
+            // the previous task was closed by the container before this runs
             cachedCompile.borrow.close();
+            cachedCompile = null;
         }
+        cachedModified.clear();
         cachedCompile = doCompile(sources);
         cachedModified.clear();
         for (JavaFileObject f : sources) {
@@ -138,7 +264,49 @@ public class JavaCompilerService implements CompilerProvider {
     public void invalidate(Collection<? extends JavaFileObject> sources) {
         for (JavaFileObject source : sources) {
             cachedModified.remove(source);
+            if (source instanceof SourceFileObject) {
+                invalidateCaches(((SourceFileObject) source).mFile);
+            }
+        }
+    }
+
+    /**
+     * Checks out a warm compiler for the current module from the pool and creates a task with it.
+     * The compiler is returned to the pool once the returned borrow is closed.
+     */
+    ReusableCompiler.Borrow borrowTask(List<String> options,
+                                       Collection<? extends JavaFileObject> sources) {
+        ReusableCompiler compiler = mCompilerPool.acquire(getPoolKey(), options);
+        try {
+            return compiler.getTask(mSourceFileManager, this::addDiagnostic, options,
+                    Collections.emptyList(), sources);
+        } catch (Throwable t) {
+            mCompilerPool.discard(compiler);
+            throw t;
+        }
+    }
+
+    private String getPoolKey() {
+        if (mCurrentModule == null) {
+            return "";
+        }
+        return mCurrentModule.getRootFile().getAbsolutePath();
+    }
+
+    /**
+     * @return The javac context of the cached batch, may be null if nothing is cached. The
+     * batch keeps its compiler checked out, so the context is not used by another borrower.
+     */
+    public Context getCurrentContext() {
+        CompileBatch batch = cachedCompile;
+        if (batch == null) {
+            return null;
         }
+        return ((JavacTaskImpl) batch.task).getContext();
+    }
+
+    public ReusableCompilerPool getCompilerPool() {
+        return mCompilerPool;
     }
 
     private CompileBatch doCompile(Collection<? extends JavaFileObject> sources) {
@@ -171,7 +339,8 @@ public class JavaCompilerService implements CompilerProvider {
     private CompilerContainer compileBatch(Collection<? extends JavaFileObject> sources) {
         try {
             mContainer.initialize(() -> {
-                if (needsCompile(sources)) {
+                revalidateDiskFiles();
+                if (cachedCompile == null || needsCompile(sources)) {
                     loadCompile(sources);
                 }
                 if (cachedCompile.task == null || ((JavacTaskImpl) cachedCompile.task).getContext() == null) {
@@ -183,15 +352,26 @@ public class JavaCompilerService implements CompilerProvider {
             return mContainer;
         } catch (Throwable t) {
             if (t instanceof CancelAbort || t.getCause() instanceof CancelAbort) {
-                if (cachedCompile != null) {
-                    cachedCompile.borrow.close();
-                }
+                releaseCachedCompile();
                 throw new ProcessCanceledException();
             }
             throw t;
         }
     }
 
+    /**
+     * Returns the compiler of the cached batch to the pool and forgets the batch, so that it is
+     * never handed out again while another holder uses the same compiler.
+     */
+    public synchronized void releaseCachedCompile() {
+        if (cachedCompile != null) {
+            cachedCompile.close();
+            cachedCompile.borrow.close();
+            cachedCompile = null;
+        }
+        cachedModified.clear();
+    }
+
     public void clearDiagnostics() {
         diagnostics.clear();
         if (mDiagnosticListener != null) {
@@ -236,7 +416,10 @@ public class JavaCompilerService implements CompilerProvider {
         for (Module module : mProject.getDependencies(mCurrentModule)) {
             if (module instanceof JavaModule) {
                 PackageTrie classIndex = ((JavaModule) module).getClassIndex();
-                classes.addAll(classIndex.getMatchingPackages(packageName));
+                classIndex.forEachLeaf(packageName, (simpleName, fullyQualifiedName) -> {
+                    classes.add(fullyQualifiedName.toString());
+                    return true;
+                });
             }
         }
         return classes;
@@ -265,9 +448,13 @@ public class JavaCompilerService implements CompilerProvider {
         return Collections.emptyList();
     }
 
+    /**
+     * Finds the source files that contain an identifier starting with the query
+     */
     @Override
     public Iterable<Path> search(String query) {
-        return null;
+        indexSourceFiles();
+        return mIdentifierIndex.getFilesWithPrefix(query);
     }
 
     /**
@@ -330,25 +517,85 @@ public class JavaCompilerService implements CompilerProvider {
         return "";
     }
 
-    private static final Cache<String, Boolean> cacheContainsWord = new Cache<>();
-
     private boolean containsWord(Path file, String word) {
-        if (cacheContainsWord.needs(file, word)) {
-            cacheContainsWord.load(file, word, StringSearch.containsWord(file, word));
+        flushIndexUpdates();
+        // the index would otherwise answer from the contents the file had when it was indexed
+        revalidateDiskFile(file);
+        Boolean contains = mIdentifierIndex.containsWord(file, word);
+        if (contains == null) {
+            indexFile(file.toFile());
+            contains = mIdentifierIndex.containsWord(file, word);
+        }
+        if (contains == null) {
+            return StringSearch.containsWord(file, word);
         }
-        return cacheContainsWord.get(file, word);
+        return contains;
     }
 
-    private static final Cache<Void, List<String>> cacheContainsType = new Cache<>();
+    /**
+     * Brings the identifier index up to date with the source files of the current module and
+     * its dependencies. Files that are open in the editor are kept up to date through snapshot
+     * events, other files are only read again if they changed on disk.
+     */
+    private void indexSourceFiles() {
+        flushIndexUpdates();
+        Set<Path> sources = new HashSet<>();
+        for (Module module : mProject.getDependencies(mCurrentModule)) {
+            if (!(module instanceof JavaModule)) {
+                continue;
+            }
+            FileManager fileManager = module.getFileManager();
+            for (File file : ((JavaModule) module).getJavaFiles().values()) {
+                Path path = file.toPath();
+                sources.add(path);
+                if (fileManager != null && fileManager.isOpened(file)
+                    && mIdentifierIndex.isIndexed(path)) {
+                    continue;
+                }
+                if (!mIdentifierIndex.isUpToDate(path, file.lastModified())) {
+                    indexFile(file);
+                }
+            }
+        }
+        mIdentifierIndex.retainAll(sources);
+    }
+
+    private void indexFile(File file) {
+        CharSequence contents = null;
+        for (Module module : mProject.getDependencies(mCurrentModule)) {
+            FileManager fileManager = module.getFileManager();
+            if (fileManager != null && fileManager.isOpened(file)) {
+                contents = fileManager.getFileContent(file).orElse(null);
+                break;
+            }
+        }
+        long lastModified = file.lastModified();
+        mDiskModified.put(file.toPath(), lastModified);
+        if (contents == null) {
+            try {
+                contents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                mIdentifierIndex.remove(file.toPath());
+                return;
+            }
+        }
+        mIdentifierIndex.update(file.toPath(), contents, lastModified);
+    }
+
+    // weighed by the number of types declared in the file
+    private final BoundedCache<Void, List<String>> cacheContainsType =
+            new BoundedCache<>(20_000, types -> types.size() + 1);
 
     private boolean containsType(Path file, String className) {
-        if (cacheContainsType.needs(file, null)) {
+        List<String> types = cacheContainsType.getIfPresent(file, null);
+        if (types == null) {
+            recordDiskModified(file);
             CompilationUnitTree root = parse(file).root;
-            List<String> types = new ArrayList<>();
+            types = new ArrayList<>();
             new FindTypeDeclarations().scan(root, types);
             cacheContainsType.load(file, null, types);
         }
-        return cacheContainsType.get(file, null).contains(className);
+        return types.contains(className);
     }
 
 
@@ -421,24 +668,49 @@ public class JavaCompilerService implements CompilerProvider {
         return Optional.ofNullable(source);
     }
 
+    /**
+     * Finds the source files that may reference the class. A file is a candidate if it
+     * contains the simple name of the class and every segment of its package name,
+     * which covers imports, wildcard imports, qualified references and files of the same package.
+     */
     @Override
     public Path[] findTypeReferences(String className) {
-        return null;
+        indexSourceFiles();
+
+        List<String> words = new ArrayList<>();
+        String packageName = packageName(className);
+        if (!packageName.isEmpty()) {
+            Collections.addAll(words, packageName.split("\\."));
+        }
+        words.add(className.substring(className.lastIndexOf('.') + 1));
+        return mIdentifierIndex.getFilesContainingAll(words).toArray(new Path[0]);
     }
 
+    /**
+     * Finds the source files that may reference the member. Only the member name is required,
+     * a call site doesn't have to spell the name of the declaring class: chained calls,
+     * inherited members and variables of a super or sub type. Attribution filters the
+     * candidates.
+     */
     @Override
     public Path[] findMemberReferences(String className, String memberName) {
-        return null;
+        indexSourceFiles();
+
+        return mIdentifierIndex.getFiles(memberName).toArray(new Path[0]);
     }
 
-    private final Cache<String, ParseTask> parseCache = new Cache<>();
+    // each entry holds a whole javac task and its tree, keep only a few of them
+    private final BoundedCache<String, ParseTask> parseCache = new BoundedCache<>(32);
 
     private ParseTask cachedParse(Path file) {
-        if (parseCache.needs(file, file.toFile().getName())) {
+        ParseTask task = parseCache.getIfPresent(file, file.toFile().getName());
+        if (task == null) {
+            recordDiskModified(file);
             Parser parser = Parser.parseFile(mProject, file);
-            parseCache.load(file, file.toFile().getName(), new ParseTask(parser.task, parser.root));
+            task = new ParseTask(parser.task, parser.root);
+            parseCache.load(file, file.toFile().getName(), task);
         }
-        return parseCache.get(file, file.toFile().getName());
+        return task;
     }
 
     private ParseTask cachedParse(JavaFileObject file) {
@@ -448,14 +720,16 @@ public class JavaCompilerService implements CompilerProvider {
                     file.toUri().toString().substring(4, file.toUri().toString().lastIndexOf("!"));
 
             Path parsedPath = new File(URI.create(path)).toPath();
-            if (parseCache.needs(parsedPath, file.getName())) {
+            ParseTask task = parseCache.getIfPresent(parsedPath, file.getName());
+            if (task == null) {
+                recordDiskModified(parsedPath);
                 Parser parser = Parser.parseJavaFileObject(mProject, file);
-                parseCache
-                        .load(parsedPath, file.getName(), new ParseTask(parser.task, parser.root));
+                task = new ParseTask(parser.task, parser.root);
+                parseCache.load(parsedPath, file.getName(), task);
             } else {
                 Log.d("JavaCompilerService", "Using cached parse for " + file.getName());
             }
-            return parseCache.get(parsedPath, file.getName());
+            return task;
         } else if (file instanceof SourceFileObject) {
             return cachedParse(((SourceFileObject) file).mFile);
         }
@@ -537,15 +811,9 @@ public class JavaCompilerService implements CompilerProvider {
     public void destroy() {
         mContainer.initialize(() -> {
             close();
-            if (cachedCompile != null) {
-                final ReusableCompiler.Borrow borrow = cachedCompile.borrow;
-                if (borrow != null) {
-                    borrow.close();
-                }
-            }
-            cachedCompile = null;
-            cachedModified.clear();
-            compiler = new ReusableCompiler();
+            releaseCachedCompile();
+            // the contexts of this module may be in a broken state, start from a fresh one
+            mCompilerPool.evict(getPoolKey());
         });
     }
 
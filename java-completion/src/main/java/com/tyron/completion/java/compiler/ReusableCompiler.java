@@ -86,6 +86,19 @@ public class ReusableCompiler {
 
     private final CancelServiceImpl cancelService = new CancelServiceImpl();
 
+    /**
+     * The pool that owns this compiler, may be null if this compiler is not pooled
+     */
+    private final ReusableCompilerPool pool;
+
+    public ReusableCompiler() {
+        this(null);
+    }
+
+    ReusableCompiler(ReusableCompilerPool pool) {
+        this.pool = pool;
+    }
+
     public static class CancelServiceImpl extends CancelService {
 
         private final AtomicBoolean canceled = new AtomicBoolean(false);
@@ -185,16 +198,25 @@ public class ReusableCompiler {
             if (closed) return;
             // not returning the context to the pool if task crashes with an exception
             // the task/context may be in a broken state
-            currentContext.clear();
+            boolean reusable = false;
             try {
+                currentContext.clear();
                 Method method = JavacTaskImpl.class.getDeclaredMethod("cleanup");
                 method.setAccessible(true);
                 method.invoke(task);
+                reusable = true;
             } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
                 throw new RuntimeException(e);
             } finally {
                 checkedOut = false;
                 closed = true;
+                if (pool != null) {
+                    if (reusable) {
+                        pool.release(ReusableCompiler.this);
+                    } else {
+                        pool.discard(ReusableCompiler.this);
+                    }
+                }
             }
         }
     }
@@ -0,0 +1,366 @@
+package com.tyron.completion.java.compiler;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.tyron.common.logging.IdeLog;
+import com.tyron.completion.progress.ProcessCanceledException;
+import com.tyron.completion.progress.ProgressManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of warm {@link ReusableCompiler} instances.
+ *
+ * <p>Each compiler keeps its javac {@code Context} alive between compilations, so the pool is
+ * keyed by module and compiler options: a checkout only reuses a compiler that was created with
+ * the exact same options. Checkouts are fair, a caller that cannot get a compiler because the
+ * pool is exhausted waits in FIFO order until one is returned.
+ *
+ * <p>Compilers that have not been used for longer than the idle timeout are evicted, as are
+ * the least recently used idle compilers when a new key needs room in a full pool.
+ */
+public class ReusableCompilerPool {
+
+    private static final Logger LOG = IdeLog.getCurrentLogger(ReusableCompilerPool.class);
+
+    /**
+     * Each javac context holds its own symbol tables, keep a small number of them around.
+     */
+    public static final int DEFAULT_MAX_SIZE =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * How long a caller waits for a pooled compiler before it gets a compiler outside the pool,
+     * so that a checkout that is never returned can't block completion forever.
+     */
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final long ACQUIRE_POLL_MILLIS = 50;
+
+    private static ReusableCompilerPool sInstance;
+
+    public static synchronized ReusableCompilerPool getInstance() {
+        if (sInstance == null) {
+            sInstance = new ReusableCompilerPool(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS,
+                    DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+        }
+        return sInstance;
+    }
+
+    private final int mMaxSize;
+    private final long mIdleTimeoutMillis;
+    private final long mAcquireTimeoutMillis;
+    private final Semaphore mPermits;
+
+    @GuardedBy("this")
+    private final Map<Key, Deque<Entry>> mIdle = new HashMap<>();
+    @GuardedBy("this")
+    private final Map<ReusableCompiler, Entry> mLeased = new IdentityHashMap<>();
+    @GuardedBy("this")
+    private int mSize;
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+    private final AtomicLong mEvictions = new AtomicLong();
+    private final AtomicLong mWaitNanos = new AtomicLong();
+    private final AtomicLong mTimeouts = new AtomicLong();
+
+    @VisibleForTesting
+    public ReusableCompilerPool(int maxSize, long idleTimeoutMillis) {
+        this(maxSize, idleTimeoutMillis, DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    @VisibleForTesting
+    public ReusableCompilerPool(int maxSize, long idleTimeoutMillis, long acquireTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        mMaxSize = maxSize;
+        mIdleTimeoutMillis = idleTimeoutMillis;
+        mAcquireTimeoutMillis = acquireTimeoutMillis;
+        mPermits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Checks out a compiler for the given module and options, blocking until one is available.
+     * The compiler is returned to the pool when the {@link ReusableCompiler.Borrow} it creates
+     * is closed, or explicitly through {@link #release(ReusableCompiler)}.
+     *
+     * <p>If no compiler is returned within the acquire timeout, a new compiler that does not
+     * belong to the pool is returned instead. It starts from a cold context and is dropped
+     * once its borrow is closed.
+     *
+     * @param module  a stable identifier of the module being compiled
+     * @param options the compiler options that will be passed to
+     *                {@link ReusableCompiler#getTask}
+     * @return a compiler that is not used by any other thread
+     * @throws ProcessCanceledException if the calling thread was canceled while waiting
+     */
+    @NonNull
+    public ReusableCompiler acquire(@NonNull String module, @NonNull List<String> options) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(mAcquireTimeoutMillis);
+        try {
+            while (!mPermits.tryAcquire(ACQUIRE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                ProgressManager.checkCanceled();
+                if (System.nanoTime() - deadline >= 0) {
+                    mTimeouts.incrementAndGet();
+                    LOG.warning("Timed out waiting for a pooled compiler, " + this +
+                                ", using a compiler outside the pool.");
+                    return new ReusableCompiler();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException();
+        } finally {
+            mWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        try {
+            return checkout(new Key(module, options));
+        } catch (Throwable t) {
+            mPermits.release();
+            throw t;
+        }
+    }
+
+    private synchronized ReusableCompiler checkout(Key key) {
+        evictExpired(System.currentTimeMillis());
+
+        Entry entry = null;
+        Deque<Entry> idle = mIdle.get(key);
+        if (idle != null) {
+            // most recently used first, it is the most likely to have warm symbols
+            entry = idle.pollFirst();
+            if (idle.isEmpty()) {
+                mIdle.remove(key);
+            }
+        }
+
+        if (entry != null) {
+            mHits.incrementAndGet();
+        } else {
+            mMisses.incrementAndGet();
+            if (mSize >= mMaxSize) {
+                // holding a permit guarantees that at least one compiler is idle
+                evictLeastRecentlyUsed();
+            }
+            entry = new Entry(key, new ReusableCompiler(this));
+            mSize++;
+        }
+        mLeased.put(entry.compiler, entry);
+        return entry.compiler;
+    }
+
+    /**
+     * Returns the compiler to the pool. Calling this more than once for the same checkout
+     * has no effect.
+     */
+    public void release(@NonNull ReusableCompiler compiler) {
+        synchronized (this) {
+            Entry entry = mLeased.remove(compiler);
+            if (entry == null) {
+                return;
+            }
+            entry.lastUsed = System.currentTimeMillis();
+            Deque<Entry> idle = mIdle.get(entry.key);
+            if (idle == null) {
+                idle = new ArrayDeque<>();
+                mIdle.put(entry.key, idle);
+            }
+            idle.addFirst(entry);
+        }
+        mPermits.release();
+    }
+
+    /**
+     * Removes the compiler from the pool without making it available again, used when its
+     * context may be in a broken state.
+     */
+    public void discard(@NonNull ReusableCompiler compiler) {
+        synchronized (this) {
+            if (mLeased.remove(compiler) == null) {
+                return;
+            }
+            mSize--;
+        }
+        mPermits.release();
+    }
+
+    /**
+     * Evicts all idle compilers that have exceeded the idle timeout.
+     */
+    public synchronized void evictIdle() {
+        evictExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Evicts the idle compilers of the given module, regardless of their options.
+     */
+    public synchronized void evict(@NonNull String module) {
+        Iterator<Map.Entry<Key, Deque<Entry>>> iterator = mIdle.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Deque<Entry>> next = iterator.next();
+            if (module.equals(next.getKey().module)) {
+                mSize -= next.getValue().size();
+                mEvictions.addAndGet(next.getValue().size());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Evicts every idle compiler, compilers that are checked out are left untouched.
+     */
+    public synchronized void clear() {
+        for (Deque<Entry> entries : mIdle.values()) {
+            mSize -= entries.size();
+            mEvictions.addAndGet(entries.size());
+        }
+        mIdle.clear();
+    }
+
+    @GuardedBy("this")
+    private void evictExpired(long now) {
+        Iterator<Deque<Entry>> iterator = mIdle.values().iterator();
+        while (iterator.hasNext()) {
+            Deque<Entry> entries = iterator.next();
+            // entries are ordered from most to least recently used
+            while (!entries.isEmpty() && now - entries.peekLast().lastUsed > mIdleTimeoutMillis) {
+                entries.pollLast();
+                mSize--;
+                mEvictions.incrementAndGet();
+            }
+            if (entries.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void evictLeastRecentlyUsed() {
+        Deque<Entry> oldestDeque = null;
+        Entry oldest = null;
+        for (Deque<Entry> entries : mIdle.values()) {
+            Entry candidate = entries.peekLast();
+            if (candidate != null && (oldest == null || candidate.lastUsed < oldest.lastUsed)) {
+                oldest = candidate;
+                oldestDeque = entries;
+            }
+        }
+        if (oldest == null) {
+            LOG.warning("Compiler pool is full but no compiler is idle, growing past the limit.");
+            return;
+        }
+        oldestDeque.pollLast();
+        if (oldestDeque.isEmpty()) {
+            mIdle.remove(oldest.key);
+        }
+        mSize--;
+        mEvictions.incrementAndGet();
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized int idleCount() {
+        return mSize - mLeased.size();
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictions.get();
+    }
+
+    /**
+     * @return The number of checkouts that timed out and got a compiler outside the pool
+     */
+    public long getTimeoutCount() {
+        return mTimeouts.get();
+    }
+
+    /**
+     * @return The total time in milliseconds callers have spent waiting for a free compiler
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(mWaitNanos.get());
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ReusableCompilerPool{" +
+               "size=" + size() +
+               ", idle=" + idleCount() +
+               ", hits=" + getHitCount() +
+               ", misses=" + getMissCount() +
+               ", evictions=" + getEvictionCount() +
+               ", timeouts=" + getTimeoutCount() +
+               ", waitMs=" + getTotalWaitTime() +
+               '}';
+    }
+
+    private static class Entry {
+        final Key key;
+        final ReusableCompiler compiler;
+        long lastUsed;
+
+        Entry(Key key, ReusableCompiler compiler) {
+            this.key = key;
+            this.compiler = compiler;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private static class Key {
+        final String module;
+        final List<String> options;
+
+        Key(String module, List<String> options) {
+            this.module = module;
+            this.options = new ArrayList<>(options);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return module.equals(key.module) && options.equals(key.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(module, options);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.tyron.completion.java.compiler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An inverted index of the identifiers that appear in source files.
+ *
+ * The index only answers which files <i>may</i> contain a reference, every identifier-like
+ * token is indexed including the ones inside comments and string literals, so candidates
+ * still need to be compiled to confirm a match. Updating a file only tokenizes that file
+ * and touches the postings of the identifiers it contains.
+ */
+public class SourceIdentifierIndex {
+
+    private static class IndexedFile {
+        final Set<String> identifiers;
+        final long lastModified;
+
+        IndexedFile(Set<String> identifiers, long lastModified) {
+            this.identifiers = identifiers;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final Map<Path, IndexedFile> mFiles = new HashMap<>();
+    // sorted so that prefix queries are a range lookup
+    private final TreeMap<String, Set<Path>> mPostings = new TreeMap<>();
+
+    /**
+     * Replaces the identifiers of the file with the ones found in the contents.
+     *
+     * @param file         The file
+     * @param contents     The current contents of the file
+     * @param lastModified The modification time the contents correspond to, used by
+     *                     {@link #isUpToDate(Path, long)}
+     */
+    public synchronized void update(@NonNull Path file, @NonNull CharSequence contents,
+                                    long lastModified) {
+        Set<String> identifiers = tokenize(contents);
+        IndexedFile previous = mFiles.put(file, new IndexedFile(identifiers, lastModified));
+
+        if (previous != null) {
+            for (String identifier : previous.identifiers) {
+                if (!identifiers.contains(identifier)) {
+                    removePosting(identifier, file);
+                }
+            }
+        }
+        for (String identifier : identifiers) {
+            if (previous == null || !previous.identifiers.contains(identifier)) {
+                Set<Path> files = mPostings.get(identifier);
+                if (files == null) {
+                    files = new HashSet<>(4);
+                    mPostings.put(identifier, files);
+                }
+                files.add(file);
+            }
+        }
+    }
+
+    public synchronized void remove(@NonNull Path file) {
+        IndexedFile previous = mFiles.remove(file);
+        if (previous == null) {
+            return;
+        }
+        for (String identifier : previous.identifiers) {
+            removePosting(identifier, file);
+        }
+    }
+
+    /**
+     * Removes the files that are not in the given collection, e.g. deleted files.
+     */
+    public synchronized void retainAll(@NonNull Collection<Path> files) {
+        Set<Path> retained = files instanceof Set ? (Set<Path>) files : new HashSet<>(files);
+        Iterator<Map.Entry<Path, IndexedFile>> iterator = mFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, IndexedFile> next = iterator.next();
+            if (!retained.contains(next.getKey())) {
+                iterator.remove();
+                for (String identifier : next.getValue().identifiers) {
+                    removePosting(identifier, next.getKey());
+                }
+            }
+        }
+    }
+
+    public synchronized boolean isIndexed(@NonNull Path file) {
+        return mFiles.containsKey(file);
+    }
+
+    /**
+     * @return whether the file has been indexed with contents at least as new
+     * as the given modification time
+     */
+    public synchronized boolean isUpToDate(@NonNull Path file, long lastModified) {
+        IndexedFile indexed = mFiles.get(file);
+        return indexed != null && indexed.lastModified >= lastModified;
+    }
+
+    /**
+     * @return whether the file contains the identifier, or null if the file is not indexed
+     */
+    @Nullable
+    public synchronized Boolean containsWord(@NonNull Path file, @NonNull String word) {
+        IndexedFile indexed = mFiles.get(file);
+        if (indexed == null) {
+            return null;
+        }
+        return indexed.identifiers.contains(word);
+    }
+
+    /**
+     * @return the files that contain the identifier
+     */
+    @NonNull
+    public synchronized Set<Path> getFiles(@NonNull String word) {
+        Set<Path> files = mPostings.get(word);
+        if (files == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(files);
+    }
+
+    /**
+     * @return the files that contain all of the identifiers
+     */
+    @NonNull
+    public synchronized Set<Path> getFilesContainingAll(@NonNull Collection<String> words) {
+        Set<Path> smallest = null;
+        for (String word : words) {
+            Set<Path> files = mPostings.get(word);
+            if (files == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || files.size() < smallest.size()) {
+                smallest = files;
+            }
+        }
+        if (smallest == null) {
+            return Collections.emptySet();
+        }
+
+        Set<Path> result = new HashSet<>();
+        outer:
+        for (Path file : smallest) {
+            Set<String> identifiers = mFiles.get(file).identifiers;
+            for (String word : words) {
+                if (!identifiers.contains(word)) {
+                    continue outer;
+                }
+            }
+            result.add(file);
+        }
+        return result;
+    }
+
+    /**
+     * @return the files that contain an identifier starting with the prefix
+     */
+    @NonNull
+    public synchronized Set<Path> getFilesWithPrefix(@NonNull String prefix) {
+        Set<Path> result = new HashSet<>();
+        SortedMap<String, Set<Path>> range = prefix.isEmpty()
+                ? mPostings
+                : mPostings.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (Set<Path> files : range.values()) {
+            result.addAll(files);
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return mFiles.size();
+    }
+
+    public synchronized void clear() {
+        mFiles.clear();
+        mPostings.clear();
+    }
+
+    private void removePosting(String identifier, Path file) {
+        Set<Path> files = mPostings.get(identifier);
+        if (files != null) {
+            files.remove(file);
+            if (files.isEmpty()) {
+                mPostings.remove(identifier);
+            }
+        }
+    }
+
+    /**
+     * @return the distinct java identifiers in the contents
+     */
+    static Set<String> tokenize(CharSequence contents) {
+        Set<String> identifiers = new HashSet<>();
+        int length = contents.length();
+        int i = 0;
+        while (i < length) {
+            char c = contents.charAt(i);
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                i++;
+                while (i < length && Character.isJavaIdentifierPart(contents.charAt(i))) {
+                    i++;
+                }
+                identifiers.add(contents.subSequence(start, i).toString());
+            } else if (Character.isJavaIdentifierPart(c)) {
+                // skip numbers and the rest of tokens such as 0xFF
+                i++;
+                while (i < length && Character.isJavaIdentifierPart(contents.charAt(i))) {
+                    i++;
+                }
+            } else {
+                i++;
+            }
+        }
+        return identifiers;
+    }
+}
@@ -7,14 +7,20 @@ import com.sun.source.tree.Scope;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.code.ClassFinder;
 import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symtab;
 import com.sun.tools.javac.comp.MemberEnter;
+import com.sun.tools.javac.comp.Modules;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
 import com.sun.tools.javac.util.Pair;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
-import com.tyron.common.util.DebouncerStore;
+import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.java.compiler.services.NBEnter;
 import com.tyron.completion.java.compiler.services.NBLog;
 
@@ -23,24 +29,33 @@ import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 public class CompilationInfo {
 
     public static final Key<CompilationInfo> COMPILATION_INFO_KEY = Key.create("compilationInfo");
 
+    /** Coalesces the reloads of injected classes in the lane, like the updates of a file */
+    private static final URI RELOAD_CLASSES_KEY = URI.create("injected:classes");
+
     public static CompilationInfo get(Project currentProject, File file) {
         final Module module = currentProject.getModule(file);
         if (!(module instanceof JavaModule)) {
@@ -49,11 +64,13 @@ public class CompilationInfo {
         JavaModule javaModule = (JavaModule) module;
         CompilationInfo info = module.getUserData(COMPILATION_INFO_KEY);
         if (info == null) {
+            List<File> classpath = new ArrayList<>(javaModule.getLibraries());
+            classpath.add(getInjectedClassesDirectory(javaModule));
             info = new CompilationInfo(new CompilationInfoImpl(
                     new JavacParser(),
                     file,
                     file,
-                    javaModule.getLibraries(),
+                    classpath,
                     Collections.emptyList(),
                     null,
                     null
@@ -63,12 +80,26 @@ public class CompilationInfo {
         return info;
     }
 
+    /**
+     * @return the directory of the class files generated for the module, such as the R class,
+     * which is in the class path of its {@link CompilationInfo}
+     */
+    public static File getInjectedClassesDirectory(Module module) {
+        return new File(module.getBuildDirectory(), "injected/classes");
+    }
+
     public final CompilationInfoImpl impl;
-    private final Map<URI, JCCompilationUnit> compiledMap = new HashMap<>();
+    // the trees of the editor contents, handed out by getCompilationUnit
+    private final Map<URI, JCCompilationUnit> compiledMap = new ConcurrentHashMap<>();
+    // the sources of the trees in compiledMap, to enter them again after a scratch parse
+    private final Map<URI, JavaFileObject> sourceMap = new ConcurrentHashMap<>();
+    // the trees whose classes are currently entered in the javac context, only used on the lane
+    private final Map<URI, JCCompilationUnit> enteredMap = new ConcurrentHashMap<>();
+    private final AtomicLong workCount = new AtomicLong();
 
-    private final DebouncerStore<String> debouncerStore = DebouncerStore.DEFAULT;
+    private final ReparseScheduler scheduler = ReparseScheduler.getInstance();
+    private ReparseScheduler.Lane lane;
 
-    private final Object parseLock = new Object();
     private Trees trees;
 
     public CompilationInfo(final CompilationInfoImpl impl) {
@@ -76,9 +107,18 @@ public class CompilationInfo {
         this.impl = impl;
     }
 
+    /**
+     * Reparses the file and waits for its tree. The reparse is coalesced separately from the
+     * {@link #update updates} of the file, so that a newer update doesn't abort it.
+     *
+     * @return the tree of the given source, or null if the reparse failed or a newer call to
+     * this method superseded it
+     */
     public JCCompilationUnit updateImmediately(JavaFileObject fileObject) {
         CompletableFuture<JCCompilationUnit> future = new CompletableFuture<>();
-        update(fileObject, 0, future::complete);
+        URI key = URI.create(fileObject.toUri() + "#immediate");
+        scheduler.schedule(getLane(), key, fileObject, 0, () -> reparse(fileObject, true),
+                future::complete);
         try {
             return future.get();
         } catch (ExecutionException | InterruptedException e) {
@@ -86,6 +126,67 @@ public class CompilationInfo {
         }
     }
 
+    /**
+     * Parses and attributes a modified copy of a file, such as the contents completion fixes
+     * up, and waits for its tree. Unlike {@link #updateImmediately}, the tree does not replace
+     * the one returned by {@link #getCompilationUnit}. The editor tree is entered again on
+     * the lane once the scratch tree is no longer needed.
+     *
+     * @return the scratch tree, or null if the parse failed or a newer scratch parse of the
+     * file superseded it
+     */
+    public JCCompilationUnit parseScratch(JavaFileObject fileObject) {
+        CompletableFuture<JCCompilationUnit> future = new CompletableFuture<>();
+        URI uri = fileObject.toUri();
+        scheduler.schedule(getLane(), URI.create(uri + "#scratch"), fileObject, 0,
+                () -> reparse(fileObject, false), future::complete);
+        // the restore is coalesced separately, so it never replaces a pending update
+        scheduler.schedule(getLane(), URI.create(uri + "#restore"), 300,
+                () -> getEnteredCompilationUnit(uri), __ -> {
+                });
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs the work on the lane of this {@link CompilationInfo} and waits for its result.
+     * Anything that reads the trees or uses the javac task must run there, so it never sees
+     * a tree that is being reparsed or a context that is being modified. The trees are
+     * obtained with {@link #getEnteredCompilationUnit(URI)}. Must not be called from the lane
+     * itself, the work would wait for the work that is waiting for it.
+     *
+     * @return the result of the work, or null if it failed
+     */
+    public <T> T runOnLane(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        URI key = URI.create("work:" + workCount.incrementAndGet());
+        scheduler.schedule(getLane(), key, 0, work, future::complete);
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the editor tree of the file with its classes entered in the javac context, the
+     * tree is parsed again if a scratch parse replaced it. Must be called on the lane, see
+     * {@link #runOnLane(Supplier)}.
+     *
+     * @return the tree, or null if the file has no tree
+     */
+    public JCCompilationUnit getEnteredCompilationUnit(URI uri) {
+        JCCompilationUnit unit = compiledMap.get(uri);
+        if (unit == null || enteredMap.get(uri) == unit) {
+            return unit;
+        }
+        JavaFileObject source = sourceMap.get(uri);
+        return source != null ? reparse(source, true) : null;
+    }
+
     public void update(JavaFileObject fileObject) {
         this.update(fileObject, 300, __ -> {
         });
@@ -96,62 +197,163 @@ public class CompilationInfo {
         });
     }
 
-    public synchronized void update(JavaFileObject fileObject,
-                                    long delay,
-                                    Consumer<JCCompilationUnit> treeConsumer) {
-        debouncerStore.registerOrGetDebouncer("update").debounce(delay, () -> {
-            synchronized (parseLock) {
-                try {
-                    JavacTaskImpl javacTask = impl.getJavacTask();
-
-                    NBLog log = NBLog.instance(javacTask.getContext());
-                    log.useSource(fileObject);
-
-                    Set<Pair<JavaFileObject, Integer>> toRemove = new HashSet<>();
-                    for (Pair<JavaFileObject, Integer> pair : log.getRecorded()) {
-                        if (pair.fst.toUri().equals(fileObject.toUri())) {
-                            toRemove.add(pair);
-                        }
-                    }
-                    log.getRecorded().removeAll(toRemove);
-                    log.removeDiagnostics(fileObject.toUri());
-
-
-                    JCCompilationUnit previous = compiledMap.get(fileObject.toUri());
-                    if (previous != null) {
-                        NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
-                        enter.unenter(previous, previous);
-                        enter.removeCompilationUnit(fileObject);
-                    }
-
-
-                    // reparse the whole file
-                    Iterable<? extends CompilationUnitTree> units;
-                    try {
-                        units = javacTask.parse(fileObject);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-
-                    if (previous != null) {
-                        ((JCCompilationUnit) units.iterator().next()).toplevelScope = previous.toplevelScope;
-                    }
-
-                    if (!units.iterator().hasNext()) {
-                        return;
-                    }
-                    javacTask.analyze();
-
-                    JCCompilationUnit newUnit = (JCCompilationUnit) units.iterator().next();
-                    compiledMap.put(fileObject.toUri(), newUnit);
-
-                    treeConsumer.accept((JCCompilationUnit) units.iterator().next());
-                } catch (Throwable t) {
-                    System.out.println(t);
-                    treeConsumer.accept(null);
+    /**
+     * Schedules a reparse of the file. Updates of the same file that arrive before the
+     * reparse starts are coalesced, and an update of a file that is being reparsed aborts
+     * the running reparse. Files of different modules are reparsed in parallel.
+     *
+     * @param treeConsumer receives the tree of this file object, or null if the reparse
+     *                     failed or was superseded by a newer update, called on a
+     *                     background thread
+     */
+    public void update(JavaFileObject fileObject,
+                       long delay,
+                       Consumer<JCCompilationUnit> treeConsumer) {
+        scheduler.schedule(getLane(), fileObject.toUri(), fileObject, delay,
+                () -> reparse(fileObject, true), treeConsumer);
+    }
+
+    /**
+     * Makes javac read the class files of the classes again after they were rewritten in the
+     * {@link #getInjectedClassesDirectory injected classes directory}. Classes that javac
+     * has not seen yet are entered, since their package may have been listed before their
+     * class files were written. Only the class symbols are reset; files that use the classes
+     * see the new members the next time they are reparsed.
+     *
+     * @param classNames the binary names of the classes, including their nested classes
+     */
+    public void reloadClasses(Collection<String> classNames) {
+        scheduler.schedule(getLane(), RELOAD_CLASSES_KEY, 0, () -> {
+            reload(classNames);
+            return Boolean.TRUE;
+        }, __ -> {
+        });
+    }
+
+    private void reload(Collection<String> classNames) {
+        Context context = impl.getJavacTask().getContext();
+        Symtab symtab = Symtab.instance(context);
+        Names names = Names.instance(context);
+        ClassFinder classFinder = ClassFinder.instance(context);
+        JavaFileManager fileManager = context.get(JavaFileManager.class);
+        Symbol.ModuleSymbol module = Modules.instance(context).getDefaultModule();
+        if (module == null) {
+            module = symtab.noModule;
+        }
+
+        for (String className : classNames) {
+            JavaFileObject classFile;
+            try {
+                classFile = fileManager.getJavaFileForInput(StandardLocation.CLASS_PATH,
+                        className, JavaFileObject.Kind.CLASS);
+            } catch (IOException e) {
+                classFile = null;
+            }
+            if (classFile == null) {
+                continue;
+            }
+
+            Name flatName = names.fromString(className);
+            Symbol.ClassSymbol symbol = symtab.getClass(module, flatName);
+            if (symbol == null) {
+                symbol = symtab.enterClass(module, flatName);
+                Symbol.PackageSymbol packageSymbol = symbol.packge();
+                if (packageSymbol.members_field != null) {
+                    packageSymbol.members_field.enterIfAbsent(symbol);
                 }
             }
-        });
+            symbol.reset();
+            symbol.classfile = classFile;
+            symbol.completer = classFinder.getCompleter();
+        }
+    }
+
+    private synchronized ReparseScheduler.Lane getLane() {
+        if (lane == null) {
+            CancelService cancelService =
+                    CancelService.instance(impl.getJavacTask().getContext());
+            lane = scheduler.createLane("CompilationInfo@" + Integer.toHexString(hashCode()),
+                    cancelService instanceof ReparseScheduler.CancelHandler
+                            ? (ReparseScheduler.CancelHandler) cancelService
+                            : null);
+        }
+        return lane;
+    }
+
+    /**
+     * Reparses and analyzes the file, only called from the lane of this
+     * {@link CompilationInfo} so it never runs concurrently with itself.
+     *
+     * <p>If the reparse is aborted, e.g. because it was superseded, the new tree is unentered
+     * again. A file whose editor tree was being replaced has no tree until it is reparsed
+     * successfully.
+     *
+     * @param editor whether the tree replaces the editor tree of the file, false for a
+     *               scratch parse
+     */
+    private JCCompilationUnit reparse(JavaFileObject fileObject, boolean editor) {
+        JavacTaskImpl javacTask = impl.getJavacTask();
+
+        NBLog log = NBLog.instance(javacTask.getContext());
+        log.useSource(fileObject);
+
+        Set<Pair<JavaFileObject, Integer>> toRemove = new HashSet<>();
+        for (Pair<JavaFileObject, Integer> pair : log.getRecorded()) {
+            if (pair.fst.toUri().equals(fileObject.toUri())) {
+                toRemove.add(pair);
+            }
+        }
+        log.getRecorded().removeAll(toRemove);
+        log.removeDiagnostics(fileObject.toUri());
+
+
+        NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
+        if (editor) {
+            // the previous tree is unentered, it must not be handed out anymore
+            compiledMap.remove(fileObject.toUri());
+            sourceMap.remove(fileObject.toUri());
+        }
+        JCCompilationUnit previous = enteredMap.remove(fileObject.toUri());
+        if (previous != null) {
+            enter.unenter(previous, previous);
+            enter.removeCompilationUnit(fileObject);
+        }
+
+        JCCompilationUnit newUnit = null;
+        try {
+            // reparse the whole file
+            Iterable<? extends CompilationUnitTree> units;
+            try {
+                units = javacTask.parse(fileObject);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            if (!units.iterator().hasNext()) {
+                return null;
+            }
+
+            newUnit = (JCCompilationUnit) units.iterator().next();
+            if (previous != null) {
+                newUnit.toplevelScope = previous.toplevelScope;
+            }
+
+            javacTask.analyze();
+        } catch (RuntimeException | Error e) {
+            // don't leave a half entered tree behind, the next reparse would not unenter it
+            if (newUnit != null) {
+                enter.unenter(newUnit, newUnit);
+                enter.removeCompilationUnit(fileObject);
+            }
+            throw e;
+        }
+
+        enteredMap.put(fileObject.toUri(), newUnit);
+        if (editor) {
+            compiledMap.put(fileObject.toUri(), newUnit);
+            sourceMap.put(fileObject.toUri(), fileObject);
+        }
+        return newUnit;
     }
 
     public JCCompilationUnit getCompilationUnit(JavaFileObject fileObject) {
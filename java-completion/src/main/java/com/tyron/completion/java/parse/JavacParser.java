@@ -54,6 +54,7 @@ public class JavacParser {
             final boolean detached) {
         Context context = new Context();
         NBLog.preRegister(context, new PrintWriter(new NullWriter()));
+        ReparseCancelService.preRegister(context);
 
         List<String> options = new ArrayList<>();
         Collections.addAll(options, "-bootclasspath", joinPath(Arrays.asList(BuildModule.getAndroidJar(), BuildModule.getLambdaStubs())));
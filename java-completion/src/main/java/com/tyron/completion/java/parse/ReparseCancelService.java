@@ -0,0 +1,46 @@
+package com.tyron.completion.java.parse;
+
+import com.sun.tools.javac.util.Context;
+import com.tyron.completion.java.compiler.services.CancelService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link CancelService} of the javac context of a {@link CompilationInfo}, lets the
+ * {@link ReparseScheduler} abort a reparse that has been superseded.
+ */
+public class ReparseCancelService extends CancelService implements ReparseScheduler.CancelHandler {
+
+    public static void preRegister(Context context) {
+        context.put(cancelServiceKey, new ReparseCancelService());
+    }
+
+    private final AtomicBoolean canceled = new AtomicBoolean();
+    // the thread running the reparse that can be canceled, other work on the context never is
+    private volatile Thread running;
+
+    ReparseCancelService() {
+    }
+
+    @Override
+    public void reset() {
+        canceled.set(false);
+        running = Thread.currentThread();
+    }
+
+    @Override
+    public void cancel() {
+        canceled.set(true);
+    }
+
+    @Override
+    public void finish() {
+        running = null;
+        canceled.set(false);
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled.get() && running == Thread.currentThread();
+    }
+}
@@ -0,0 +1,421 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.tyron.common.logging.IdeLog;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedules reparses of source files in the background.
+ *
+ * <p>Work is submitted to a {@link Lane}, the reparses of a lane run one at a time because
+ * they share a javac context, while different lanes run in parallel. Updates of the same file
+ * that are still waiting are coalesced into one reparse. An update of a file that is currently
+ * being reparsed supersedes it: the lane's {@link CancelHandler} is asked to abort the running
+ * reparse.
+ *
+ * <p>Callers may tell which source they want a result for. A caller only receives the result of
+ * a newer reparse if it was scheduled for the same source, otherwise it receives the result of
+ * its own reparse, or null if that reparse was aborted or dropped.
+ */
+public class ReparseScheduler {
+
+    private static final Logger LOG = IdeLog.getCurrentLogger(ReparseScheduler.class);
+
+    /**
+     * Aborts the work running in a lane, e.g. through the {@code CancelService}
+     * of its javac context. A cancel only applies to the work it was requested for.
+     */
+    public interface CancelHandler {
+
+        /**
+         * Called on the thread that is about to run a reparse of the lane
+         */
+        void reset();
+
+        /**
+         * Called when the running reparse has been superseded by a newer one
+         */
+        void cancel();
+
+        /**
+         * Called once the running reparse has finished, whether it was canceled or not
+         */
+        void finish();
+    }
+
+    private static ReparseScheduler sInstance;
+
+    public static synchronized ReparseScheduler getInstance() {
+        if (sInstance == null) {
+            int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+            sInstance = new ReparseScheduler(threads);
+        }
+        return sInstance;
+    }
+
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicLong mParseCount = new AtomicLong();
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+    private final AtomicLong mCancelCount = new AtomicLong();
+    private final AtomicLong mTotalParseNanos = new AtomicLong();
+    private final AtomicLong mMaxParseNanos = new AtomicLong();
+    private final AtomicLong mTotalLatencyNanos = new AtomicLong();
+
+    @VisibleForTesting
+    public ReparseScheduler(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        mExecutor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "Reparse-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        mExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @param name          used for logging
+     * @param cancelHandler aborts a running reparse of this lane, may be null if the
+     *                      work cannot be aborted
+     */
+    @NonNull
+    public Lane createLane(@NonNull String name, @Nullable CancelHandler cancelHandler) {
+        return new Lane(name, cancelHandler);
+    }
+
+    /**
+     * Schedules a reparse of the file, the consumer accepts the result of any newer reparse.
+     *
+     * @see #schedule(Lane, URI, Object, long, Supplier, Consumer)
+     */
+    public <T> void schedule(@NonNull Lane lane, @NonNull URI uri, long delay,
+                             @NonNull Supplier<T> work, @NonNull Consumer<? super T> consumer) {
+        schedule(lane, uri, null, delay, work, consumer);
+    }
+
+    /**
+     * Schedules a reparse of the file.
+     *
+     * @param lane     the lane the work runs on
+     * @param uri      the file being reparsed, used to coalesce updates
+     * @param source   the source being parsed, the consumer is only given the result of a
+     *                 newer reparse of an equal source. Null if any newer result will do.
+     * @param delay    the time in milliseconds to wait for further updates of the file
+     * @param work     the reparse, returns null or throws if it failed
+     * @param consumer receives the result of this reparse or of one that superseded it, null
+     *                 if it failed or was dropped. Called on a background thread.
+     */
+    public <T> void schedule(@NonNull Lane lane, @NonNull URI uri, @Nullable Object source,
+                             long delay, @NonNull Supplier<T> work,
+                             @NonNull Consumer<? super T> consumer) {
+        lane.schedule(uri, source, Math.max(0, delay), work, consumer);
+    }
+
+    /**
+     * @return the number of reparses waiting to run in every lane
+     */
+    public int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    public long getParseCount() {
+        return mParseCount.get();
+    }
+
+    /**
+     * @return the number of updates that were merged into a reparse that was already waiting
+     */
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    /**
+     * @return the number of running reparses that were superseded
+     */
+    public long getCancelCount() {
+        return mCancelCount.get();
+    }
+
+    /**
+     * @return the average time in milliseconds a reparse takes to run
+     */
+    public double getAverageParseTime() {
+        long count = mParseCount.get();
+        return count == 0 ? 0 : mTotalParseNanos.get() / (double) count / 1_000_000;
+    }
+
+    public long getMaxParseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(mMaxParseNanos.get());
+    }
+
+    /**
+     * @return the average time in milliseconds from the moment a reparse is due until its
+     * result is delivered, including the time spent waiting for the lane
+     */
+    public double getAverageLatency() {
+        long count = mParseCount.get();
+        return count == 0 ? 0 : mTotalLatencyNanos.get() / (double) count / 1_000_000;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ReparseScheduler{" +
+               "queueDepth=" + getQueueDepth() +
+               ", parses=" + getParseCount() +
+               ", coalesced=" + getCoalescedCount() +
+               ", canceled=" + getCancelCount() +
+               ", avgParseMs=" + getAverageParseTime() +
+               ", maxParseMs=" + getMaxParseTime() +
+               ", avgLatencyMs=" + getAverageLatency() +
+               '}';
+    }
+
+    private static class Waiter {
+        final Object source;
+        final Consumer<Object> consumer;
+
+        Waiter(Object source, Consumer<Object> consumer) {
+            this.source = source;
+            this.consumer = consumer;
+        }
+
+        boolean accepts(Object source) {
+            return this.source == null || this.source.equals(source);
+        }
+    }
+
+    private static class Request {
+        final URI uri;
+        Supplier<?> work;
+        final List<Waiter> waiters = new ArrayList<>(1);
+        long dueAt;
+        boolean superseded;
+
+        Request(URI uri) {
+            this.uri = uri;
+        }
+
+        /**
+         * Removes the waiters that don't accept the result of the given source
+         */
+        void removeWaiters(Object source, List<Waiter> removed) {
+            Iterator<Waiter> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (!waiter.accepts(source)) {
+                    iterator.remove();
+                    removed.add(waiter);
+                }
+            }
+        }
+    }
+
+    /**
+     * A serial queue of reparses, usually one for each javac context.
+     */
+    public class Lane {
+
+        private final String mName;
+        private final CancelHandler mCancelHandler;
+
+        @GuardedBy("this")
+        private final Map<URI, Request> mPending = new LinkedHashMap<>();
+        @GuardedBy("this")
+        private Request mRunning;
+        @GuardedBy("this")
+        private ScheduledFuture<?> mDrain;
+        @GuardedBy("this")
+        private long mDrainAt;
+
+        private Lane(String name, CancelHandler cancelHandler) {
+            mName = name;
+            mCancelHandler = cancelHandler;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void schedule(URI uri, Object source, long delay, Supplier<T> work,
+                                  Consumer<? super T> consumer) {
+            long dueAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            List<Waiter> dropped = new ArrayList<>(0);
+
+            synchronized (this) {
+                Request request = mPending.get(uri);
+                if (request != null) {
+                    mCoalescedCount.incrementAndGet();
+                    // the work they were waiting for is replaced
+                    request.removeWaiters(source, dropped);
+                } else {
+                    request = new Request(uri);
+                    mPending.put(uri, request);
+                    mQueueDepth.incrementAndGet();
+                }
+                request.work = work;
+                request.dueAt = dueAt;
+                request.waiters.add(new Waiter(source, (Consumer<Object>) consumer));
+
+                if (mRunning != null && mRunning.uri.equals(uri) && !mRunning.superseded) {
+                    // the running reparse is outdated, the callers that accept the result of
+                    // this one get it instead, the others keep waiting for the running one
+                    mRunning.superseded = true;
+                    List<Waiter> moved = new ArrayList<>();
+                    for (Waiter waiter : mRunning.waiters) {
+                        if (waiter.accepts(source)) {
+                            moved.add(waiter);
+                        }
+                    }
+                    mRunning.waiters.removeAll(moved);
+                    request.waiters.addAll(0, moved);
+                    mCancelCount.incrementAndGet();
+                    if (mCancelHandler != null) {
+                        mCancelHandler.cancel();
+                    }
+                }
+
+                scheduleDrain(dueAt);
+            }
+
+            deliver(uri, dropped, null);
+        }
+
+        @GuardedBy("this")
+        private void scheduleDrain(long dueAt) {
+            if (mRunning != null) {
+                // drained again once the running reparse finishes
+                return;
+            }
+            if (mDrain != null) {
+                if (mDrainAt - dueAt <= 0) {
+                    return;
+                }
+                mDrain.cancel(false);
+            }
+            mDrainAt = dueAt;
+            mDrain = mExecutor.schedule(this::drain, Math.max(0, dueAt - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+        }
+
+        private void drain() {
+            Request request;
+            synchronized (this) {
+                mDrain = null;
+                if (mRunning != null) {
+                    return;
+                }
+                request = pollDue(System.nanoTime());
+                if (request == null) {
+                    scheduleNextDrain();
+                    return;
+                }
+                mRunning = request;
+                mQueueDepth.decrementAndGet();
+                if (mCancelHandler != null) {
+                    mCancelHandler.reset();
+                }
+            }
+
+            long start = System.nanoTime();
+            Object result = null;
+            try {
+                result = request.work.get();
+            } catch (Throwable t) {
+                if (!request.superseded) {
+                    LOG.log(Level.WARNING, "Reparse of " + request.uri + " failed", t);
+                }
+            }
+            long end = System.nanoTime();
+
+            List<Waiter> waiters;
+            synchronized (this) {
+                // cleared while holding the lock, a cancel can't arrive after it
+                if (mCancelHandler != null) {
+                    mCancelHandler.finish();
+                }
+                mRunning = null;
+                waiters = new ArrayList<>(request.waiters);
+                request.waiters.clear();
+                scheduleNextDrain();
+            }
+
+            if (!request.superseded) {
+                mParseCount.incrementAndGet();
+                mTotalParseNanos.addAndGet(end - start);
+                mMaxParseNanos.accumulateAndGet(end - start, Math::max);
+                mTotalLatencyNanos.addAndGet(end - request.dueAt);
+            }
+            deliver(request.uri, waiters, result);
+        }
+
+        private void deliver(URI uri, List<Waiter> waiters, Object result) {
+            for (Waiter waiter : waiters) {
+                try {
+                    waiter.consumer.accept(result);
+                } catch (Throwable t) {
+                    LOG.log(Level.WARNING, "Reparse consumer of " + uri + " failed", t);
+                }
+            }
+        }
+
+        @GuardedBy("this")
+        private Request pollDue(long now) {
+            Iterator<Request> iterator = mPending.values().iterator();
+            while (iterator.hasNext()) {
+                Request next = iterator.next();
+                if (next.dueAt - now <= 0) {
+                    iterator.remove();
+                    return next;
+                }
+            }
+            return null;
+        }
+
+        @GuardedBy("this")
+        private void scheduleNextDrain() {
+            long earliest = Long.MAX_VALUE;
+            boolean found = false;
+            for (Request request : mPending.values()) {
+                if (!found || request.dueAt - earliest < 0) {
+                    earliest = request.dueAt;
+                    found = true;
+                }
+            }
+            if (found) {
+                scheduleDrain(earliest);
+            }
+        }
+
+        public synchronized int getQueueDepth() {
+            return mPending.size();
+        }
+
+        public synchronized boolean isRunning() {
+            return mRunning != null;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Lane{" + mName + '}';
+        }
+    }
+}
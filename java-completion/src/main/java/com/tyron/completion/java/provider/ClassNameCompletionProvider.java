@@ -15,7 +15,6 @@ import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.ShortNamesCache;
 import com.tyron.completion.java.compiler.JavaCompilerService;
 import com.tyron.completion.java.insert.ClassImportInsertHandler;
-import com.tyron.completion.java.util.ActionUtil;
 import com.tyron.completion.model.CompletionItem;
 import com.tyron.completion.model.CompletionList;
 
@@ -82,18 +81,13 @@ public class ClassNameCompletionProvider extends BaseCompletionProvider {
         final Module module = task.getProject().getModule(fileToComplete);
         ShortNamesCache cache = ShortNamesCache.getInstance(module);
 
-        for (String className : cache.getAllClassNames()) {
+        cache.processAllClassNames((simpleName, fullyQualifiedName) -> {
             // more strict on matching class names
-            String simpleName = ActionUtil.getSimpleName(className);
-            if (!predicate.test(simpleName)) {
-                continue;
+            if (predicate.test(simpleName)) {
+                uniques.add(fullyQualifiedName.toString());
             }
-            if (uniques.contains(className)) {
-                continue;
-            }
-
-            uniques.add(className);
-        }
+            return true;
+        });
 
         return new ArrayList<>(uniques);
     }
@@ -79,8 +79,8 @@ public class Completions {
             StringBuilder pruned = new PruneMethodBodies(task.task).scan(task.root, index);
             int end = StringSearch.endOfLine(pruned, (int) index);
             pruned.insert(end, ';');
-            if (compiler.compiler.getCurrentContext() != null) {
-                contents = new FileContentFixer(compiler.compiler.getCurrentContext()).fixFileContent(
+            if (compiler.getCurrentContext() != null) {
+                contents = new FileContentFixer(compiler.getCurrentContext()).fixFileContent(
                         pruned);
             } else {
                 contents = pruned.toString();
@@ -132,9 +132,7 @@ public class Completions {
 
             if (cancelled || e instanceof ProcessCanceledException) {
                 compiler.close();
-                if (compiler.getCompileBatch() != null) {
-                    compiler.getCompileBatch().borrow.close();
-                }
+                compiler.releaseCachedCompile();
                 throw e;
             }
 
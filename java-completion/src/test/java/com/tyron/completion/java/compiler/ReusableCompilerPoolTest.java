@@ -0,0 +1,104 @@
+package com.tyron.completion.java.compiler;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ReusableCompilerPoolTest {
+
+    private static final List<String> OPTIONS = Arrays.asList("-source", "1.8");
+
+    @Test
+    public void testReuseSameKey() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(2, Long.MAX_VALUE);
+
+        ReusableCompiler first = pool.acquire("app", OPTIONS);
+        pool.release(first);
+        ReusableCompiler second = pool.acquire("app", OPTIONS);
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(pool.getHitCount()).isEqualTo(1);
+        assertThat(pool.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDifferentOptionsAreNotShared() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(2, Long.MAX_VALUE);
+
+        ReusableCompiler first = pool.acquire("app", OPTIONS);
+        pool.release(first);
+        ReusableCompiler second = pool.acquire("app", Collections.emptyList());
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(pool.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentCheckoutsGetDifferentCompilers() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(2, Long.MAX_VALUE);
+
+        ReusableCompiler first = pool.acquire("app", OPTIONS);
+        ReusableCompiler second = pool.acquire("app", OPTIONS);
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(pool.idleCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvictedWhenFull() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(1, Long.MAX_VALUE);
+
+        ReusableCompiler app = pool.acquire("app", OPTIONS);
+        pool.release(app);
+        ReusableCompiler library = pool.acquire("library", OPTIONS);
+
+        assertThat(library).isNotSameInstanceAs(app);
+        assertThat(pool.size()).isEqualTo(1);
+        assertThat(pool.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testIdleCompilersExpire() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(2, -1);
+
+        pool.release(pool.acquire("app", OPTIONS));
+        pool.evictIdle();
+
+        assertThat(pool.size()).isEqualTo(0);
+        assertThat(pool.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReleaseTwiceHasNoEffect() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(1, Long.MAX_VALUE);
+
+        ReusableCompiler compiler = pool.acquire("app", OPTIONS);
+        pool.release(compiler);
+        pool.release(compiler);
+
+        assertThat(pool.idleCount()).isEqualTo(1);
+        assertThat(pool.acquire("app", OPTIONS)).isSameInstanceAs(compiler);
+    }
+
+    @Test
+    public void testAcquireFallsBackOutsideThePoolAfterTimeout() {
+        ReusableCompilerPool pool = new ReusableCompilerPool(1, Long.MAX_VALUE, 0);
+
+        ReusableCompiler leased = pool.acquire("app", OPTIONS);
+        ReusableCompiler fallback = pool.acquire("app", OPTIONS);
+
+        assertThat(fallback).isNotSameInstanceAs(leased);
+        assertThat(pool.getTimeoutCount()).isEqualTo(1);
+        assertThat(pool.size()).isEqualTo(1);
+
+        // returning the fallback must not hand out a permit the pool never gave
+        pool.release(fallback);
+        pool.release(leased);
+        assertThat(pool.acquire("app", OPTIONS)).isSameInstanceAs(leased);
+        assertThat(pool.getTimeoutCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.tyron.completion.java.compiler;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class SourceIdentifierIndexTest {
+
+    private static final Path MAIN = Paths.get("Main.java");
+    private static final Path OTHER = Paths.get("Other.java");
+
+    @Test
+    public void testTokenize() {
+        assertThat(SourceIdentifierIndex.tokenize("int x1 = 0xFF + foo.bar_baz();"))
+                .containsExactly("int", "x1", "foo", "bar_baz");
+    }
+
+    @Test
+    public void testUpdateReplacesIdentifiers() {
+        SourceIdentifierIndex index = new SourceIdentifierIndex();
+        index.update(MAIN, "class Main { String name; }", 0);
+        index.update(OTHER, "class Other { String other; }", 0);
+
+        assertThat(index.getFiles("String")).containsExactly(MAIN, OTHER);
+
+        index.update(MAIN, "class Main { int name; }", 1);
+        assertThat(index.getFiles("String")).containsExactly(OTHER);
+        assertThat(index.containsWord(MAIN, "int")).isTrue();
+        assertThat(index.isUpToDate(MAIN, 1)).isTrue();
+        assertThat(index.isUpToDate(MAIN, 2)).isFalse();
+    }
+
+    @Test
+    public void testFilesContainingAll() {
+        SourceIdentifierIndex index = new SourceIdentifierIndex();
+        index.update(MAIN, "import java.util.List; class Main {}", 0);
+        index.update(OTHER, "class Other { List list; }", 0);
+
+        assertThat(index.getFilesContainingAll(Arrays.asList("java", "util", "List")))
+                .containsExactly(MAIN);
+    }
+
+    @Test
+    public void testPrefixAndRemoval() {
+        SourceIdentifierIndex index = new SourceIdentifierIndex();
+        index.update(MAIN, "class Main { void onCreate() {} }", 0);
+        index.update(OTHER, "class Other { void onClick() {} }", 0);
+
+        assertThat(index.getFilesWithPrefix("onC")).containsExactly(MAIN, OTHER);
+
+        index.retainAll(Arrays.asList(OTHER));
+        assertThat(index.getFilesWithPrefix("onC")).containsExactly(OTHER);
+        assertThat(index.containsWord(MAIN, "Main")).isNull();
+    }
+}
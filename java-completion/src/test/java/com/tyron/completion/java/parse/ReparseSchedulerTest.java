@@ -0,0 +1,184 @@
+package com.tyron.completion.java.parse;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReparseSchedulerTest {
+
+    private static final URI FILE = URI.create("file:///Main.java");
+    private static final URI OTHER_FILE = URI.create("file:///Other.java");
+
+    @Test
+    public void testUpdatesOfTheSameFileAreCoalesced() throws InterruptedException {
+        ReparseScheduler scheduler = new ReparseScheduler(2);
+        ReparseScheduler.Lane lane = scheduler.createLane("test", null);
+
+        AtomicInteger runs = new AtomicInteger();
+        List<String> results = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            String contents = "version " + i;
+            scheduler.schedule(lane, FILE, 100, () -> {
+                runs.incrementAndGet();
+                return contents;
+            }, result -> {
+                results.add(result);
+                latch.countDown();
+            });
+        }
+        assertThat(lane.getQueueDepth()).isEqualTo(1);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(results).containsExactly("version 2", "version 2", "version 2");
+        assertThat(scheduler.getCoalescedCount()).isEqualTo(2);
+        assertThat(scheduler.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRunningReparseIsSuperseded() throws InterruptedException {
+        ReparseScheduler scheduler = new ReparseScheduler(2);
+        AtomicBoolean canceled = new AtomicBoolean();
+        ReparseScheduler.Lane lane = scheduler.createLane("test",
+                new ReparseScheduler.CancelHandler() {
+                    @Override
+                    public void reset() {
+                        canceled.set(false);
+                    }
+
+                    @Override
+                    public void cancel() {
+                        canceled.set(true);
+                    }
+
+                    @Override
+                    public void finish() {
+                        canceled.set(false);
+                    }
+                });
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> results = new CopyOnWriteArrayList<>();
+        scheduler.<String>schedule(lane, FILE, 0, () -> {
+            started.countDown();
+            // a javac context aborts once its cancel service is canceled
+            while (!canceled.get()) {
+                Thread.yield();
+            }
+            throw new IllegalStateException("canceled");
+        }, result -> {
+            results.add(result);
+            done.countDown();
+        });
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        scheduler.schedule(lane, FILE, 0, () -> "newer", result -> {
+            results.add(result);
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        // both callers receive the result of the newer reparse
+        assertThat(results).containsExactly("newer", "newer");
+        assertThat(scheduler.getCancelCount()).isEqualTo(1);
+        assertThat(scheduler.getParseCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResultOfAnotherSourceIsNotShared() throws InterruptedException {
+        ReparseScheduler scheduler = new ReparseScheduler(2);
+        ReparseCancelService cancelService = new ReparseCancelService();
+        ReparseScheduler.Lane lane = scheduler.createLane("test", cancelService);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        scheduler.<String>schedule(lane, FILE, "first", 0, () -> {
+            started.countDown();
+            while (!cancelService.isCanceled()) {
+                Thread.yield();
+            }
+            throw new IllegalStateException("canceled");
+        }, result -> {
+            first.add(String.valueOf(result));
+            done.countDown();
+        });
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // other threads using the context are not affected by the cancel
+        scheduler.schedule(lane, FILE, "second", 0, () -> "second", result -> {
+            second.add(result);
+            done.countDown();
+        });
+        assertThat(cancelService.isCanceled()).isFalse();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first).containsExactly("null");
+        assertThat(second).containsExactly("second");
+        assertThat(cancelService.isCanceled()).isFalse();
+    }
+
+    @Test
+    public void testLanesRunInParallel() throws InterruptedException {
+        ReparseScheduler scheduler = new ReparseScheduler(2);
+        ReparseScheduler.Lane first = scheduler.createLane("first", null);
+        ReparseScheduler.Lane second = scheduler.createLane("second", null);
+
+        // each reparse waits for the other one, this only finishes if both run at once
+        CountDownLatch barrier = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        List<Boolean> results = new CopyOnWriteArrayList<>();
+        for (ReparseScheduler.Lane lane : new ReparseScheduler.Lane[]{first, second}) {
+            scheduler.schedule(lane, FILE, 0, () -> {
+                barrier.countDown();
+                try {
+                    return barrier.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }, result -> {
+                results.add(result);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(results).containsExactly(true, true);
+    }
+
+    @Test
+    public void testFilesOfALaneRunOneAtATime() throws InterruptedException {
+        ReparseScheduler scheduler = new ReparseScheduler(4);
+        ReparseScheduler.Lane lane = scheduler.createLane("test", null);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(2);
+        for (URI uri : new URI[]{FILE, OTHER_FILE}) {
+            scheduler.schedule(lane, uri, 0, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                running.decrementAndGet();
+                return uri;
+            }, result -> done.countDown());
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(scheduler.getParseCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,72 @@
+package com.tyron.kotlin_completion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the files whose analysis results are kept in memory. The results of the most
+ * recently used files are kept while the total weight of the files, the length of their
+ * sources, fits in the budget. The other results should be dropped and computed again when
+ * they are needed.
+ */
+class AnalysisCache<K> {
+
+    private final Map<K, Integer> mWeights = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBudget;
+    private long mWeight;
+
+    AnalysisCache(long budget) {
+        mBudget = budget;
+    }
+
+    synchronized void setBudget(long budget) {
+        mBudget = budget;
+    }
+
+    synchronized long getWeight() {
+        return mWeight;
+    }
+
+    /**
+     * Records that the results of the key were computed or used
+     */
+    synchronized void put(K key, int weight) {
+        Integer previous = mWeights.put(key, weight);
+        if (previous != null) {
+            mWeight -= previous;
+        }
+        mWeight += weight;
+    }
+
+    synchronized void remove(K key) {
+        Integer previous = mWeights.remove(key);
+        if (previous != null) {
+            mWeight -= previous;
+        }
+    }
+
+    /**
+     * Forgets the least recently used keys until the weight fits in the budget.
+     *
+     * @param keep the keys that are in use and must not be evicted
+     * @return the evicted keys, whose results should be dropped
+     */
+    synchronized List<K> trim(Collection<K> keep) {
+        List<K> evicted = new ArrayList<>();
+        Iterator<Map.Entry<K, Integer>> iterator = mWeights.entrySet().iterator();
+        while (mWeight > mBudget && iterator.hasNext()) {
+            Map.Entry<K, Integer> entry = iterator.next();
+            if (keep.contains(entry.getKey())) {
+                continue;
+            }
+            mWeight -= entry.getValue();
+            evicted.add(entry.getKey());
+            iterator.remove();
+        }
+        return evicted;
+    }
+}
@@ -93,6 +93,19 @@ public class CompilerClassPath implements Closeable {
         return compiler;
     }
 
+    public AndroidModule getProject() {
+        return mProject;
+    }
+
+    /**
+     * @return the jars the files are compiled against
+     */
+    public Set<Path> getClassPath() {
+        synchronized (mClassPath) {
+            return mClassPath.stream().map(ClassPathEntry::getCompiledJar).collect(Collectors.toSet());
+        }
+    }
+
     @Override
     public void close() throws IOException {
 
@@ -70,6 +70,10 @@ public class CompletionEngine {
         return INSTANCE;
     }
 
+    /**
+     * @return whether the symbol index is being updated, completion doesn't wait for it and
+     * uses the symbols of the last update meanwhile
+     */
     public boolean isIndexing() {
         return sp.getIndex().getIndexing();
     }
@@ -104,10 +108,6 @@ public class CompletionEngine {
     }
 
     public CompletableFuture<CompletionList> complete(File file, String contents, int cursor) {
-        if (isIndexing()) {
-            return CompletableFuture.completedFuture(CompletionList.EMPTY);
-        }
-
         return async.compute(() -> {
             Pair<CompiledFile, Integer> pair = recover(file, contents, Recompile.NEVER, cursor);
             return new Completions().completions(pair.getFirst(), cursor, sp.getIndex());
@@ -116,10 +116,6 @@ public class CompletionEngine {
 
     public CompletionList complete(File file, String contents, String prefix, int line,
                                    int column, int cursor) {
-        if (isIndexing()) {
-            return CompletionList.EMPTY;
-        }
-
         if (isIncrementalCompletion(cachedCompletion, file, prefix, line, column)) {
             String partialIdentifier = partialIdentifier(prefix, prefix.length());
             CompletionList cachedList = cachedCompletion.getCompletionList();
@@ -14,7 +14,10 @@ import org.jetbrains.kotlin.com.intellij.psi.PsiFile;
 import org.jetbrains.kotlin.container.ComponentProvider;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
+import org.jetbrains.kotlin.name.FqName;
+import org.jetbrains.kotlin.name.FqNamesUtilKt;
 import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtImportDirective;
 import org.jetbrains.kotlin.resolve.BindingContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,9 +29,12 @@ import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -43,22 +49,24 @@ public class SourcePath {
     private static final Logger LOG = LoggerFactory.getLogger(SourcePath.class);
 
     private final CompilerClassPath cp;
-    private final Map<URI, SourceFile> files = new HashMap<>();
-    private final FakeLock parsedDataWriteLock = new FakeLock();
+    private final Map<URI, SourceFile> files = new ConcurrentHashMap<>();
+    private final ReentrantLock parsedDataWriteLock = new ReentrantLock();
 
-    public static class FakeLock {
-        public void lock() {}
-        public void unlock() {}
-    }
+    /**
+     * The files whose binding contexts are kept, the contexts of the others are dropped once
+     * their sources are larger than the budget
+     */
+    private final AnalysisCache<SourceFile> analysisCache = new AnalysisCache<>(DEFAULT_ANALYSIS_BUDGET);
+    private static final long DEFAULT_ANALYSIS_BUDGET = 1024 * 1024;
 
     private final AsyncExecutor indexAsync = new AsyncExecutor();
-    private final SymbolIndex index = new SymbolIndex();
-    private boolean indexEnabled = false;
-    private boolean indexInitialized;
+    private final SymbolIndex index;
 
 
     public SourcePath(CompilerClassPath classPath) {
         cp = classPath;
+        index = new SymbolIndex(new File(classPath.getProject().getBuildDirectory(),
+                "intermediate/kotlin/symbols"));
     }
 
     public CompilerClassPath getCompilerClassPath() {
@@ -69,6 +77,13 @@ public class SourcePath {
         return index;
     }
 
+    /**
+     * Sets how many characters of sources may have their binding contexts kept in memory
+     */
+    public void setAnalysisBudget(long characters) {
+        analysisCache.setBudget(characters);
+    }
+
     public class SourceFile {
 
         private final URI uri;
@@ -76,6 +91,7 @@ public class SourcePath {
         private final Path path;
         private KtFile parsed;
         private KtFile compiledFile;
+        private int compiledHash;
         public BindingContext compiledContext;
         private ComponentProvider compiledcontainer;
         private final Language language;
@@ -111,9 +127,32 @@ public class SourcePath {
 
         public void clean() {
             parsed = null;
+            invalidate();
+        }
+
+        /**
+         * Drops the analysis of this file, it is analyzed again the next time it is needed
+         */
+        private void invalidate() {
             compiledFile = null;
             compiledContext = null;
             compiledcontainer = null;
+            analysisCache.remove(this);
+        }
+
+        /**
+         * @return whether the contents changed since the file was last analyzed
+         */
+        private boolean isChanged() {
+            return compiledFile == null || compiledHash != content.hashCode();
+        }
+
+        private void setCompiled(KtFile file, BindingContext context, ComponentProvider container) {
+            compiledContext = context;
+            compiledcontainer = container;
+            compiledFile = file;
+            compiledHash = file.getText().hashCode();
+            analysisCache.put(this, content.length());
         }
 
         public void parse() {
@@ -156,9 +195,9 @@ public class SourcePath {
                 Pair<BindingContext, ComponentProvider> pair = cp.getCompiler().compileKtFile(parsed, allIncludingThis());
                 parsedDataWriteLock.lock();
                 try {
-                    compiledContext = pair.getFirst();
-                    compiledcontainer = pair.getSecond();
-                    compiledFile = parsed;
+                    setCompiled(parsed, pair.getFirst(), pair.getSecond());
+                    invalidateDependents(Collections.singleton(this));
+                    trimAnalysisCache(Collections.singleton(this));
                 } finally {
                     parsedDataWriteLock.unlock();
                 }
@@ -216,36 +255,117 @@ public class SourcePath {
         files.remove(file.toURI());
     }
 
+    /**
+     * Analyzes the files whose contents changed since they were last analyzed, together with
+     * the given files that depend on them. The other given files reuse their last analysis.
+     *
+     * @return the binding context of all the given files
+     */
     public BindingContext compileFiles(Collection<File> all) {
-        Set<SourceFile> sources = all.stream().map(o -> files.get(o.toURI())).collect(Collectors.toSet());
-        Set<SourceFile> allChanged = sources.stream().filter(it -> {
-            if (it.compiledFile == null) {
-                return true;
+        parsedDataWriteLock.lock();
+        try {
+            Set<SourceFile> sources = all.stream().map(o -> files.get(o.toURI())).collect(Collectors.toSet());
+            Set<SourceFile> allChanged = sources.stream()
+                    .filter(SourceFile::isChanged)
+                    .collect(Collectors.toSet());
+            if (!allChanged.isEmpty()) {
+                parseAll(allChanged);
+                // files that may resolve differently are analyzed in the same batch if they
+                // were asked for, the others are analyzed again when they are needed
+                for (SourceFile dependent : invalidateDependents(allChanged)) {
+                    if (sources.contains(dependent)) {
+                        allChanged.add(dependent);
+                    }
+                }
             }
-            return !it.content.equals(it.compiledFile.getText());
-        })
+            BindingContext sourcesContext = compileAndUpdate(allChanged);
+            BindingContext context = UtilKt.util(sourcesContext, sources, allChanged);
+            trimAnalysisCache(sources);
+            return context;
+        } finally {
+            parsedDataWriteLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the analysis of the files that may depend on the declarations of the changed
+     * files, those in the same packages or importing from them.
+     *
+     * @return the files that were invalidated
+     */
+    private Set<SourceFile> invalidateDependents(Set<SourceFile> changed) {
+        Set<FqName> packages = changed.stream()
+                .filter(it -> it.parsed != null)
+                .map(it -> it.parsed.getPackageFqName())
                 .collect(Collectors.toSet());
-        BindingContext sourcesContext = compileAndUpdate(allChanged);
-        return UtilKt.util(sourcesContext, sources, allChanged);
+        Set<SourceFile> dependents = new HashSet<>();
+        for (SourceFile file : files.values()) {
+            if (file.isTemporary || changed.contains(file) || file.compiledFile == null) {
+                continue;
+            }
+            if (dependsOn(file.compiledFile, packages)) {
+                file.invalidate();
+                dependents.add(file);
+            }
+        }
+        return dependents;
+    }
+
+    private static boolean dependsOn(KtFile file, Set<FqName> packages) {
+        if (packages.contains(file.getPackageFqName())) {
+            return true;
+        }
+        for (KtImportDirective directive : file.getImportDirectives()) {
+            FqName imported = directive.getImportedFqName();
+            if (imported == null) {
+                continue;
+            }
+            for (FqName pkg : packages) {
+                if (FqNamesUtilKt.isSubpackageOf(imported, pkg)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void trimAnalysisCache(Collection<SourceFile> inUse) {
+        for (SourceFile evicted : analysisCache.trim(inUse)) {
+            LOG.debug("Dropping the analysis of " + evicted.path);
+            evicted.invalidate();
+        }
+    }
+
+    /**
+     * Parses the changed files, the files do not depend on each other so they are parsed
+     * in parallel
+     */
+    private static void parseAll(Collection<SourceFile> sources) {
+        if (sources.size() > 1) {
+            sources.parallelStream().forEach(SourceFile::parseIfChanged);
+        } else {
+            sources.forEach(SourceFile::parseIfChanged);
+        }
     }
 
+    /**
+     * Updates the symbol index with the jars and files that changed since they were indexed,
+     * the index is kept on disk so nothing is walked again if nothing changed. Completion
+     * keeps using the symbols of the last update meanwhile.
+     */
     private void initializeIndexAsyncIfNeeded(ComponentProvider container) {
+        Set<KtFile> sources = all(false);
         indexAsync.execute(() -> {
-            if (indexEnabled && !indexInitialized) {
-                ModuleDescriptor module = (ModuleDescriptor) container.resolve(ModuleDescriptor.class).getValue();
-                index.refresh(module, true);
-                indexInitialized = true;
-            }
+            ModuleDescriptor module = (ModuleDescriptor) container.resolve(ModuleDescriptor.class).getValue();
+            index.update(module, cp.getClassPath(), sources);
         });
     }
 
 
     private BindingContext compileAndUpdate(Set<SourceFile> changed) {
         if (changed.isEmpty()) return null;
-        Map<SourceFile, KtFile> parse = CollectionsKt.associateWith(changed, sourceFile -> {
-            sourceFile.parseIfChanged();
-            return sourceFile.parsed;
-        });
+        parseAll(changed);
+        Map<SourceFile, KtFile> parse = CollectionsKt.associateWith(changed, sourceFile -> sourceFile.parsed);
         Set<KtFile> all = all(false);
         Pair<BindingContext, ComponentProvider> pair = cp.getCompiler()
                 .compileKtFiles(parse.values(), all, CompletionKind.DEFAULT);
@@ -254,9 +374,7 @@ public class SourcePath {
             parsedDataWriteLock.lock();
             try {
                 if (f.parsed.equals(parsed)) {
-                    f.compiledFile = parsed;
-                    f.compiledContext = pair.getFirst();
-                    f.compiledcontainer = pair.getSecond();
+                    f.setCompiled(parsed, pair.getFirst(), pair.getSecond());
                 }
             } finally {
                 parsedDataWriteLock.unlock();
@@ -268,14 +386,24 @@ public class SourcePath {
     }
 
     public CompiledFile currentVersion(File file) {
-        SourceFile sourceFile = sourceFile(file);
-        sourceFile.compileIfChanged();
-        return sourceFile.prepareCompiledFile();
+        parsedDataWriteLock.lock();
+        try {
+            SourceFile sourceFile = sourceFile(file);
+            sourceFile.compileIfChanged();
+            return sourceFile.prepareCompiledFile();
+        } finally {
+            parsedDataWriteLock.unlock();
+        }
     }
 
     public CompiledFile latestCompiledVersion(File file) {
-        SourceFile sourceFile = sourceFile(file);
-        return sourceFile.prepareCompiledFile();
+        parsedDataWriteLock.lock();
+        try {
+            SourceFile sourceFile = sourceFile(file);
+            return sourceFile.prepareCompiledFile();
+        } finally {
+            parsedDataWriteLock.unlock();
+        }
     }
 
     private SourceFile sourceFile(File file) {
@@ -291,12 +419,11 @@ public class SourcePath {
         return files.get(file.toURI());
     }
     private Set<KtFile> all(boolean includeHidden) {
-        return files.values().stream()
+        List<SourceFile> sources = files.values().stream()
                 .filter(it -> includeHidden || !it.isTemporary)
-                .map(it -> {
-                    it.parseIfChanged();
-                    return it.parsed;
-                }).collect(Collectors.toSet());
+                .collect(Collectors.toList());
+        parseAll(sources);
+        return sources.stream().map(it -> it.parsed).collect(Collectors.toSet());
     }
 
 }
@@ -3,25 +3,36 @@ package com.tyron.kotlin_completion.index
 import android.util.Log
 import com.tyron.kotlin_completion.util.PsiUtils
 import org.jetbrains.exposed.sql.*
+import org.jetbrains.exposed.sql.transactions.TransactionManager
 import org.jetbrains.exposed.sql.transactions.transaction
 import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.psi.KtFile
 import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
+import java.io.File
+import java.io.IOException
 import java.lang.IllegalStateException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.sql.Connection
 import java.time.Duration
 import java.time.Instant
+import java.util.zip.ZipFile
 import kotlin.sequences.Sequence
 
 private const val MAX_FQNAME_LENGTH = 255
 private const val MAX_SHORT_NAME_LENGTH = 80
+private const val MAX_PATH_LENGTH = 1024
 
 private object Symbols : Table() {
     val fqName = varchar("fqname", length = MAX_FQNAME_LENGTH) references FqNames.fqName
     val kind = integer("kind")
     val visibility = integer("visibility")
     val extensionReceiverType = varchar("extensionreceivertype", length = MAX_FQNAME_LENGTH).nullable()
+    val packageName = varchar("package", length = MAX_FQNAME_LENGTH).index()
 
     override val primaryKey = PrimaryKey(fqName)
 }
@@ -32,19 +43,73 @@ private object FqNames : Table() {
 
     override val primaryKey = PrimaryKey(fqName)
 }
-class SymbolIndex {
-    private val db = Database.connect("jdbc:h2:mem:symbolindex;DB_CLOSE_DELAY=-1", "org.h2.Driver")
 
-    var indexing: Boolean = false
+/**
+ * The class path entries and source files whose symbols are in the index, with the
+ * fingerprint they had when they were indexed.
+ */
+private object IndexedSources : Table() {
+    val path = varchar("path", length = MAX_PATH_LENGTH)
+    val fingerprint = varchar("fingerprint", length = 64)
+
+    override val primaryKey = PrimaryKey(path)
+}
+
+/**
+ * The packages each indexed source contributes symbols to.
+ */
+private object SourcePackages : Table() {
+    val path = varchar("path", length = MAX_PATH_LENGTH).index()
+    val packageName = varchar("package", length = MAX_FQNAME_LENGTH)
+}
+
+/**
+ * The result of the last update of the index.
+ */
+data class IndexStats(
+    val duration: Duration,
+    val updatedPackages: Int,
+    val symbolCount: Long,
+    val sizeInBytes: Long
+)
 
-    init {
-       transaction (db) {
-           SchemaUtils.create(Symbols, FqNames)
-       }
+/**
+ * The index of the symbols that can be imported, used to complete names that are not in scope.
+ *
+ * If a [directory] is given, the index is kept in a database there and survives restarts.
+ * Each class path entry and source file is stored with a fingerprint so that [update] only
+ * walks the packages of the entries that changed since they were indexed. The database is
+ * opened the first time the index is used.
+ *
+ * While the index is being updated, queries see the symbols of the last completed update.
+ */
+class SymbolIndex(private val directory: File? = null) {
+    private val db by lazy {
+        val url = if (directory == null) {
+            "jdbc:h2:mem:symbolindex;DB_CLOSE_DELAY=-1"
+        } else {
+            directory.mkdirs()
+            "jdbc:h2:file:${File(directory, "symbols").absolutePath};DB_CLOSE_DELAY=-1"
+        }
+        // queries only see the symbols of committed updates, the repeatable read default
+        // of Exposed also fails on H2 1.4.200 with a NullPointerException in the session
+        val db = Database.connect(url, "org.h2.Driver")
+        TransactionManager.managerFor(db)?.defaultIsolationLevel = Connection.TRANSACTION_READ_COMMITTED
+        transaction(db) {
+            SchemaUtils.createMissingTablesAndColumns(Symbols, FqNames, IndexedSources, SourcePackages)
+        }
+        db
     }
 
+    @Volatile
+    var indexing: Boolean = false
+
+    @Volatile
+    var lastStats: IndexStats? = null
+        private set
+
     fun refresh(module: ModuleDescriptor, forced: Boolean = true) {
-        val started = System.currentTimeMillis()
+        val started = Instant.now()
         Log.d("SymbolIndex", "Updating symbol index...");
 
         indexing = true
@@ -52,41 +117,114 @@ class SymbolIndex {
             transaction(db) {
                 if (forced) {
                     Symbols.deleteAll()
+                    IndexedSources.deleteAll()
+                    SourcePackages.deleteAll()
                 }
-                for (descriptor in allDescriptors(module)) {
-                    val descriptorFqn = PsiUtils.getFqNameSafe(descriptor)
-                    val extensionReceiverFqn = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
-
-                    if (canStoreFqName(descriptorFqn) && (extensionReceiverFqn?.let { canStoreFqName(it) } != false)) {
-
-                        for (fqn in listOfNotNull(descriptorFqn, extensionReceiverFqn)) {
-                            FqNames.replace {
-                                it[fqName] = fqn.toString()
-                                it[shortName] = fqn.shortName().toString()
-                            }
-                        }
-
-
-                        Symbols.replace {
-                            it[fqName] = descriptorFqn.toString()
-                            it[kind] = descriptor.accept(ExtractSymbolKind, Unit).rawValue
-                            it[visibility] = descriptor.accept(ExtractSymbolVisibility, Unit).rawValue
-                            it[extensionReceiverType] = extensionReceiverFqn?.toString()
-                        }
-                    } else {
-                        Log.w("SymbolIndex",
-                            "Excluding symbol $descriptorFqn from index since its name is too long"
-                        );
-                    }
-                }
+                val packages = allPackages(module).toList()
+                packages.forEach { addSymbols(module, it) }
+                report(started, packages.size)
+            }
+        } catch (e: Exception) {
+            Log.e("SymbolIndex", "Error while updating symbol index", e);
+        } finally {
+            indexing = false
+        }
+    }
+
+    /**
+     * Brings the index up to date with the given class path and source files. Only the
+     * packages of the jars and files that were added, removed or changed since they were
+     * last indexed are walked again.
+     *
+     * @param module the module the class path and the files were analyzed in
+     * @param classPath the jars of the module
+     * @param files the source files of the module
+     */
+    fun update(module: ModuleDescriptor, classPath: Collection<Path>, files: Collection<KtFile>) {
+        val started = Instant.now()
+
+        indexing = true
+        try {
+            val current = HashMap<String, String>()
+            val filePackages = HashMap<String, String>()
+            for (jar in classPath) {
+                current[jar.toString()] = fingerprint(jar) ?: continue
+            }
+            for (file in files) {
+                val path = file.virtualFilePath
+                val text = file.text
+                current[path] = "${text.length}:${text.hashCode()}"
+                filePackages[path] = file.packageFqName.asString()
+            }
 
-                indexing = false
+            val packages = updateSources(current,
+                { path -> filePackages[path]?.let { setOf(it) } ?: packagesOf(Paths.get(path)) },
+                { pkg -> addSymbols(module, FqName(pkg)) })
+            if (packages.isNotEmpty()) {
+                transaction(db) { report(started, packages.size) }
             }
         } catch (e: Exception) {
             Log.e("SymbolIndex", "Error while updating symbol index", e);
+        } finally {
+            indexing = false
         }
     }
 
+    /**
+     * Compares the fingerprints of the sources with the ones they were indexed with, and walks
+     * again the packages of the sources that were added, removed or changed. The packages a
+     * changed source contributed to before the change are walked as well. Nothing is recorded
+     * if the walk fails, the sources are then walked again by the next update.
+     *
+     * @param current the fingerprint of each source, by path
+     * @param packagesOf the packages a source contributes to, only asked for changed sources
+     * @param addSymbols adds the symbols of a package to the index
+     * @return the packages that were walked again
+     */
+    internal fun updateSources(
+        current: Map<String, String>,
+        packagesOf: (String) -> Set<String>,
+        addSymbols: (String) -> Unit
+    ): Set<String> = transaction(db) {
+        val indexed = IndexedSources.selectAll()
+            .associate { it[IndexedSources.path] to it[IndexedSources.fingerprint] }
+        val changed = HashMap<String, Set<String>>()
+        for ((path, fingerprint) in current) {
+            if (indexed[path] != fingerprint) {
+                changed[path] = packagesOf(path)
+            }
+        }
+        val removed = indexed.keys - current.keys
+
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return@transaction emptySet<String>()
+        }
+
+        // the packages the changed entries contributed to before and after the change
+        val stale = changed.keys + removed
+        val packages = HashSet<String>()
+        changed.values.forEach { packages.addAll(it) }
+        SourcePackages.select { SourcePackages.path inList stale }
+            .mapTo(packages) { it[SourcePackages.packageName] }
+
+        Symbols.deleteWhere { Symbols.packageName inList packages }
+        SourcePackages.deleteWhere { SourcePackages.path inList stale }
+        IndexedSources.deleteWhere { IndexedSources.path inList stale }
+
+        packages.forEach(addSymbols)
+        for ((path, pkgs) in changed) {
+            IndexedSources.insert {
+                it[IndexedSources.path] = path
+                it[fingerprint] = current.getValue(path)
+            }
+            SourcePackages.batchInsert(pkgs) { pkg ->
+                this[SourcePackages.path] = path
+                this[SourcePackages.packageName] = pkg
+            }
+        }
+        packages
+    }
+
     fun query(prefix: String, receiverType: FqName? = null, limit: Int = 20): List<Symbol> {
         val start = Instant.now()
         try {
@@ -108,23 +246,90 @@ class SymbolIndex {
         }
     }
 
+    private fun Transaction.report(started: Instant, updatedPackages: Int) {
+        val stats = IndexStats(
+            duration = Duration.between(started, Instant.now()),
+            updatedPackages = updatedPackages,
+            symbolCount = Symbols.selectAll().count(),
+            sizeInBytes = directory?.listFiles()?.sumOf { it.length() } ?: 0L
+        )
+        lastStats = stats
+        Log.d("SymbolIndex", "Indexed $updatedPackages packages in ${stats.duration.toMillis()} ms, " +
+                "the index holds ${stats.symbolCount} symbols in ${stats.sizeInBytes} bytes")
+    }
+
+    private fun addSymbols(module: ModuleDescriptor, pkg: FqName) {
+        for (descriptor in descriptorsOf(module, pkg)) {
+            val descriptorFqn = PsiUtils.getFqNameSafe(descriptor)
+            val extensionReceiverFqn = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
+
+            if (canStoreFqName(descriptorFqn) && (extensionReceiverFqn?.let { canStoreFqName(it) } != false)) {
+
+                for (fqn in listOfNotNull(descriptorFqn, extensionReceiverFqn)) {
+                    FqNames.replace {
+                        it[fqName] = fqn.toString()
+                        it[shortName] = fqn.shortName().toString()
+                    }
+                }
+
+
+                Symbols.replace {
+                    it[fqName] = descriptorFqn.toString()
+                    it[kind] = descriptor.accept(ExtractSymbolKind, Unit).rawValue
+                    it[visibility] = descriptor.accept(ExtractSymbolVisibility, Unit).rawValue
+                    it[extensionReceiverType] = extensionReceiverFqn?.toString()
+                    it[packageName] = pkg.asString()
+                }
+            } else {
+                Log.w("SymbolIndex",
+                    "Excluding symbol $descriptorFqn from index since its name is too long"
+                );
+            }
+        }
+    }
+
     private fun canStoreFqName(fqName: FqName) =
         fqName.toString().length <= MAX_FQNAME_LENGTH
                 && fqName.shortName().toString().length <= MAX_SHORT_NAME_LENGTH
 
-    private fun allDescriptors(module: ModuleDescriptor) : Sequence<DeclarationDescriptor> = allPackages(module)
-        .map(module::getPackage)
-        .flatMap {
-            try {
-                it.memberScope.getContributedDescriptors(DescriptorKindFilter.ALL, MemberScope.ALL_NAME_FILTER)
-            } catch (e: IllegalStateException) {
-                Log.w("SymbolIndex", "Couldn't query descriptors in package $it")
-                emptyList()
-            }
+    private fun descriptorsOf(module: ModuleDescriptor, pkg: FqName) : Collection<DeclarationDescriptor> =
+        try {
+            module.getPackage(pkg).memberScope.getContributedDescriptors(DescriptorKindFilter.ALL, MemberScope.ALL_NAME_FILTER)
+        } catch (e: IllegalStateException) {
+            Log.w("SymbolIndex", "Couldn't query descriptors in package $pkg")
+            emptyList()
         }
 
     private fun allPackages(module: ModuleDescriptor, pkgName: FqName = FqName.ROOT) : Sequence<FqName> = module
         .getSubPackagesOf(pkgName) { it.toString()  != "META-INF"}
         .asSequence()
         .flatMap { sequenceOf(it) + allPackages(module, it) }
-}
\ No newline at end of file
+
+    private fun fingerprint(jar: Path): String? = try {
+        "${Files.size(jar)}:${Files.getLastModifiedTime(jar).toMillis()}"
+    } catch (e: IOException) {
+        null
+    }
+
+    /**
+     * @return the packages of the classes in the jar
+     */
+    private fun packagesOf(jar: Path): Set<String> {
+        val packages = HashSet<String>()
+        try {
+            ZipFile(jar.toFile()).use { zip ->
+                for (entry in zip.entries()) {
+                    val name = entry.name
+                    if (!name.endsWith(".class") || name.startsWith("META-INF/")) {
+                        continue
+                    }
+                    val slash = name.lastIndexOf('/')
+                    packages.add(if (slash == -1) "" else name.substring(0, slash).replace('/', '.'))
+                }
+            }
+        } catch (e: IOException) {
+            Log.w("SymbolIndex", "Couldn't read the packages of $jar", e)
+        }
+        return packages
+    }
+}
@@ -0,0 +1,50 @@
+package com.tyron.kotlin_completion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AnalysisCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() {
+        AnalysisCache<String> cache = new AnalysisCache<>(10);
+        cache.put("a", 4);
+        cache.put("b", 4);
+        cache.put("a", 4);
+        cache.put("c", 4);
+
+        List<String> evicted = cache.trim(Collections.emptySet());
+        assertEquals(Collections.singletonList("b"), evicted);
+        assertEquals(8, cache.getWeight());
+    }
+
+    @Test
+    public void testKeptKeysAreNotEvicted() {
+        AnalysisCache<String> cache = new AnalysisCache<>(5);
+        cache.put("a", 4);
+        cache.put("b", 4);
+        cache.put("c", 4);
+
+        List<String> evicted = cache.trim(Arrays.asList("a", "b"));
+        assertEquals(Collections.singletonList("c"), evicted);
+        assertEquals(8, cache.getWeight());
+    }
+
+    @Test
+    public void testReplacingUpdatesTheWeight() {
+        AnalysisCache<String> cache = new AnalysisCache<>(10);
+        cache.put("a", 8);
+        cache.put("a", 2);
+        assertEquals(2, cache.getWeight());
+
+        cache.remove("a");
+        assertEquals(0, cache.getWeight());
+        assertTrue(cache.trim(Collections.emptySet()).isEmpty());
+    }
+}
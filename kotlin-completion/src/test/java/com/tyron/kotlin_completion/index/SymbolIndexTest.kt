@@ -0,0 +1,96 @@
+package com.tyron.kotlin_completion.index
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class SymbolIndexTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val packages = mapOf(
+        "lib.jar" to setOf("lib", "lib.util"),
+        "Main.kt" to setOf("app"),
+        "Other.kt" to setOf("app.other")
+    )
+
+    private fun SymbolIndex.update(sources: Map<String, String>): Set<String> {
+        val walked = HashSet<String>()
+        val updated = updateSources(sources, { packages.getValue(it) }, { walked.add(it) })
+        assertEquals(walked, updated)
+        return updated
+    }
+
+    @Test
+    fun testFirstUpdateWalksAllPackages() {
+        val index = SymbolIndex(folder.newFolder())
+
+        val updated = index.update(mapOf("lib.jar" to "1", "Main.kt" to "1"))
+        assertEquals(setOf("lib", "lib.util", "app"), updated)
+    }
+
+    @Test
+    fun testUnchangedSourcesAreNotWalked() {
+        val index = SymbolIndex(folder.newFolder())
+        index.update(mapOf("lib.jar" to "1", "Main.kt" to "1"))
+
+        assertTrue(index.update(mapOf("lib.jar" to "1", "Main.kt" to "1")).isEmpty())
+    }
+
+    @Test
+    fun testOnlyPackagesOfChangedSourcesAreWalked() {
+        val index = SymbolIndex(folder.newFolder())
+        index.update(mapOf("lib.jar" to "1", "Main.kt" to "1", "Other.kt" to "1"))
+
+        val updated = index.update(mapOf("lib.jar" to "1", "Main.kt" to "2", "Other.kt" to "1"))
+        assertEquals(setOf("app"), updated)
+    }
+
+    @Test
+    fun testPackagesOfRemovedSourcesAreWalked() {
+        val index = SymbolIndex(folder.newFolder())
+        index.update(mapOf("lib.jar" to "1", "Main.kt" to "1"))
+
+        val updated = index.update(mapOf("Main.kt" to "1"))
+        assertEquals(setOf("lib", "lib.util"), updated)
+        assertTrue(index.update(mapOf("Main.kt" to "1")).isEmpty())
+    }
+
+    @Test
+    fun testPreviousPackagesOfChangedSourceAreWalked() {
+        val index = SymbolIndex(folder.newFolder())
+        val moved = HashMap(packages)
+        index.updateSources(mapOf("Main.kt" to "1"), { moved.getValue(it) }, { })
+
+        moved["Main.kt"] = setOf("app.moved")
+        val walked = HashSet<String>()
+        index.updateSources(mapOf("Main.kt" to "2"), { moved.getValue(it) }, { walked.add(it) })
+        assertEquals(setOf("app", "app.moved"), walked)
+    }
+
+    @Test
+    fun testIndexIsKeptAcrossInstances() {
+        val directory = folder.newFolder()
+        SymbolIndex(directory).update(mapOf("lib.jar" to "1", "Main.kt" to "1"))
+
+        val reopened = SymbolIndex(directory)
+        assertTrue(reopened.update(mapOf("lib.jar" to "1", "Main.kt" to "1")).isEmpty())
+        assertEquals(setOf("app"), reopened.update(mapOf("lib.jar" to "1", "Main.kt" to "2")))
+    }
+
+    @Test
+    fun testFailedUpdateIsDoneAgain() {
+        val index = SymbolIndex(folder.newFolder())
+        try {
+            index.updateSources(mapOf("Main.kt" to "1"), { packages.getValue(it) },
+                { throw IllegalStateException() })
+        } catch (e: IllegalStateException) {
+            // expected
+        }
+
+        assertEquals(setOf("app"), index.update(mapOf("Main.kt" to "1")))
+    }
+}
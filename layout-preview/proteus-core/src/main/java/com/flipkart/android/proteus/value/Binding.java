@@ -29,10 +29,10 @@ import com.flipkart.android.proteus.toolbox.Result;
 import com.flipkart.android.proteus.toolbox.SimpleArrayIterator;
 import com.flipkart.android.proteus.toolbox.Utils;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.StringTokenizer;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import androidx.annotation.NonNull;
@@ -88,23 +88,36 @@ public abstract class Binding extends Value {
 
   /**
    * This function returns a {@code Binding} object holding the
-   * value extracted from the specified {@code String}
+   * value extracted from the specified {@code String}. Parsed bindings are
+   * cached by their expression, so a binding repeated across a layout is only
+   * tokenized once.
    *
    * @param value   the value to be parsed.
    * @param context the {@link Context} of the caller.
    * @param manager the {@link FunctionManager} to evaluate function bindings.
    */
   public static Binding valueOf(@NonNull final String value, ProteusContext context, FunctionManager manager) {
-    Matcher matcher = BINDING_PATTERN.matcher(value);
-    if (matcher.find()) {
-      if (matcher.group(3) != null) { // It is data binding
-        return DataBinding.valueOf(matcher.group(3));
-      } else { // It is function binding
-        return FunctionBinding.valueOf(matcher.group(1), matcher.group(2), context, manager);
-      }
-    } else {
+    CachedBinding cached = BindingCache.cache.get(value);
+    if (null != cached && cached.isValidFor(manager)) {
+      return cached.binding;
+    }
+    BindingTokenizer.Expression expression = BindingTokenizer.tokenize(value);
+    if (null == expression) {
       throw new IllegalArgumentException(value + " is not a binding");
     }
+    if (expression.isFunction()) { // It is function binding
+      //noinspection ConstantConditions
+      FunctionBinding binding = FunctionBinding.valueOf(expression.name, expression.arguments, context, manager);
+      if (binding.isContextIndependent()) {
+        BindingCache.cache.put(value, new CachedBinding(binding, manager));
+      }
+      return binding;
+    } else { // It is data binding
+      //noinspection ConstantConditions
+      DataBinding binding = DataBinding.valueOf(expression.path);
+      BindingCache.cache.put(value, new CachedBinding(binding, null));
+      return binding;
+    }
   }
 
   /**
@@ -447,7 +460,7 @@ public abstract class Binding extends Value {
 
     public static FunctionBinding valueOf(@NonNull String name, @NonNull String args, ProteusContext context, @NonNull FunctionManager manager) {
       Function function = manager.get(name);
-      String[] tokens = FUNCTION_ARGS_DELIMITER.split(args);
+      String[] tokens = BindingTokenizer.splitArguments(args);
       Value[] arguments = new Value[tokens.length];
       String token;
       Value resolved;
@@ -479,6 +492,22 @@ public abstract class Binding extends Value {
       return new SimpleArrayIterator<>(this.arguments);
     }
 
+    /**
+     * Styles are looked up in the resources of the context the binding was parsed with,
+     * a binding with a style argument can not be reused by another context.
+     */
+    boolean isContextIndependent() {
+      if (null == arguments) {
+        return true;
+      }
+      for (Value argument : arguments) {
+        if (argument.isStyle()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
     @NonNull
     @Override
     public Value evaluate(ProteusContext context, Value data, int index) {
@@ -500,6 +529,32 @@ public abstract class Binding extends Value {
     }
   }
 
+  private static class BindingCache {
+    static final LruCache<String, CachedBinding> cache = new LruCache<>(128);
+  }
+
+  private static class CachedBinding {
+
+    @NonNull
+    final Binding binding;
+
+    /**
+     * The manager the function of a {@link FunctionBinding} was looked up in, a
+     * different manager may map the name to another function.
+     */
+    @Nullable
+    final WeakReference<FunctionManager> manager;
+
+    CachedBinding(@NonNull Binding binding, @Nullable FunctionManager manager) {
+      this.binding = binding;
+      this.manager = null != manager ? new WeakReference<>(manager) : null;
+    }
+
+    boolean isValidFor(FunctionManager manager) {
+      return null == this.manager || this.manager.get() == manager;
+    }
+  }
+
   public static class Token {
 
     @NonNull
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flipkart.android.proteus.value;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * <p>
+ * BindingTokenizer splits a binding expression into the data path or the function name and
+ * arguments it refers to, in a single pass over the string. For expressions on a single
+ * line it accepts the same expressions and produces the same groups as
+ * {@link Binding#BINDING_PATTERN} and {@link Binding#FUNCTION_ARGS_DELIMITER}, without the
+ * backtracking of the look-behinds and look-aheads in those patterns.
+ * </p>
+ */
+final class BindingTokenizer {
+
+  private static final String FUNCTION_PREFIX = "@{fn:";
+
+  private static final char QUOTE = '\'';
+  private static final char ARGUMENT_SEPARATOR = ',';
+  private static final char ARGUMENTS_OPENING = '(';
+
+  private static final String[] NO_ARGUMENTS = new String[0];
+
+  private BindingTokenizer() {
+  }
+
+  /**
+   * Tokenizes a binding expression.
+   *
+   * @param value the expression, such as {@code @{a.b[0]}} or {@code @{fn:add(1,@{a.b})}}.
+   * @return the tokens of the expression or {@code null} if it is not a binding.
+   */
+  @Nullable
+  static Expression tokenize(@NonNull String value) {
+    if (!value.startsWith("@{")) {
+      return null;
+    }
+
+    if (value.startsWith(FUNCTION_PREFIX)) {
+      Expression function = tokenizeFunction(value);
+      if (function != null) {
+        return function;
+      }
+    }
+
+    int end = dataPathEnd(value);
+    if (end <= 2) {
+      return null;
+    }
+    return new Expression(value.substring(2, end), null, null);
+  }
+
+  /**
+   * Splits the arguments of a function binding on the commas that are not within single quotes.
+   * Like {@link java.util.regex.Pattern#split(CharSequence)}, trailing empty arguments are
+   * discarded.
+   */
+  @NonNull
+  static String[] splitArguments(@NonNull String args) {
+    int length = args.length();
+    int quotes = 0;
+    for (int i = 0; i < length; i++) {
+      if (args.charAt(i) == QUOTE) {
+        quotes++;
+      }
+    }
+
+    String[] tokens = new String[4];
+    int count = 0;
+    int start = 0;
+    int seen = 0;
+    char c;
+    for (int i = 0; i < length; i++) {
+      c = args.charAt(i);
+      if (c == QUOTE) {
+        seen++;
+      } else if (c == ARGUMENT_SEPARATOR && ((quotes - seen) & 1) == 0) {
+        if (count == tokens.length) {
+          tokens = Arrays.copyOf(tokens, count * 2);
+        }
+        tokens[count++] = args.substring(start, i);
+        start = i + 1;
+      }
+    }
+
+    if (count == 0) {
+      return new String[]{args};
+    }
+
+    if (count == tokens.length) {
+      tokens = Arrays.copyOf(tokens, count + 1);
+    }
+    tokens[count++] = args.substring(start);
+
+    while (count > 0 && tokens[count - 1].isEmpty()) {
+      count--;
+    }
+    return count == 0 ? NO_ARGUMENTS : Arrays.copyOf(tokens, count);
+  }
+
+  @Nullable
+  private static Expression tokenizeFunction(@NonNull String value) {
+    int start = FUNCTION_PREFIX.length();
+    int open = -1;
+    char c;
+    // the name is at least one character long and contains no whitespace
+    for (int i = start; i < value.length(); i++) {
+      c = value.charAt(i);
+      if (isWhitespace(c)) {
+        return null;
+      }
+      if (c == ARGUMENTS_OPENING && i > start) {
+        open = i;
+        break;
+      }
+    }
+    if (open == -1) {
+      return null;
+    }
+
+    // the arguments run up to the last ")}" on the same line
+    int close = -1;
+    for (int i = open + 1; i < value.length() - 1; i++) {
+      c = value.charAt(i);
+      if (isLineTerminator(c)) {
+        break;
+      }
+      if (c == ')' && value.charAt(i + 1) == Binding.BINDING_SUFFIX) {
+        close = i;
+      }
+    }
+    if (close == -1) {
+      return null;
+    }
+    return new Expression(null, value.substring(start, open), value.substring(open + 1, close));
+  }
+
+  /**
+   * @return the index of the last {@code '}'} that can be reached from the start of the
+   * expression without crossing a line terminator, the end of the data path.
+   */
+  private static int dataPathEnd(@NonNull String value) {
+    int end = -1;
+    char c;
+    for (int i = 2; i < value.length(); i++) {
+      c = value.charAt(i);
+      if (isLineTerminator(c)) {
+        break;
+      }
+      if (c == Binding.BINDING_SUFFIX) {
+        end = i;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * The characters matched by {@code \s}.
+   */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * The characters not matched by {@code .}.
+   */
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  /**
+   * The tokens of a binding expression, either a data path or the name and the raw
+   * arguments of a function.
+   */
+  static final class Expression {
+
+    @Nullable
+    final String path;
+
+    @Nullable
+    final String name;
+
+    @Nullable
+    final String arguments;
+
+    Expression(@Nullable String path, @Nullable String name, @Nullable String arguments) {
+      this.path = path;
+      this.name = name;
+      this.arguments = arguments;
+    }
+
+    boolean isFunction() {
+      return name != null;
+    }
+  }
+}
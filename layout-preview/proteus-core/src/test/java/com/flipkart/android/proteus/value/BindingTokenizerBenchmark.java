@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flipkart.android.proteus.value;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+
+/**
+ * Compares the time taken to tokenize the binding expressions of
+ * {@link BindingTokenizerTest#EXPRESSIONS} with {@link Binding#BINDING_PATTERN} and
+ * {@link Binding#FUNCTION_ARGS_DELIMITER} against {@link BindingTokenizer}.
+ * <p>
+ * It is not run with the unit tests, run its {@code main} method from the IDE.
+ * </p>
+ */
+public class BindingTokenizerBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int ITERATIONS = 200_000;
+
+  private static int sink;
+
+  public static void main(String[] args) {
+    String[] expressions = BindingTokenizerTest.EXPRESSIONS;
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      pattern(expressions);
+      tokenizer(expressions);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      pattern(expressions);
+    }
+    long pattern = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      tokenizer(expressions);
+    }
+    long tokenizer = System.nanoTime() - start;
+
+    long operations = (long) ITERATIONS * expressions.length;
+    System.out.println(String.format(Locale.US, "pattern:   %.1f ns/op", (double) pattern / operations));
+    System.out.println(String.format(Locale.US, "tokenizer: %.1f ns/op", (double) tokenizer / operations));
+    System.out.println(sink);
+  }
+
+  private static void pattern(String[] expressions) {
+    for (String expression : expressions) {
+      Matcher matcher = Binding.BINDING_PATTERN.matcher(expression);
+      if (matcher.find()) {
+        if (matcher.group(3) != null) {
+          sink += matcher.group(3).length();
+        } else {
+          sink += matcher.group(1).length();
+          sink += Binding.FUNCTION_ARGS_DELIMITER.split(matcher.group(2)).length;
+        }
+      }
+    }
+  }
+
+  private static void tokenizer(String[] expressions) {
+    for (String expression : expressions) {
+      BindingTokenizer.Expression tokens = BindingTokenizer.tokenize(expression);
+      if (tokens != null) {
+        if (!tokens.isFunction()) {
+          //noinspection ConstantConditions
+          sink += tokens.path.length();
+        } else {
+          //noinspection ConstantConditions
+          sink += tokens.name.length();
+          //noinspection ConstantConditions
+          sink += BindingTokenizer.splitArguments(tokens.arguments).length;
+        }
+      }
+    }
+  }
+}
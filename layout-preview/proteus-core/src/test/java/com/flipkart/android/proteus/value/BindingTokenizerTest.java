@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Flipkart Internet Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.flipkart.android.proteus.value;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link BindingTokenizer} agrees with {@link Binding#BINDING_PATTERN} and
+ * {@link Binding#FUNCTION_ARGS_DELIMITER}.
+ */
+public class BindingTokenizerTest {
+
+  static final String[] EXPRESSIONS = {
+    "@{a}",
+    "@{a.b.c}",
+    "@{a.e.f[8]}",
+    "@{a[$index].b}",
+    "@{$index}",
+    "@{items.$length}",
+    "@{fn:add(1,2)}",
+    "@{fn:and(@{a.b}, @{a.c})}",
+    "@{fn:format('%s, %s', @{user.first}, @{user.last})}",
+    "@{fn:join('a,b','c\\'d',e)}",
+    "@{fn:noop()}",
+    "@{fn:trailing(a,,)}",
+    "@{fn:empty(,)}",
+    "@{fn:((a))}",
+    "@{fn:not a function(1)}",
+    "@{fn:missing}",
+    "@{fn:unclosed(1}",
+    "@{fn:first(1)} @{fn:second(2)}",
+    "@{a}}",
+  };
+
+  @Test
+  public void tokenizeMatchesPattern() {
+    for (String expression : EXPRESSIONS) {
+      Matcher matcher = Binding.BINDING_PATTERN.matcher(expression);
+      assertTrue(expression, matcher.find());
+      BindingTokenizer.Expression tokens = BindingTokenizer.tokenize(expression);
+      assertTrue(expression, tokens != null);
+      if (matcher.group(3) != null) {
+        assertFalse(expression, tokens.isFunction());
+        assertEquals(expression, matcher.group(3), tokens.path);
+      } else {
+        assertTrue(expression, tokens.isFunction());
+        assertEquals(expression, matcher.group(1), tokens.name);
+        assertEquals(expression, matcher.group(2), tokens.arguments);
+      }
+    }
+  }
+
+  @Test
+  public void splitArgumentsMatchesPattern() {
+    String[] arguments = {
+      "",
+      ",",
+      "1,2",
+      "a,,",
+      ",a",
+      "@{a.b}, @{a.c}",
+      "'%s, %s', @{user.first}, @{user.last}",
+      "'unbalanced, quote",
+      "'a','b,c','d'",
+    };
+    for (String args : arguments) {
+      assertArrayEquals(args, Binding.FUNCTION_ARGS_DELIMITER.split(args),
+        BindingTokenizer.splitArguments(args));
+    }
+  }
+
+  @Test
+  public void tokenizeRejectsNonBindings() {
+    assertNull(BindingTokenizer.tokenize("a.b"));
+    assertNull(BindingTokenizer.tokenize("@{}"));
+    assertNull(BindingTokenizer.tokenize("@{a"));
+  }
+}
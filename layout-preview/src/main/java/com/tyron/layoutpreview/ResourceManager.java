@@ -6,6 +6,7 @@ import com.flipkart.android.proteus.value.Layout;
 import com.flipkart.android.proteus.value.Value;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.api.FileManager;
+import com.tyron.layoutpreview.resource.ResourceCache;
 import com.tyron.layoutpreview.resource.ResourceDrawableParser;
 import com.tyron.layoutpreview.resource.ResourceLayoutParser;
 import com.tyron.layoutpreview.resource.ResourceStringParser;
@@ -19,11 +20,13 @@ public class ResourceManager {
     private final AndroidModule mAndroidModule;
     private final ProteusContext mContext;
     private final FileManager mFileManager;
+    private final ResourceCache mCache;
 
     public ResourceManager(ProteusContext context, AndroidModule module, FileManager fileManager) {
         mAndroidModule = module;
         mContext = context;
         mFileManager = fileManager;
+        mCache = ResourceCache.getInstance(module);
     }
 
     /**
@@ -36,7 +39,7 @@ public class ResourceManager {
 
     public Map<String, DrawableValue> getDrawables() {
         ResourceDrawableParser parser = new ResourceDrawableParser(mContext, mAndroidModule.getAndroidResourcesDirectory(),
-                mFileManager);
+                mFileManager, mCache);
         Map<String, DrawableValue> defaultDrawables = parser.getDefaultDrawables();
 
         for (File library : mAndroidModule.getLibraries()) {
@@ -47,7 +50,7 @@ public class ResourceManager {
 
             File resourcesDir = new File(parent, "res");
             if (resourcesDir.exists()) {
-                parser = new ResourceDrawableParser(mContext, resourcesDir, mFileManager);
+                parser = new ResourceDrawableParser(mContext, resourcesDir, mFileManager, mCache);
                 defaultDrawables.putAll(parser.getDefaultDrawables());
             }
         }
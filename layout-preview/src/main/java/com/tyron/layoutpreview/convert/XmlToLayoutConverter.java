@@ -0,0 +1,229 @@
+package com.tyron.layoutpreview.convert;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.FunctionManager;
+import com.flipkart.android.proteus.ProteusConstants;
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ViewTypeParser;
+import com.flipkart.android.proteus.toolbox.Attributes;
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Value;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER;
+
+/**
+ * Converts XML layouts directly to a Proteus {@link Layout}, producing the same values as
+ * {@link XmlToJsonConverter} followed by {@link ProteusTypeAdapterFactory} without building
+ * the intermediate JSON tree.
+ *
+ * <p>Tag and attribute names are interned since the same names are repeated across every
+ * element and every refresh. The {@link ViewTypeParser} of each type and the attribute ids
+ * of its attribute names are resolved once and reused, so keep an instance of this class
+ * for the lifetime of its {@link ProteusContext}.
+ */
+public class XmlToLayoutConverter {
+
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+
+    private final ProteusContext mContext;
+
+    private final Map<String, ResolvedType> mTypes = new ConcurrentHashMap<>();
+
+    public XmlToLayoutConverter(@NonNull ProteusContext context) {
+        mContext = context;
+    }
+
+    /**
+     * Main entry point for the converter
+     * @param contents The xml string to parse
+     * @return The layout parsed from XML, or an {@link ObjectValue} if its root is not a layout
+     * @throws IOException if an error has occurred while reading the string content
+     * @throws XmlPullParserException if the XML content is malformed
+     * @throws ConvertException if the XML has no root element
+     */
+    public Value convert(String contents) throws IOException, XmlPullParserException, ConvertException {
+        return convert(new StringReader(contents));
+    }
+
+    public Value convert(File file) throws IOException, XmlPullParserException, ConvertException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file))) {
+            return convert(reader);
+        }
+    }
+
+    private Value convert(Reader reader) throws IOException, XmlPullParserException, ConvertException {
+        XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+        parser.setInput(reader);
+        advanceToRootNode(parser);
+
+        return convert(parser);
+    }
+
+    /**
+     * Converts the element at the current position of the parser and its children, the parser
+     * is left at the end tag of the element.
+     */
+    public Value convert(XmlPullParser parser) throws IOException, XmlPullParserException {
+        String type = NAMES.intern(parser.getName());
+        if (!PROTEUS_INSTANCE_HOLDER.isLayout(type)) {
+            return convertObject(type, parser);
+        }
+
+        FunctionManager functions = PROTEUS_INSTANCE_HOLDER.getProteus().functions;
+        ResolvedType resolved = resolve(type);
+        List<Layout.Attribute> attributes = new ArrayList<>(parser.getAttributeCount());
+        ObjectValue extras = new ObjectValue();
+
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            String name = NAMES.intern(parser.getAttributeName(i));
+            Value value = compile(parser.getAttributeValue(i));
+            ViewTypeParser.AttributeSet.Attribute attribute = resolved.getAttribute(name);
+            if (attribute != null) {
+                attributes.add(new Layout.Attribute(attribute.id,
+                        attribute.processor.precompile(value, mContext, functions)));
+            } else {
+                extras.add(name, value);
+            }
+        }
+
+        Array children = convertChildren(parser);
+        if (children.size() > 0) {
+            ViewTypeParser.AttributeSet.Attribute attribute =
+                    resolved.getAttribute(Attributes.ViewGroup.Children);
+            if (attribute != null) {
+                attributes.add(new Layout.Attribute(attribute.id,
+                        attribute.processor.precompile(children, mContext, functions)));
+            } else {
+                extras.add(Attributes.ViewGroup.Children, children);
+            }
+        }
+
+        return new Layout(type, attributes.size() > 0 ? attributes : null, null,
+                extras.entrySet().size() > 0 ? extras : null);
+    }
+
+    /**
+     * Elements that are not layouts, such as vector drawables, are kept as plain objects
+     */
+    private ObjectValue convertObject(String type, XmlPullParser parser)
+            throws IOException, XmlPullParserException {
+        ObjectValue object = new ObjectValue();
+        object.add(ProteusConstants.TYPE, compile(type));
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            object.add(NAMES.intern(parser.getAttributeName(i)),
+                    compile(parser.getAttributeValue(i)));
+        }
+        Array children = convertChildren(parser);
+        if (children.size() > 0) {
+            object.add(Attributes.ViewGroup.Children, children);
+        }
+        return object;
+    }
+
+    private Array convertChildren(XmlPullParser parser) throws IOException, XmlPullParserException {
+        Array children = new Array();
+        final int depth = parser.getDepth();
+        int type;
+
+        while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+
+            children.add(convert(parser));
+        }
+
+        return children;
+    }
+
+    private Value compile(String value) {
+        return ProteusTypeAdapterFactory.compileString(mContext, value);
+    }
+
+    private ResolvedType resolve(String type) {
+        ResolvedType resolved = mTypes.get(type);
+        if (resolved != null) {
+            return resolved;
+        }
+        ViewTypeParser<View> parser = mContext.getParser(type);
+        resolved = new ResolvedType(parser);
+        if (parser != null) {
+            // parsers of custom views may be registered later, only remember the known ones
+            mTypes.put(type, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Advances the given parser to the first START_TAG. Throws ConvertException if no start tag is
+     * found.
+     */
+    private void advanceToRootNode(XmlPullParser parser) throws IOException, XmlPullParserException, ConvertException {
+        int type;
+        while ((type = parser.next()) != XmlPullParser.START_TAG &&
+                type != XmlPullParser.END_DOCUMENT) {
+            // Empty
+        }
+
+        if (type != XmlPullParser.START_TAG) {
+            throw new ConvertException(parser.getPositionDescription()
+                    + ": No start tag found!");
+        }
+    }
+
+    /**
+     * The parser of a type and the attributes it has resolved so far, including the names it
+     * does not handle
+     */
+    private static class ResolvedType {
+
+        @Nullable
+        private final ViewTypeParser<View> mParser;
+
+        private final Map<String, Optional<ViewTypeParser.AttributeSet.Attribute>> mAttributes =
+                new ConcurrentHashMap<>();
+
+        ResolvedType(@Nullable ViewTypeParser<View> parser) {
+            mParser = parser;
+        }
+
+        @Nullable
+        ViewTypeParser.AttributeSet.Attribute getAttribute(String name) {
+            if (mParser == null) {
+                return null;
+            }
+            Optional<ViewTypeParser.AttributeSet.Attribute> attribute = mAttributes.get(name);
+            if (attribute == null) {
+                attribute = Optional.ofNullable(mParser.getAttributeSet().getAttribute(name));
+                mAttributes.put(name, attribute);
+            }
+            return attribute.orElse(null);
+        }
+    }
+}
@@ -0,0 +1,415 @@
+package com.tyron.layoutpreview.inflate;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.DataContext;
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ProteusView;
+import com.flipkart.android.proteus.ViewTypeParser;
+import com.flipkart.android.proteus.toolbox.Attributes;
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Value;
+import com.flipkart.android.proteus.view.UnknownView;
+import com.flipkart.android.proteus.view.UnknownViewGroup;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates a view hierarchy inflated from a {@link Layout} so it matches a newer version of
+ * that layout, without inflating the views that did not change.
+ *
+ * <p>Views of the same type keep their instance, only the attributes whose value changed are
+ * handled again by their {@link ViewTypeParser}. Children are matched by type from the start
+ * and from the end of the list, children that were inserted are inflated and children that
+ * were removed are removed from their parent. A view is inflated again together with its
+ * children when an attribute has to be undone, since there is no way to reset an attribute
+ * that has already been applied, or when its style, theme or data bindings changed.
+ *
+ * <p>The layouts the views were inflated from are updated in place, so the view managers keep
+ * reflecting what is shown. This class must be used on the main thread.
+ */
+public class LayoutDiffer {
+
+    private static final String STYLE = "style";
+    private static final String THEME = "android:theme";
+
+    private final ProteusContext mContext;
+
+    private int mReused;
+    private int mRecreated;
+    private int mUpdatedAttributes;
+
+    public LayoutDiffer(@NonNull ProteusContext context) {
+        mContext = context;
+    }
+
+    /**
+     * Updates the view and its children to match the new layout.
+     *
+     * @param view   a view inflated from a previous version of the layout
+     * @param layout the new version of the layout, it should not be used after this call
+     * @return the outcome of the update, its view replaces the given view in its parent if
+     * it had to be inflated again
+     */
+    @NonNull
+    public Result apply(@NonNull ProteusView view, @NonNull Layout layout) {
+        mReused = 0;
+        mRecreated = 0;
+        mUpdatedAttributes = 0;
+
+        ViewParent parent = view.getAsView().getParent();
+        ProteusView updated = update(view, layout,
+                parent instanceof ViewGroup ? (ViewGroup) parent : null);
+        return new Result(updated, mReused, mRecreated, mUpdatedAttributes);
+    }
+
+    private ProteusView update(ProteusView view, Layout layout, @Nullable ViewGroup parent) {
+        ProteusView.Manager manager = view.getViewManager();
+        ViewTypeParser<View> parser = manager != null ? manager.getViewTypeParser() : null;
+        if (parser == null || view instanceof UnknownView || view instanceof UnknownViewGroup) {
+            return recreate(view, layout, parent);
+        }
+
+        Layout old = manager.getLayout();
+        if (!old.type.equals(layout.type)) {
+            return recreate(view, layout, parent);
+        }
+
+        int childrenId = view.getAsView() instanceof ViewGroup
+                ? parser.getAttributeId(Attributes.ViewGroup.Children) : -1;
+        Map<Integer, Value> oldAttributes = toMap(old.attributes);
+        Map<Integer, Value> newAttributes = toMap(layout.attributes);
+        if (!canUpdate(parser, oldAttributes, newAttributes, childrenId)
+            || !canUpdate(old.extras, layout.extras)) {
+            return recreate(view, layout, parent);
+        }
+
+        Value oldChildren = oldAttributes.remove(childrenId);
+        Value newChildren = newAttributes.remove(childrenId);
+        Array children = null;
+        if (oldChildren != null || newChildren != null) {
+            children = updateChildren(view, oldChildren, newChildren);
+            if (children == null) {
+                return recreate(view, layout, parent);
+            }
+        }
+
+        mReused++;
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            if (!isSame(entry.getValue(), oldAttributes.get(entry.getKey()))) {
+                parser.handleAttribute(parent, view.getAsView(), entry.getKey(), entry.getValue());
+                mUpdatedAttributes++;
+            }
+        }
+        ViewTypeParser<View> parentParser = null;
+        if (parent instanceof ProteusView && ((ProteusView) parent).getViewManager() != null) {
+            parentParser = ((ProteusView) parent).getViewManager().getViewTypeParser();
+        }
+        if (layout.extras != null) {
+            // layout params of the parent that the view's own parser does not know about
+            for (Map.Entry<String, Value> entry : layout.extras.entrySet()) {
+                Value previous = old.extras != null ? old.extras.get(entry.getKey()) : null;
+                if (parentParser != null && !isSame(entry.getValue(), previous)) {
+                    int id = parentParser.getAttributeId(entry.getKey());
+                    if (id != -1) {
+                        parentParser.handleAttribute(parent, view.getAsView(), id,
+                                entry.getValue());
+                        mUpdatedAttributes++;
+                    }
+                }
+            }
+        }
+
+        List<Layout.Attribute> attributes = new ArrayList<>(newAttributes.size() + 1);
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            attributes.add(new Layout.Attribute(entry.getKey(), entry.getValue()));
+        }
+        if (children != null) {
+            attributes.add(new Layout.Attribute(childrenId, children));
+        }
+        old.attributes = attributes.isEmpty() ? null : attributes;
+        old.extras = layout.extras;
+        return view;
+    }
+
+    /**
+     * @return whether the attributes can be updated without inflating the view again
+     */
+    private static boolean canUpdate(ViewTypeParser<View> parser, Map<Integer, Value> oldAttributes,
+                                     Map<Integer, Value> newAttributes, int childrenId) {
+        if (!newAttributes.keySet().containsAll(oldAttributes.keySet())) {
+            return false;
+        }
+        int style = parser.getAttributeId(STYLE);
+        int theme = parser.getAttributeId(THEME);
+        for (Map.Entry<Integer, Value> entry : newAttributes.entrySet()) {
+            int id = entry.getKey();
+            Value value = entry.getValue();
+            Value previous = oldAttributes.get(id);
+            if (id == childrenId || isSame(value, previous)) {
+                continue;
+            }
+            if (id == style || id == theme || value.isBinding()
+                || (previous != null && previous.isBinding())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canUpdate(@Nullable ObjectValue oldExtras,
+                                     @Nullable ObjectValue newExtras) {
+        if (oldExtras == null) {
+            return true;
+        }
+        for (Map.Entry<String, Value> entry : oldExtras.entrySet()) {
+            if (newExtras == null || !newExtras.has(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the layouts of the children once updated, or null if the view has to be
+     * inflated again
+     */
+    @Nullable
+    private Array updateChildren(ProteusView view, @Nullable Value oldValue,
+                                 @Nullable Value newValue) {
+        List<Layout> oldChildren = toLayouts(oldValue);
+        List<Layout> newChildren = toLayouts(newValue);
+        if (oldChildren == null || newChildren == null) {
+            return null;
+        }
+
+        ViewGroup group = (ViewGroup) view.getAsView();
+        Map<Layout, ProteusView> inflated = new IdentityHashMap<>();
+        collectChildren(group, inflated);
+        List<ProteusView> oldViews = new ArrayList<>(oldChildren.size());
+        for (Layout child : oldChildren) {
+            ProteusView childView = inflated.get(child);
+            if (childView == null) {
+                return null;
+            }
+            oldViews.add(childView);
+        }
+
+        int oldSize = oldChildren.size();
+        int newSize = newChildren.size();
+        int start = 0;
+        while (start < oldSize && start < newSize
+               && oldChildren.get(start).type.equals(newChildren.get(start).type)) {
+            start++;
+        }
+        int end = 0;
+        while (end < oldSize - start && end < newSize - start
+               && oldChildren.get(oldSize - 1 - end).type.equals(
+                       newChildren.get(newSize - 1 - end).type)) {
+            end++;
+        }
+
+        // children are inserted before the first child that is kept after them, which
+        // has to be a direct child for its index to be meaningful
+        View anchor = end > 0 ? oldViews.get(oldSize - end).getAsView() : null;
+        if (anchor != null && anchor.getParent() != group && newSize - end > start) {
+            return null;
+        }
+
+        for (int i = start; i < oldSize - end; i++) {
+            View removed = oldViews.get(i).getAsView();
+            if (removed.getParent() instanceof ViewGroup) {
+                ((ViewGroup) removed.getParent()).removeView(removed);
+            }
+        }
+
+        List<ProteusView> views = new ArrayList<>(newSize);
+        for (int i = 0; i < start; i++) {
+            views.add(update(oldViews.get(i), newChildren.get(i), group));
+        }
+        DataContext dataContext = view.getViewManager().getDataContext();
+        for (int i = start; i < newSize - end; i++) {
+            ProteusView child = mContext.getInflater().inflate(newChildren.get(i),
+                    dataContext.getData(), group, dataContext.getIndex());
+            if (anchor != null) {
+                group.addView(child.getAsView(), group.indexOfChild(anchor));
+            } else {
+                group.addView(child.getAsView());
+            }
+            mRecreated += count(child.getAsView());
+            views.add(child);
+        }
+        for (int i = 0; i < end; i++) {
+            views.add(update(oldViews.get(oldSize - end + i), newChildren.get(newSize - end + i),
+                    group));
+        }
+
+        Array children = new Array();
+        for (ProteusView child : views) {
+            children.add(child.getViewManager().getLayout());
+        }
+        return children;
+    }
+
+    private ProteusView recreate(ProteusView view, Layout layout, @Nullable ViewGroup parent) {
+        ObjectValue data = new ObjectValue();
+        int dataIndex = -1;
+        if (view.getViewManager() != null) {
+            data = view.getViewManager().getDataContext().getData();
+            dataIndex = view.getViewManager().getDataContext().getIndex();
+        }
+        ProteusView inflated = mContext.getInflater().inflate(layout, data, parent, dataIndex);
+
+        View oldView = view.getAsView();
+        if (oldView.getParent() instanceof ViewGroup) {
+            ViewGroup viewParent = (ViewGroup) oldView.getParent();
+            int index = viewParent.indexOfChild(oldView);
+            viewParent.removeView(oldView);
+            viewParent.addView(inflated.getAsView(), index);
+        }
+        mRecreated += count(inflated.getAsView());
+        return inflated;
+    }
+
+    /**
+     * Compiled values such as dimensions and resources do not implement equals, they are
+     * compared by their string representation instead.
+     */
+    private static boolean isSame(@Nullable Value value, @Nullable Value other) {
+        if (value == other) {
+            return true;
+        }
+        if (value == null || other == null || value.getClass() != other.getClass()) {
+            return false;
+        }
+        return value.equals(other) || value.toString().equals(other.toString());
+    }
+
+    /**
+     * @return the layouts of the children, or null if they are not a plain list of layouts
+     */
+    @Nullable
+    private static List<Layout> toLayouts(@Nullable Value value) {
+        if (value == null) {
+            return new ArrayList<>();
+        }
+        if (!value.isArray()) {
+            return null;
+        }
+        Array array = value.getAsArray();
+        List<Layout> layouts = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            Value child = array.get(i);
+            if (!child.isLayout()) {
+                return null;
+            }
+            layouts.add(child.getAsLayout());
+        }
+        return layouts;
+    }
+
+    private static Map<Integer, Value> toMap(@Nullable List<Layout.Attribute> attributes) {
+        Map<Integer, Value> map = new LinkedHashMap<>();
+        if (attributes != null) {
+            for (Layout.Attribute attribute : attributes) {
+                map.put(attribute.id, attribute.value);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Finds the views inflated from the children of a view group, some views such as
+     * TextInputLayout wrap their children in views of their own.
+     */
+    private static void collectChildren(ViewGroup group, Map<Layout, ProteusView> views) {
+        for (int i = 0; i < group.getChildCount(); i++) {
+            View child = group.getChildAt(i);
+            if (child instanceof ProteusView && ((ProteusView) child).getViewManager() != null) {
+                views.put(((ProteusView) child).getViewManager().getLayout(), (ProteusView) child);
+            } else if (child instanceof ViewGroup) {
+                collectChildren((ViewGroup) child, views);
+            }
+        }
+    }
+
+    private static int count(View view) {
+        int count = view instanceof ProteusView ? 1 : 0;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += count(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The outcome of updating a view hierarchy
+     */
+    public static class Result {
+
+        private final ProteusView mView;
+        private final int mReused;
+        private final int mRecreated;
+        private final int mUpdatedAttributes;
+
+        Result(ProteusView view, int reused, int recreated, int updatedAttributes) {
+            mView = view;
+            mReused = reused;
+            mRecreated = recreated;
+            mUpdatedAttributes = updatedAttributes;
+        }
+
+        /**
+         * @return the root of the updated hierarchy, a new view if the root had to be
+         * inflated again
+         */
+        @NonNull
+        public ProteusView getView() {
+            return mView;
+        }
+
+        /**
+         * @return the number of views that were kept
+         */
+        public int getReusedCount() {
+            return mReused;
+        }
+
+        /**
+         * @return the number of views that were inflated
+         */
+        public int getRecreatedCount() {
+            return mRecreated;
+        }
+
+        /**
+         * @return the number of attributes that were handled again on kept views
+         */
+        public int getUpdatedAttributeCount() {
+            return mUpdatedAttributes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Result{" +
+                   "reused=" + mReused +
+                   ", recreated=" + mRecreated +
+                   ", updatedAttributes=" + mUpdatedAttributes +
+                   '}';
+        }
+    }
+}
@@ -33,10 +33,11 @@ import com.tyron.layout.appcompat.AppCompatModule;
 import com.tyron.layout.cardview.CardViewModule;
 import com.tyron.layout.constraintlayout.ConstraintLayoutModule;
 import com.tyron.layoutpreview.ResourceManager;
-import com.tyron.layoutpreview.convert.XmlToJsonConverter;
+import com.tyron.layoutpreview.convert.XmlToLayoutConverter;
 import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
 import com.tyron.layoutpreview.manager.ResourceDrawableManager;
 import com.tyron.layoutpreview.manager.ResourceLayoutManager;
+import com.tyron.layoutpreview.resource.ResourceCache;
 import com.tyron.layoutpreview.resource.ResourceValueParser;
 
 import java.io.File;
@@ -54,6 +55,7 @@ public class PreviewLayoutInflater {
     private final Proteus mProteus;
     private final AndroidModule mProject;
     private ProteusContext mContext;
+    private final XmlToLayoutConverter mConverter;
 
     private final ProteusLayoutInflater.Callback mCallback = new ProteusLayoutInflater.Callback() {
         @Override
@@ -159,12 +161,14 @@ public class PreviewLayoutInflater {
                 .build();
         mContext.setParserFactory(new MaterialParserFactory(mContext));
         ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER.setProteus(mProteus);
+        mConverter = new XmlToLayoutConverter(mContext);
 
         mParser.setProteusContext(mContext);
     }
 
     public CompletableFuture<PreviewLayoutInflater> parseResources(Executor executor) {
         return CompletableFuture.supplyAsync(() -> {
+            mParser.setCache(ResourceCache.getInstance(mProject));
             ResourceManager resourceManager = new ResourceManager(mContext,
                     mProject, mProject.getFileManager());
             mDrawableManager.setDrawables(resourceManager.getDrawables());
@@ -219,9 +223,7 @@ public class PreviewLayoutInflater {
     @Deprecated
     public ProteusView inflate(String xml) throws InflateException {
         try {
-            JsonObject object = new XmlToJsonConverter()
-                    .convert(xml);
-            return inflate(object);
+            return inflate(mConverter.convert(xml).getAsLayout());
         } catch (Exception e) {
             throw new InflateException("Unable to inflate layout: " + e.getMessage());
         }
@@ -248,6 +250,30 @@ public class PreviewLayoutInflater {
         return mContext.getInflater().inflate(layout, new ObjectValue());
     }
 
+    /**
+     * Updates a view inflated from a previous version of a layout so it matches the new
+     * version, only the views and attributes that changed are inflated or applied again.
+     * Must be called on the main thread.
+     *
+     * @return the outcome of the update, containing the view that replaces the given view
+     */
+    public LayoutDiffer.Result update(@NonNull ProteusView view, @NonNull Layout layout) {
+        return new LayoutDiffer(mContext).apply(view, layout);
+    }
+
+    public LayoutDiffer.Result update(@NonNull ProteusView view, @NonNull String xml) throws InflateException {
+        Value value;
+        try {
+            value = mConverter.convert(xml);
+        } catch (Exception e) {
+            throw new InflateException("Unable to inflate layout: " + e.getMessage());
+        }
+        if (!value.isLayout()) {
+            throw new InflateException("Unable to inflate layout: root is not a view");
+        }
+        return update(view, value.getAsLayout());
+    }
+
     public void registerCustomViews(ProteusBuilder builder, Module module) {
         File customViewsDir = new File(module.getBuildDirectory(), "custom_views");
         if (!customViewsDir.exists() && !customViewsDir.mkdirs()) {
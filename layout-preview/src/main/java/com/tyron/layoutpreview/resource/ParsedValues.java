@@ -0,0 +1,68 @@
+package com.tyron.layoutpreview.resource;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.value.Style;
+import com.flipkart.android.proteus.value.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values declared in a single resource file in the order they were read, so that they
+ * can be cached and added to a {@link ResourceValueParser} again without reparsing the file.
+ */
+class ParsedValues {
+
+    static final int STRING = 0;
+    static final int ITEM = 1;
+    static final int STYLE = 2;
+    static final int COLOR = 3;
+    static final int DIMENSION = 4;
+    /**
+     * A color state list declared by a file in the {@code color} directory
+     */
+    static final int COLOR_STATE_LIST = 5;
+
+    private final List<Entry> mEntries = new ArrayList<>();
+
+    void add(int kind, @Nullable String name, @NonNull Value value) {
+        mEntries.add(new Entry(kind, name, value));
+    }
+
+    @NonNull
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(mEntries);
+    }
+
+    static class Entry {
+        final int kind;
+        final String name;
+        final Value value;
+
+        Entry(int kind, String name, Value value) {
+            this.kind = kind;
+            this.name = name;
+            this.value = value;
+        }
+
+        /**
+         * Styles are modified by theme overlays while a preview is shown, so every
+         * preview gets its own copy of a cached style.
+         */
+        Value getValue() {
+            if (kind != STYLE) {
+                return value;
+            }
+            Style style = (Style) value;
+            Style copy = (Style) style.copy();
+            for (Map.Entry<String, Value> item : style.getValues().entrySet()) {
+                copy.getValues().add(item.getKey(), item.getValue());
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.tyron.layoutpreview.resource;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.flipkart.android.proteus.value.DrawableValue;
+import com.tyron.builder.project.api.AndroidModule;
+
+import java.io.File;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the resources parsed for the previews of a module, so that opening another layout
+ * or recreating the preview does not parse the resource files again.
+ *
+ * <p>Resources are parsed from the files on disk, so each entry remembers the size and last
+ * modified time of the file it was parsed from, taken before it was parsed, and is parsed
+ * again once the file has changed on disk. Unsaved changes of opened files are not seen by
+ * the parsers, they don't invalidate the entries either.
+ *
+ * <p>Only values that do not depend on the {@code ProteusContext} they were parsed with are
+ * cached, layouts refer to the attribute ids of the parsers of their context.
+ */
+public class ResourceCache {
+
+    private static final Map<AndroidModule, ResourceCache> sCaches = new WeakHashMap<>();
+
+    /**
+     * @return the cache of the module, created on first use
+     */
+    @NonNull
+    public static synchronized ResourceCache getInstance(@NonNull AndroidModule module) {
+        ResourceCache cache = sCaches.get(module);
+        if (cache == null) {
+            cache = new ResourceCache();
+            sCaches.put(module, cache);
+        }
+        return cache;
+    }
+
+    private final Map<File, Entry<ParsedValues>> mValues = new ConcurrentHashMap<>();
+    private final Map<File, Entry<DrawableValue>> mDrawables = new ConcurrentHashMap<>();
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    public ResourceCache() {
+    }
+
+    @Nullable
+    ParsedValues getValues(@NonNull File file) {
+        return get(mValues, file);
+    }
+
+    /**
+     * @param fingerprint the {@link #fingerprint(File)} of the file before it was parsed
+     */
+    void putValues(@NonNull File file, long fingerprint, @NonNull ParsedValues values) {
+        mValues.put(file, new Entry<>(fingerprint, values));
+    }
+
+    @Nullable
+    DrawableValue getDrawable(@NonNull File file) {
+        return get(mDrawables, file);
+    }
+
+    /**
+     * @param fingerprint the {@link #fingerprint(File)} of the file before it was parsed
+     */
+    void putDrawable(@NonNull File file, long fingerprint, @NonNull DrawableValue drawable) {
+        mDrawables.put(file, new Entry<>(fingerprint, drawable));
+    }
+
+    /**
+     * Drops the values parsed from the file
+     */
+    public void invalidate(@NonNull File file) {
+        mValues.remove(file);
+        mDrawables.remove(file);
+    }
+
+    public void clear() {
+        mValues.clear();
+        mDrawables.clear();
+    }
+
+    /**
+     * Drops the cached values, the cache of the module is no longer returned by
+     * {@link #getInstance(AndroidModule)}.
+     */
+    public void release() {
+        synchronized (ResourceCache.class) {
+            sCaches.values().remove(this);
+        }
+        clear();
+    }
+
+    /**
+     * @return the number of files whose parsed values were reused
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * @return the number of files that had to be parsed
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    @Nullable
+    private <T> T get(Map<File, Entry<T>> map, File file) {
+        Entry<T> entry = map.get(file);
+        if (entry == null || entry.fingerprint != fingerprint(file)) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        mHitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @return the fingerprint of the file on disk, which is what the parsers read
+     */
+    long fingerprint(@NonNull File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+    private static class Entry<T> {
+        final long fingerprint;
+        final T value;
+
+        Entry(long fingerprint, T value) {
+            this.fingerprint = fingerprint;
+            this.value = value;
+        }
+    }
+}
@@ -28,13 +28,23 @@ public class ResourceDrawableParser {
     private final ProteusContext mContext;
     private final File mResourceDirectory;
     private final FileManager mFileManager;
-    private final Map<String, DrawableValue> drawableValueMap = new HashMap<>();
+    @Nullable
+    private final ResourceCache mCache;
 
     public ResourceDrawableParser(ProteusContext context, File dir, FileManager fileManager) {
+        this(context, dir, fileManager, null);
+    }
+
+    /**
+     * @param cache the cache of the drawables parsed from files, so that unchanged files
+     *              are not parsed again
+     */
+    public ResourceDrawableParser(ProteusContext context, File dir, FileManager fileManager,
+                                  @Nullable ResourceCache cache) {
         mContext = context;
         mResourceDirectory = dir;
         mFileManager = fileManager;
-        drawableValueMap.putAll(getDefaultDrawables());
+        mCache = cache;
     }
 
     public Map<String, DrawableValue> getDefaultDrawables() {
@@ -46,8 +56,13 @@ public class ResourceDrawableParser {
         }
 
         for (File file : xmlFiles) {
-            DrawableValue value = null;
+            DrawableValue value = mCache != null ? mCache.getDrawable(file) : null;
+            if (value != null) {
+                map.put(getName(file), value);
+                continue;
+            }
 
+            long fingerprint = mCache != null ? mCache.fingerprint(file) : 0;
             if (isImageFile(file)) {
                 value = parseFile(file);
             } else if (file.getName().endsWith(".xml")) {
@@ -63,6 +78,9 @@ public class ResourceDrawableParser {
 
             if (value != null) {
                 map.put(getName(file), value);
+                if (mCache != null) {
+                    mCache.putDrawable(file, fingerprint, value);
+                }
             }
         }
 
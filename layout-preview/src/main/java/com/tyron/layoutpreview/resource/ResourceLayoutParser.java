@@ -7,19 +7,15 @@ import androidx.annotation.Nullable;
 import com.flipkart.android.proteus.ProteusContext;
 import com.flipkart.android.proteus.value.Layout;
 import com.flipkart.android.proteus.value.Value;
-import com.google.gson.JsonObject;
-import com.google.gson.stream.JsonReader;
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.layoutpreview.BuildConfig;
 import com.tyron.layoutpreview.convert.ConvertException;
-import com.tyron.layoutpreview.convert.XmlToJsonConverter;
-import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+import com.tyron.layoutpreview.convert.XmlToLayoutConverter;
 
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,16 +24,16 @@ import java.util.Optional;
 public class ResourceLayoutParser {
     private static final String TAG = ResourceLayoutParser.class.getSimpleName();
 
-    private final ProteusContext mContext;
     private final File mResourceDirectory;
     private final FileManager mFileManager;
+    private final XmlToLayoutConverter mConverter;
 
     private final Map<String, Layout> layoutMap = new HashMap<>();
 
     public ResourceLayoutParser(ProteusContext context, File dir, FileManager fileManager) {
-        mContext = context;
         mResourceDirectory = dir;
         mFileManager = fileManager;
+        mConverter = new XmlToLayoutConverter(context);
 
         layoutMap.putAll(getDefaultLayouts());
     }
@@ -75,11 +71,7 @@ public class ResourceLayoutParser {
     private Value parseLayout(File file) throws ConvertException, XmlPullParserException, IOException {
         Optional<CharSequence> fileContent = mFileManager.getFileContent(file);
         if (fileContent.isPresent()) {
-            String contents = fileContent.get().toString();
-            JsonObject jsonObject = new XmlToJsonConverter()
-                    .convert(contents);
-            return new ProteusTypeAdapterFactory(mContext).VALUE_TYPE_ADAPTER
-                    .read(new JsonReader(new StringReader(jsonObject.toString())), false);
+            return mConverter.convert(fileContent.get().toString());
         }
         return null;
     }
@@ -92,11 +92,21 @@ public class ResourceValueParser {
     };
 
     private ProteusContext mContext;
+    @Nullable
+    private ResourceCache mCache;
 
     public void setProteusContext(ProteusContext context) {
         mContext = context;
     }
 
+    /**
+     * @param cache the cache of the values parsed from files, so that unchanged files
+     *              are not parsed again
+     */
+    public void setCache(@Nullable ResourceCache cache) {
+        mCache = cache;
+    }
+
     public StringManager getStringManager() {
         return mStringManager;
     }
@@ -167,11 +177,26 @@ public class ResourceValueParser {
     }
 
     public void parse(File file, String namePrefix) throws IOException, XmlPullParserException {
-        parse(new InputStreamReader(new FileInputStream(file)), namePrefix);
+        ParsedValues cached = mCache != null ? mCache.getValues(file) : null;
+        if (cached != null) {
+            add(cached, normalizePrefix(namePrefix));
+            return;
+        }
+
+        long fingerprint = mCache != null ? mCache.fingerprint(file) : 0;
+        ParsedValues values = new ParsedValues();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file))) {
+            parse(reader, values);
+        } finally {
+            add(values, normalizePrefix(namePrefix));
+        }
+        if (mCache != null) {
+            mCache.putValues(file, fingerprint, values);
+        }
     }
 
     public void parse(File file) throws IOException, XmlPullParserException {
-        parse(new InputStreamReader(new FileInputStream(file)), "");
+        parse(file, "");
     }
 
     public void parse(String contents) throws IOException, XmlPullParserException {
@@ -179,9 +204,56 @@ public class ResourceValueParser {
     }
 
     public void parse(Reader reader, String namePrefix) throws IOException, XmlPullParserException {
+        ParsedValues values = new ParsedValues();
+        try {
+            parse(reader, values);
+        } finally {
+            add(values, normalizePrefix(namePrefix));
+        }
+    }
+
+    private static String normalizePrefix(String namePrefix) {
         if (!namePrefix.isEmpty() && !namePrefix.endsWith(":")) {
-            namePrefix = namePrefix + ":";
+            return namePrefix + ":";
+        }
+        return namePrefix;
+    }
+
+    /**
+     * Adds the values read from a file, the same value may be declared by multiple files.
+     */
+    private void add(ParsedValues values, String namePrefix) {
+        for (ParsedValues.Entry entry : values.getEntries()) {
+            switch (entry.kind) {
+                case ParsedValues.STRING:
+                    if (!mStrings.containsKey(entry.name)) {
+                        mStrings.put(namePrefix + entry.name, entry.getValue());
+                    }
+                    break;
+                case ParsedValues.ITEM:
+                    mStrings.put(namePrefix + entry.name, entry.getValue());
+                    break;
+                case ParsedValues.STYLE:
+                    if (!mStyles.containsKey(entry.name)) {
+                        mStyles.put(namePrefix + entry.name, (Style) entry.getValue());
+                    }
+                    break;
+                case ParsedValues.COLOR:
+                    if (!mColors.containsKey(entry.name)) {
+                        mColors.put(namePrefix + entry.name, entry.getValue());
+                    }
+                    break;
+                case ParsedValues.DIMENSION:
+                    mDimensions.put(namePrefix + entry.name, entry.getValue());
+                    break;
+                case ParsedValues.COLOR_STATE_LIST:
+                    mColors.put(entry.name, entry.getValue());
+                    break;
+            }
         }
+    }
+
+    private void parse(Reader reader, ParsedValues values) throws IOException, XmlPullParserException {
         XmlPullParser parser;
 
         parser = XmlPullParserFactory.newInstance().newPullParser();
@@ -198,19 +270,19 @@ public class ResourceValueParser {
                 String tag = parser.getName();
                 switch (tag) {
                     case "string":
-                        parseStringTag(parser, namePrefix);
+                        parseStringTag(parser, values);
                         break;
                     case "item":
-                        parseItemTag(parser, namePrefix);
+                        parseItemTag(parser, values);
                         break;
                     case "style":
-                        parseStyleTag(parser, namePrefix);
+                        parseStyleTag(parser, values);
                         break;
                     case "color":
-                        parseColorTag(parser, namePrefix);
+                        parseColorTag(parser, values);
                         break;
                     case "dimen":
-                        parseDimension(parser, namePrefix);
+                        parseDimension(parser, values);
                         break;
                     default:
                         XmlUtils.skip(parser);
@@ -224,18 +296,30 @@ public class ResourceValueParser {
 
     private void parseColor(File[] children, String namePrefix) {
         for (File child : children) {
-            try {
+            ParsedValues cached = mCache != null ? mCache.getValues(child) : null;
+            if (cached != null) {
+                add(cached, namePrefix);
+                continue;
+            }
+
+            long fingerprint = mCache != null ? mCache.fingerprint(child) : 0;
+            ParsedValues values = new ParsedValues();
+            try (Reader reader = new InputStreamReader(new FileInputStream(child))) {
                 XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
-                parser.setInput(new InputStreamReader(new FileInputStream(child)));
+                parser.setInput(reader);
                 XmlUtils.advanceToRootNode(parser);
 
-                parseColor(parser, child.getName(), namePrefix);
+                parseColor(parser, child.getName(), values);
+                if (mCache != null) {
+                    mCache.putValues(child, fingerprint, values);
+                }
             } catch (XmlPullParserException | IOException e) {
                 // ignored
             }
+            add(values, namePrefix);
         }
     }
-    private void parseColor(XmlPullParser parser, String fileName, String namePrefix) throws IOException,
+    private void parseColor(XmlPullParser parser, String fileName, ParsedValues values) throws IOException,
             XmlPullParserException {
         XmlToJsonConverter converter = new XmlToJsonConverter();
         try {
@@ -278,48 +362,42 @@ public class ResourceValueParser {
                 }
 
                 Color.LazyStateList lazyStateList = Color.LazyStateList.valueOf(states, colors, alphas);
-                mColors.put(fileName.replace(".xml", ""), lazyStateList);
+                values.add(ParsedValues.COLOR_STATE_LIST, fileName.replace(".xml", ""), lazyStateList);
             }
         } catch (ConvertException e) {
             Log.e("ParseSelectorTag", "Unable to convert to json", e);
         }
     }
 
-    private void parseDimension(XmlPullParser parser, String namePrefix) throws IOException,
+    private void parseDimension(XmlPullParser parser, ParsedValues values) throws IOException,
             XmlPullParserException {
         Pair<String, Value> pair = ResourceDimensionParser.parseDimension(parser);
-        mDimensions.put(namePrefix + pair.first, pair.second);
+        values.add(ParsedValues.DIMENSION, pair.first, pair.second);
     }
 
-    private void parseStyleTag(XmlPullParser parser, String namePrefix) throws IOException,
+    private void parseStyleTag(XmlPullParser parser, ParsedValues values) throws IOException,
             XmlPullParserException {
         Pair<String, Style> pair = ResourceStyleParser.parseStyleTag(parser);
-        if (!mStyles.containsKey(pair.first)) {
-            mStyles.put(namePrefix + pair.first, pair.second);
-        }
+        values.add(ParsedValues.STYLE, pair.first, pair.second);
     }
 
-    private void parseStringTag(XmlPullParser parser, String namePrefix) throws IOException,
+    private void parseStringTag(XmlPullParser parser, ParsedValues values) throws IOException,
             XmlPullParserException {
         Pair<String, Value> pair = ResourceStringParser.parseStringXmlInternal(parser);
-        if (!mStrings.containsKey(pair.first)) {
-            mStrings.put(namePrefix + pair.first, pair.second);
-        }
+        values.add(ParsedValues.STRING, pair.first, pair.second);
     }
 
-    private void parseColorTag(XmlPullParser parser, String namePrefix) throws IOException,
+    private void parseColorTag(XmlPullParser parser, ParsedValues values) throws IOException,
             XmlPullParserException {
         Pair<String, Value> pair = ResourceColorParser.parseColor(parser);
-        if (!mColors.containsKey(pair.first)) {
-            mColors.put(namePrefix + pair.first, pair.second);
-        }
+        values.add(ParsedValues.COLOR, pair.first, pair.second);
     }
 
-    private void parseItemTag(XmlPullParser parser, String namePrefix) throws IOException,
+    private void parseItemTag(XmlPullParser parser, ParsedValues values) throws IOException,
             XmlPullParserException {
         Pair<String, Value> pair = ResourceStringParser.parseItemString(parser);
         if (pair != null) {
-            mStrings.put(namePrefix + pair.first, pair.second);
+            values.add(ParsedValues.ITEM, pair.first, pair.second);
         }
     }
 }
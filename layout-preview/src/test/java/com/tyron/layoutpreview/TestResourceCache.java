@@ -0,0 +1,90 @@
+package com.tyron.layoutpreview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.flipkart.android.proteus.value.Style;
+import com.tyron.layoutpreview.resource.ResourceCache;
+import com.tyron.layoutpreview.resource.ResourceValueParser;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TestResourceCache {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedFileIsNotParsedAgain() throws Exception {
+        File file = mFolder.newFile("styles.xml");
+        FileUtils.writeStringToFile(file, TestResourceManager.STYLE_XML, StandardCharsets.UTF_8);
+        ResourceCache cache = new ResourceCache();
+
+        ResourceValueParser first = new ResourceValueParser();
+        first.setCache(cache);
+        first.parse(file);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+
+        ResourceValueParser second = new ResourceValueParser();
+        second.setCache(cache);
+        second.parse(file);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        assertThat(second.mStyles.keySet()).containsExactlyElementsIn(first.mStyles.keySet());
+        Style firstStyle = first.mStyles.get("AppTheme");
+        Style secondStyle = second.mStyles.get("AppTheme");
+        assertThat(secondStyle).isNotSameInstanceAs(firstStyle);
+        assertThat(secondStyle.toString()).isEqualTo(firstStyle.toString());
+    }
+
+    @Test
+    public void testChangedFileIsParsedAgain() throws Exception {
+        File file = mFolder.newFile("colors.xml");
+        FileUtils.writeStringToFile(file, TestResourceManager.COLOR_XML, StandardCharsets.UTF_8);
+        ResourceCache cache = new ResourceCache();
+
+        ResourceValueParser parser = new ResourceValueParser();
+        parser.setCache(cache);
+        parser.parse(file);
+        assertThat(parser.mColors).containsKey("colorAccent");
+
+        FileUtils.writeStringToFile(file, "<resources>\n" +
+                "    <color name=\"changed\">#FF000000</color>\n" +
+                "</resources>", StandardCharsets.UTF_8);
+        parser = new ResourceValueParser();
+        parser.setCache(cache);
+        parser.parse(file);
+
+        assertThat(cache.getHitCount()).isEqualTo(0);
+        assertThat(parser.mColors).containsKey("changed");
+        assertThat(parser.mColors).doesNotContainKey("colorAccent");
+    }
+
+    @Test
+    public void testInvalidatedFileIsParsedAgain() throws Exception {
+        File file = mFolder.newFile("strings.xml");
+        FileUtils.writeStringToFile(file, "<resources>\n" +
+                "    <string name=\"app_name\">Test</string>\n" +
+                "</resources>", StandardCharsets.UTF_8);
+        ResourceCache cache = new ResourceCache();
+
+        ResourceValueParser parser = new ResourceValueParser();
+        parser.setCache(cache);
+        parser.parse(file);
+        cache.invalidate(file);
+        parser.parse(file);
+
+        assertThat(cache.getHitCount()).isEqualTo(0);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,109 @@
+package com.tyron.layoutpreview.convert;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Value;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.tyron.layoutpreview.BaseTest;
+import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestXmlToLayout extends BaseTest {
+
+    private static final String TEST_LAYOUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+            "    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n" +
+            "    android:layout_width=\"match_parent\"\n" +
+            "    android:layout_height=\"match_parent\"\n" +
+            "    android:orientation=\"vertical\"\n" +
+            "    app:unknownAttribute=\"value\">\n" +
+            "\n" +
+            "    <TextView\n" +
+            "        android:id=\"@+id/text\"\n" +
+            "        android:layout_width=\"wrap_content\"\n" +
+            "        android:layout_height=\"wrap_content\"\n" +
+            "        android:text=\"Hello\" />\n" +
+            "\n" +
+            "    <com.example.UnknownView\n" +
+            "        android:layout_width=\"match_parent\"\n" +
+            "        android:layout_height=\"wrap_content\">\n" +
+            "\n" +
+            "        <Button\n" +
+            "            android:layout_width=\"wrap_content\"\n" +
+            "            android:layout_height=\"wrap_content\" />\n" +
+            "    </com.example.UnknownView>\n" +
+            "</LinearLayout>";
+
+    @Test
+    public void testMatchesJsonConversion() throws Exception {
+        Value expected = convertThroughJson(TEST_LAYOUT);
+        Value actual = new XmlToLayoutConverter(mInflater.getContext()).convert(TEST_LAYOUT);
+
+        assertThat(actual.isLayout()).isTrue();
+        assertSameLayout(expected.getAsLayout(), actual.getAsLayout());
+    }
+
+    @Test
+    public void testConverterIsReusable() throws Exception {
+        XmlToLayoutConverter converter = new XmlToLayoutConverter(mInflater.getContext());
+        Layout first = converter.convert(TEST_LAYOUT).getAsLayout();
+        Layout second = converter.convert(TEST_LAYOUT).getAsLayout();
+
+        assertSameLayout(first, second);
+        assertThat(second.type).isSameInstanceAs(first.type);
+    }
+
+    private Value convertThroughJson(String xml) throws Exception {
+        JsonObject json = new XmlToJsonConverter().convert(xml);
+        return new ProteusTypeAdapterFactory(mInflater.getContext()).VALUE_TYPE_ADAPTER
+                .read(new JsonReader(new StringReader(json.toString())), false);
+    }
+
+    private static List<String> keys(ObjectValue object) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Value> entry : object.entrySet()) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static void assertSameLayout(Layout expected, Layout actual) {
+        assertThat(actual.type).isEqualTo(expected.type);
+        assertThat(actual.extras == null).isEqualTo(expected.extras == null);
+        if (expected.extras != null) {
+            assertThat(keys(actual.extras)).containsExactlyElementsIn(keys(expected.extras));
+        }
+
+        assertThat(actual.attributes == null).isEqualTo(expected.attributes == null);
+        if (expected.attributes == null) {
+            return;
+        }
+        assertThat(actual.attributes).hasSize(expected.attributes.size());
+        for (int i = 0; i < expected.attributes.size(); i++) {
+            Layout.Attribute expectedAttribute = expected.attributes.get(i);
+            Layout.Attribute actualAttribute = actual.attributes.get(i);
+            assertThat(actualAttribute.id).isEqualTo(expectedAttribute.id);
+            if (expectedAttribute.value.isArray()) {
+                assertThat(actualAttribute.value.isArray()).isTrue();
+                assertThat(actualAttribute.value.getAsArray().size())
+                        .isEqualTo(expectedAttribute.value.getAsArray().size());
+                for (int j = 0; j < expectedAttribute.value.getAsArray().size(); j++) {
+                    assertSameLayout(expectedAttribute.value.getAsArray().get(j).getAsLayout(),
+                            actualAttribute.value.getAsArray().get(j).getAsLayout());
+                }
+            } else {
+                assertThat(actualAttribute.value.toString())
+                        .isEqualTo(expectedAttribute.value.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.tyron.layoutpreview.inflate;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.flipkart.android.proteus.Proteus;
+import com.flipkart.android.proteus.ProteusBuilder;
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ProteusView;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.tyron.layoutpreview.convert.XmlToLayoutConverter;
+import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class TestLayoutDiffer {
+
+    private static final String HEADER = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+            "    android:layout_width=\"match_parent\"\n" +
+            "    android:layout_height=\"match_parent\"\n" +
+            "    android:orientation=\"vertical\">\n";
+    private static final String FOOTER = "</LinearLayout>";
+
+    private ProteusContext mContext;
+    private XmlToLayoutConverter mConverter;
+    private FrameLayout mRoot;
+
+    @Before
+    public void setup() {
+        Proteus proteus = new ProteusBuilder().build();
+        mContext = proteus.createContextBuilder(ApplicationProvider.getApplicationContext())
+                .build();
+        ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER.setProteus(proteus);
+        mConverter = new XmlToLayoutConverter(mContext);
+        mRoot = new FrameLayout(ApplicationProvider.getApplicationContext());
+    }
+
+    @Test
+    public void testAttributeChangeReusesViews() throws Exception {
+        ProteusView view = inflate(HEADER + textView("first", "wrap_content") +
+                                   textView("second", "wrap_content") + FOOTER);
+        ViewGroup group = (ViewGroup) view.getAsView();
+        TextView second = (TextView) group.getChildAt(1);
+
+        LayoutDiffer.Result result = update(view, HEADER + textView("first", "wrap_content") +
+                                                  textView("changed", "wrap_content") + FOOTER);
+
+        assertThat(result.getView()).isSameInstanceAs(view);
+        assertThat(result.getReusedCount()).isEqualTo(3);
+        assertThat(result.getRecreatedCount()).isEqualTo(0);
+        assertThat(result.getUpdatedAttributeCount()).isEqualTo(1);
+        assertThat(group.getChildAt(1)).isSameInstanceAs(second);
+        assertThat(second.getText().toString()).isEqualTo("changed");
+    }
+
+    @Test
+    public void testTypeChangeRecreatesOnlyThatView() throws Exception {
+        ProteusView view = inflate(HEADER + textView("first", "wrap_content") +
+                                   textView("second", "wrap_content") + FOOTER);
+        ViewGroup group = (ViewGroup) view.getAsView();
+        TextView first = (TextView) group.getChildAt(0);
+
+        LayoutDiffer.Result result = update(view, HEADER + textView("first", "wrap_content") +
+                "<Button android:layout_width=\"wrap_content\" android:layout_height=\"wrap_content\" />\n" +
+                FOOTER);
+
+        assertThat(result.getReusedCount()).isEqualTo(2);
+        assertThat(result.getRecreatedCount()).isEqualTo(1);
+        assertThat(group.getChildCount()).isEqualTo(2);
+        assertThat(group.getChildAt(0)).isSameInstanceAs(first);
+        assertThat(group.getChildAt(1)).isInstanceOf(Button.class);
+    }
+
+    @Test
+    public void testInsertedChildIsInflated() throws Exception {
+        ProteusView view = inflate(HEADER + textView("first", "wrap_content") +
+                                   textView("last", "wrap_content") + FOOTER);
+        ViewGroup group = (ViewGroup) view.getAsView();
+
+        LayoutDiffer.Result result = update(view, HEADER + textView("first", "wrap_content") +
+                "<Button android:layout_width=\"wrap_content\" android:layout_height=\"wrap_content\" />\n" +
+                textView("last", "wrap_content") + FOOTER);
+
+        assertThat(result.getReusedCount()).isEqualTo(3);
+        assertThat(result.getRecreatedCount()).isEqualTo(1);
+        assertThat(group.getChildCount()).isEqualTo(3);
+        assertThat(group.getChildAt(1)).isInstanceOf(Button.class);
+        assertThat(((TextView) group.getChildAt(2)).getText().toString()).isEqualTo("last");
+    }
+
+    @Test
+    public void testRemovedAttributeRecreatesView() throws Exception {
+        ProteusView view = inflate(HEADER + textView("first", "wrap_content") + FOOTER);
+        ViewGroup group = (ViewGroup) view.getAsView();
+        TextView first = (TextView) group.getChildAt(0);
+
+        LayoutDiffer.Result result = update(view, HEADER +
+                "<TextView android:layout_width=\"wrap_content\" android:layout_height=\"wrap_content\" />\n" +
+                FOOTER);
+
+        assertThat(result.getReusedCount()).isEqualTo(1);
+        assertThat(result.getRecreatedCount()).isEqualTo(1);
+        assertThat(group.getChildAt(0)).isNotSameInstanceAs(first);
+        assertThat(((TextView) group.getChildAt(0)).getText().toString()).isEmpty();
+    }
+
+    private ProteusView inflate(String xml) throws Exception {
+        Layout layout = mConverter.convert(xml).getAsLayout();
+        ProteusView view = mContext.getInflater().inflate(layout, new ObjectValue(), mRoot, -1);
+        mRoot.addView(view.getAsView());
+        return view;
+    }
+
+    private LayoutDiffer.Result update(ProteusView view, String xml) throws Exception {
+        Layout layout = mConverter.convert(xml).getAsLayout();
+        return new LayoutDiffer(mContext).apply(view, layout);
+    }
+
+    private static String textView(String text, String width) {
+        return "<TextView android:layout_width=\"" + width + "\"\n" +
+               "    android:layout_height=\"wrap_content\"\n" +
+               "    android:text=\"" + text + "\" />\n";
+    }
+}
@@ -1,5 +1,8 @@
 package com.tyron.completion.xml.task;
 
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
 import androidx.annotation.NonNull;
 
 import com.google.common.collect.HashBasedTable;
@@ -13,6 +16,8 @@ import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.api.FileManager;
+import com.tyron.common.ApplicationProvider;
+import com.tyron.common.SharedPreferenceKeys;
 import com.tyron.completion.java.parse.CompilationInfo;
 import com.tyron.completion.xml.XmlRepository;
 import com.tyron.xml.completion.repository.ResourceItem;
@@ -22,17 +27,22 @@ import com.tyron.xml.completion.repository.api.ResourceNamespace;
 import com.tyron.xml.completion.repository.api.StyleableResourceValue;
 
 import org.apache.commons.io.FileUtils;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +53,23 @@ import java.util.stream.Collectors;
  */
 public class InjectResourcesTask {
 
+    private static final Key<ResourceIdAllocator> RESOURCE_IDS_KEY = Key.create("resourceIds");
+    private static final Key<Table<String, String, SymbolLoader.SymbolEntry>> INJECTED_SYMBOLS_KEY =
+            Key.create("injectedSymbols");
+
+    private static final Key<Boolean> INJECTED_CLASS_FILES_KEY = Key.create("injectedClassFiles");
+
+    /**
+     * @return whether R is also written as class files in the class path of the module. The
+     * compiler then reads the fields of R on demand from the class files instead of parsing
+     * and attributing the whole R.java whenever a resource changes.
+     */
+    private static boolean shouldGenerateClassFiles() {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(
+                ApplicationProvider.getApplicationContext());
+        return preferences.getBoolean(SharedPreferenceKeys.INJECT_R_CLASS_FILES, false);
+    }
+
     public static void inject(@NonNull Project project) {
         try {
             inject(project, (AndroidModule) project.getMainModule());
@@ -57,36 +84,125 @@ public class InjectResourcesTask {
             return;
         }
 
-        InjectResourcesTask task = new InjectResourcesTask(project, module);
+        InjectResourcesTask task = new InjectResourcesTask(project, module, shouldGenerateClassFiles());
         task.inject(resourceFile -> {
             if (project.isCompiling() || project.isIndexing()) {
-                return;
+                return false;
+            }
+            if (task.isGenerateClassFiles()) {
+                compilationInfo.reloadClasses(task.getGeneratedClasses());
+                return true;
             }
             SourceFileObject sourceFileObject = new SourceFileObject(resourceFile.toPath(), module, Instant.now());
             compilationInfo.update(sourceFileObject);
+            return true;
         });
     }
+
     private final AndroidModule mModule;
     private final Project mProject;
+    private final boolean mGenerateClassFiles;
+    private final List<String> mGeneratedClasses = new ArrayList<>();
 
     public InjectResourcesTask(Project project, AndroidModule module) {
+        this(project, module, false);
+    }
+
+    /**
+     * @param generateClassFiles whether R is also written as class files in the class path
+     *                           of the module
+     */
+    public InjectResourcesTask(Project project, AndroidModule module, boolean generateClassFiles) {
         mProject = project;
         mModule = module;
+        mGenerateClassFiles = generateClassFiles;
     }
 
-    public void inject(Consumer<File> consumer) throws IOException {
+    public boolean isGenerateClassFiles() {
+        return mGenerateClassFiles;
+    }
+
+    /**
+     * Regenerates R from the resources of the module. If the symbols are the same as the last
+     * time the consumer accepted R, and R.java on disk is up to date, nothing is written and
+     * the consumer is not called.
+     *
+     * @param consumer receives the R.java file after it changed, returns whether the compiler
+     *                 was notified of the change. If not, the next inject notifies it again.
+     */
+    public void inject(Predicate<File> consumer) throws IOException {
         XmlRepository xmlRepository = XmlRepository.getRepository(mProject, mModule);
 
         updateSymbols(xmlRepository);
 
-        String classContents = createSymbols(xmlRepository);
+        Table<String, String, SymbolLoader.SymbolEntry> symbols = createSymbols(xmlRepository);
 
         File classFile = getOrCreateResourceClass(mModule);
-
-        FileUtils.writeStringToFile(classFile, classContents, StandardCharsets.UTF_8);
         mModule.addInjectedClass(classFile);
 
-        consumer.accept(classFile);
+        SymbolLoader loader = new SymbolLoader(symbols);
+        SymbolWriter symbolWriter = new SymbolWriter(null, mModule.getPackageName(), loader, null);
+        symbolWriter.addSymbolsToWrite(loader);
+        String classContents = symbolWriter.getString();
+        // the file may be up to date if it was written before a restart, or empty if it was
+        // deleted and created again
+        boolean upToDate =
+                classContents.equals(FileUtils.readFileToString(classFile, StandardCharsets.UTF_8));
+        if (upToDate &&
+            symbols.equals(mModule.getUserData(INJECTED_SYMBOLS_KEY)) &&
+            Boolean.valueOf(mGenerateClassFiles).equals(mModule.getUserData(INJECTED_CLASS_FILES_KEY))) {
+            return;
+        }
+        if (!upToDate) {
+            FileUtils.writeStringToFile(classFile, classContents, StandardCharsets.UTF_8);
+        }
+
+        writeClassFiles(symbols);
+
+        if (consumer.test(classFile)) {
+            mModule.putUserData(INJECTED_SYMBOLS_KEY, symbols);
+            mModule.putUserData(INJECTED_CLASS_FILES_KEY, mGenerateClassFiles);
+        } else {
+            mModule.putUserData(INJECTED_SYMBOLS_KEY, null);
+        }
+    }
+
+    /**
+     * @return the binary names of the classes written by the last {@link #inject(Predicate)}
+     * when class files are generated
+     */
+    public List<String> getGeneratedClasses() {
+        return Collections.unmodifiableList(mGeneratedClasses);
+    }
+
+    private void writeClassFiles(Table<String, String, SymbolLoader.SymbolEntry> symbols)
+            throws IOException {
+        File classesDirectory = CompilationInfo.getInjectedClassesDirectory(mModule);
+        File packageDirectory =
+                new File(classesDirectory, mModule.getPackageName().replace('.', '/'));
+        // class files that are not generated anymore, such as those of a removed resource type
+        File[] staleFiles = packageDirectory.listFiles(
+                file -> file.getName().equals("R.class") || file.getName().startsWith("R$"));
+
+        mGeneratedClasses.clear();
+        Set<File> written = new HashSet<>();
+        if (mGenerateClassFiles) {
+            RClassGenerator generator = new RClassGenerator(mModule.getPackageName(), symbols);
+            for (Map.Entry<String, byte[]> entry : generator.generate().entrySet()) {
+                File file = new File(classesDirectory, entry.getKey().replace('.', '/') + ".class");
+                FileUtils.writeByteArrayToFile(file, entry.getValue());
+                written.add(file);
+                mGeneratedClasses.add(entry.getKey());
+            }
+        }
+
+        if (staleFiles != null) {
+            for (File staleFile : staleFiles) {
+                if (!written.contains(staleFile)) {
+                    FileUtils.deleteQuietly(staleFile);
+                }
+            }
+        }
     }
 
     private synchronized void updateSymbols(XmlRepository xmlRepository) throws IOException {
@@ -114,10 +230,10 @@ public class InjectResourcesTask {
         });
     }
 
-    private String createSymbols(XmlRepository xmlRepository) throws IOException {
+    private Table<String, String, SymbolLoader.SymbolEntry> createSymbols(XmlRepository xmlRepository) {
         ResourceRepository repository = xmlRepository.getRepository();
         List<ResourceType> resourceTypes = repository.getResourceTypes();
-        int id = 0;
+        ResourceIdAllocator ids = getResourceIds(mModule);
 
         Table<String, String, SymbolLoader.SymbolEntry> symbols = HashBasedTable.create();
         for (ResourceType resourceType : resourceTypes) {
@@ -131,37 +247,41 @@ public class InjectResourcesTask {
                 continue;
             }
             for (Map.Entry<String, ResourceItem> resourceItemEntry : resources.entries()) {
-                addResource(id, repository.getNamespace(), symbols, resourceType,
+                addResource(ids, repository.getNamespace(), symbols, resourceType,
                             resourceItemEntry);
-                id++;
             }
         }
+        return symbols;
+    }
 
-        SymbolLoader loader = new SymbolLoader(symbols);
-        SymbolWriter symbolWriter = new SymbolWriter(null, mModule.getPackageName(), loader, null);
-        symbolWriter.addSymbolsToWrite(loader);
-        return symbolWriter.getString();
+    private static synchronized ResourceIdAllocator getResourceIds(AndroidModule module) {
+        ResourceIdAllocator ids = module.getUserData(RESOURCE_IDS_KEY);
+        if (ids == null) {
+            ids = new ResourceIdAllocator();
+            module.putUserData(RESOURCE_IDS_KEY, ids);
+        }
+        return ids;
     }
 
-    private void addResource(int id,
+    private void addResource(ResourceIdAllocator ids,
                              ResourceNamespace namespace,
                              Table<String, String, SymbolLoader.SymbolEntry> symbols,
                              ResourceType resourceType,
                              Map.Entry<String, ResourceItem> resourceItemEntry) {
         if (resourceType == ResourceType.STYLEABLE) {
-            addStyleableResource(id, namespace, symbols, resourceItemEntry);
+            addStyleableResource(namespace, symbols, resourceItemEntry);
             return;
         }
         ResourceItem value = resourceItemEntry.getValue();
         String replacedName = convertName(value.getName());
+        int id = ids.getId(resourceType, replacedName);
         SymbolLoader.SymbolEntry entry =
                 new SymbolLoader.SymbolEntry(replacedName, getType(resourceType),
-                                             String.valueOf(id));
+                                             "0x" + Integer.toHexString(id));
         symbols.put(resourceType.getName(), replacedName, entry);
     }
 
-    private void addStyleableResource(int id,
-                                      ResourceNamespace namespace,
+    private void addStyleableResource(ResourceNamespace namespace,
                                       Table<String, String, SymbolLoader.SymbolEntry> symbols,
                                       Map.Entry<String, ResourceItem> resourceItemEntry) {
         ResourceItem value = resourceItemEntry.getValue();
@@ -0,0 +1,109 @@
+package com.tyron.completion.xml.task;
+
+import com.google.common.collect.Table;
+import com.tyron.builder.compiler.symbol.SymbolLoader;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.InnerClass;
+import org.apache.bcel.classfile.InnerClasses;
+import org.apache.bcel.generic.ArrayType;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.FieldGen;
+import org.apache.bcel.generic.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates the class files of an R class from its symbols, the same class that
+ * {@link com.tyron.builder.compiler.symbol.SymbolWriter} writes as source. The classes are
+ * stubs for the compiler: the {@code int[]} fields of styleables are not initialized.
+ */
+public class RClassGenerator {
+
+    private static final int CLASS_FLAGS = Const.ACC_PUBLIC | Const.ACC_FINAL | Const.ACC_SUPER;
+    private static final int NESTED_CLASS_FLAGS =
+            Const.ACC_PUBLIC | Const.ACC_STATIC | Const.ACC_FINAL;
+    private static final int FIELD_FLAGS = Const.ACC_PUBLIC | Const.ACC_STATIC | Const.ACC_FINAL;
+
+    private final String mPackageName;
+    private final Table<String, String, SymbolLoader.SymbolEntry> mSymbols;
+
+    public RClassGenerator(String packageName,
+                           Table<String, String, SymbolLoader.SymbolEntry> symbols) {
+        mPackageName = packageName;
+        mSymbols = symbols;
+    }
+
+    /**
+     * @return the binary name of the R class
+     */
+    public String getClassName() {
+        return mPackageName + ".R";
+    }
+
+    /**
+     * @return the contents of the class files of R and its nested classes, by binary name
+     */
+    public Map<String, byte[]> generate() {
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        List<String> types = new ArrayList<>(new TreeSet<>(mSymbols.rowKeySet()));
+
+        ClassGen outer = createClass(getClassName());
+        addInnerClasses(outer, types);
+        classes.put(getClassName(), outer.getJavaClass().getBytes());
+
+        for (String type : types) {
+            ClassGen nested = createClass(getNestedClassName(type));
+            addInnerClasses(nested, Collections.singletonList(type));
+            ConstantPoolGen constantPool = nested.getConstantPool();
+            for (SymbolLoader.SymbolEntry entry : new TreeMap<>(mSymbols.row(type)).values()) {
+                FieldGen field;
+                if ("int".equals(entry.getType())) {
+                    field = new FieldGen(FIELD_FLAGS, Type.INT, entry.getName(), constantPool);
+                    field.setInitValue(Integer.decode(entry.getValue()));
+                } else {
+                    field = new FieldGen(FIELD_FLAGS, new ArrayType(Type.INT, 1), entry.getName(),
+                                         constantPool);
+                }
+                nested.addField(field.getField());
+            }
+            classes.put(getNestedClassName(type), nested.getJavaClass().getBytes());
+        }
+        return classes;
+    }
+
+    private String getNestedClassName(String type) {
+        return getClassName() + "$" + type;
+    }
+
+    private ClassGen createClass(String className) {
+        return new ClassGen(className, "java.lang.Object", "R.java", CLASS_FLAGS,
+                            new String[0]);
+    }
+
+    /**
+     * Records the nested classes of R in the class, the compiler needs them to resolve
+     * {@code R.string} as a member of {@code R}.
+     */
+    private void addInnerClasses(ClassGen classGen, List<String> types) {
+        ConstantPoolGen constantPool = classGen.getConstantPool();
+        int outerIndex = constantPool.addClass(getClassName());
+        InnerClass[] innerClasses = new InnerClass[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            String type = types.get(i);
+            innerClasses[i] = new InnerClass(constantPool.addClass(getNestedClassName(type)),
+                                             outerIndex, constantPool.addUtf8(type),
+                                             NESTED_CLASS_FLAGS);
+        }
+        classGen.addAttribute(new InnerClasses(constantPool.addUtf8("InnerClasses"),
+                                               2 + 8 * innerClasses.length, innerClasses,
+                                               constantPool.getConstantPool()));
+    }
+}
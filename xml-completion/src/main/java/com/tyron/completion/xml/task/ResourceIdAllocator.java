@@ -0,0 +1,36 @@
+package com.tyron.completion.xml.task;
+
+import com.tyron.builder.compiler.manifest.resources.ResourceType;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns ids to the resources of the injected R class. A resource keeps its id for as long as
+ * the allocator lives, so adding or removing a resource doesn't change the ids of the others.
+ * Ids follow the aapt layout {@code 0xPPTTEEEE}: package, type and entry.
+ */
+public class ResourceIdAllocator {
+
+    private static final int PACKAGE_ID = 0x7f;
+
+    private final Map<ResourceType, Integer> mTypeIds = new EnumMap<>(ResourceType.class);
+    private final Map<ResourceType, Map<String, Integer>> mEntryIds =
+            new EnumMap<>(ResourceType.class);
+
+    public synchronized int getId(ResourceType type, String name) {
+        Integer typeId = mTypeIds.get(type);
+        if (typeId == null) {
+            typeId = mTypeIds.size() + 1;
+            mTypeIds.put(type, typeId);
+        }
+        Map<String, Integer> entries = mEntryIds.computeIfAbsent(type, t -> new HashMap<>());
+        Integer entryId = entries.get(name);
+        if (entryId == null) {
+            entryId = entries.size();
+            entries.put(name, entryId);
+        }
+        return PACKAGE_ID << 24 | typeId << 16 | entryId;
+    }
+}
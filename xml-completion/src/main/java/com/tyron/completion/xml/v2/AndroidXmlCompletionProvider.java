@@ -1,7 +1,8 @@
 package com.tyron.completion.xml.v2;
 
+import static com.tyron.completion.xml.v2.aar.CachingDataKt.RESOURCE_CACHE_DIRECTORY;
+
 import com.google.common.collect.ImmutableSet;
-import com.tyron.builder.project.api.Module;
 import com.tyron.common.ApplicationProvider;
 import com.tyron.common.util.Decompress;
 import com.tyron.completion.CompletionParameters;
@@ -9,18 +10,14 @@ import com.tyron.completion.CompletionProvider;
 import com.tyron.completion.model.CompletionList;
 import com.tyron.completion.xml.util.AndroidResourcesUtils;
 import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository;
+import com.tyron.completion.xml.v2.aar.FrameworkResourceRepositoryManager;
 import com.tyron.completion.xml.v2.handler.AndroidManifestHandlerKt;
 
-import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
-
 import java.io.File;
 import java.util.Objects;
 
 public class AndroidXmlCompletionProvider extends CompletionProvider {
 
-    private static final Key<FrameworkResourceRepository> FRAMEWORK_RESOURCE_REPOSITORY_KEY = Key.create("frameworkRepository");
-
-
     public AndroidXmlCompletionProvider() {
 
     }
@@ -55,7 +52,7 @@ public class AndroidXmlCompletionProvider extends CompletionProvider {
             return null;
         }
 
-        FrameworkResourceRepository frameworkResourceRepository = getFrameworkResourceRepository(parameters.getModule());
+        FrameworkResourceRepository frameworkResourceRepository = getFrameworkResourceRepository();
 
         if (fileType == XmlFileType.MANIFEST) {
             return AndroidManifestHandlerKt.handleManifest(frameworkResourceRepository, parameters);
@@ -63,20 +60,17 @@ public class AndroidXmlCompletionProvider extends CompletionProvider {
         return null;
     }
 
-    private FrameworkResourceRepository getFrameworkResourceRepository(Module module) {
-        FrameworkResourceRepository repository = module.getUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY);
-        if (repository == null) {
-            File extractedDir = getOrExtractFiles();
-            File resDirectory = Objects.requireNonNull(extractedDir.getParentFile()).getParentFile();
-            repository = FrameworkResourceRepository.create(
-                    resDirectory.toPath(),
-                    ImmutableSet.of("en"),
-                    null,
-                    true
-            );
-            module.putUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY, repository);
-        }
-        return repository;
+    private FrameworkResourceRepository getFrameworkResourceRepository() {
+        File extractedDir = getOrExtractFiles();
+        File resDirectory = Objects.requireNonNull(extractedDir.getParentFile()).getParentFile();
+        File cacheDirectory = new File(ApplicationProvider.getApplicationContext().getFilesDir(),
+                RESOURCE_CACHE_DIRECTORY);
+        return FrameworkResourceRepositoryManager.getInstance().getFrameworkResources(
+                resDirectory.toPath(),
+                ImmutableSet.of("en"),
+                true,
+                cacheDirectory.toPath()
+        );
     }
 
     private XmlFileType getFileType(File file) {
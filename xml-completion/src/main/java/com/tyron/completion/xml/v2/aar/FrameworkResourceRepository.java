@@ -259,7 +259,7 @@ public final class FrameworkResourceRepository extends AarSourceResourceReposito
     for (String language : languages) {
       if (!loadedLanguages.contains(language)) {
         Path cacheFile = fileNameGenerator.getCacheFile(language);
-        try (Base128InputStream stream = new Base128InputStream(cacheFile)) {
+        try (Base128InputStream stream = ResourceSerializationUtil.openPersistentCache(cacheFile)) {
           byte[] header = ResourceSerializationUtil.getCacheFileHeader(s -> writeCacheHeaderContent(cachingData, language, s));
           if (!stream.validateContents(header)) {
             // Cache file header doesn't match.
@@ -0,0 +1,128 @@
+package com.tyron.completion.xml.v2.aar;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.Hashing;
+import com.tyron.completion.progress.AdaptiveExecutor;
+import com.tyron.completion.progress.ProgressManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.kotlin.com.intellij.openapi.diagnostic.Logger;
+
+/**
+ * Process-wide holder of framework resource repositories. The framework resources don't depend on
+ * the module they are used in, so a single immutable repository per resource directory or
+ * framework_res.jar and set of languages is shared by all modules and projects.
+ *
+ * <p>Repositories loaded from a resource directory are saved to a binary cache file, so that they
+ * can be loaded from the cache the next time the process starts. The cache file is memory-mapped
+ * while it is read, but the loaded repository is decoded into the Java heap like any other: the
+ * memory saved comes from sharing it, not from the mapping.
+ */
+public final class FrameworkResourceRepositoryManager {
+  /** Version of the code writing the cache files, incremented to invalidate existing cache files. */
+  private static final String CODE_VERSION = "1";
+
+  private static final Logger LOG = Logger.getInstance(FrameworkResourceRepositoryManager.class);
+
+  private static final FrameworkResourceRepositoryManager ourInstance = new FrameworkResourceRepositoryManager();
+
+  private final ConcurrentMap<RepositoryKey, Supplier<FrameworkResourceRepository>> myRepositories = new ConcurrentHashMap<>();
+
+  @NotNull
+  public static FrameworkResourceRepositoryManager getInstance() {
+    return ourInstance;
+  }
+
+  private FrameworkResourceRepositoryManager() {
+  }
+
+  /**
+   * Returns the framework resource repository for the given resource directory or framework_res.jar, loading it
+   * if it is not loaded yet. Concurrent callers asking for the same repository wait for a single load.
+   *
+   * @param resourceDirectoryOrFile the res directory or framework_res.jar of the platform
+   * @param languages the set of ISO 639 language codes of the resources to load
+   * @param useCompiled9Patches whether to provide the compiled or non-compiled version of the framework 9-patches
+   * @param cacheDirectory the directory containing the binary cache files, or null to not use a cache
+   * @return the shared repository
+   */
+  @NotNull
+  public FrameworkResourceRepository getFrameworkResources(@NotNull Path resourceDirectoryOrFile,
+                                                           @NotNull Set<String> languages,
+                                                           boolean useCompiled9Patches,
+                                                           @Nullable Path cacheDirectory) {
+    RepositoryKey key = new RepositoryKey(resourceDirectoryOrFile.toAbsolutePath().normalize(),
+                                          ImmutableSortedSet.copyOf(languages), useCompiled9Patches);
+    Supplier<FrameworkResourceRepository> supplier =
+        myRepositories.computeIfAbsent(key, k -> Suppliers.memoize(() -> load(k, cacheDirectory)));
+    return supplier.get();
+  }
+
+  @TestOnly
+  public void clear() {
+    myRepositories.clear();
+  }
+
+  @NotNull
+  private static FrameworkResourceRepository load(@NotNull RepositoryKey key, @Nullable Path cacheDirectory) {
+    CachingData cachingData = cacheDirectory == null ? null : createCachingData(key.myPath, cacheDirectory);
+    return FrameworkResourceRepository.create(key.myPath, key.myLanguages, cachingData, key.myUseCompiled9Patches);
+  }
+
+  @Nullable
+  private static CachingData createCachingData(@NotNull Path resourceDirectoryOrFile, @NotNull Path cacheDirectory) {
+    String contentVersion;
+    try {
+      contentVersion = Long.toString(Files.getLastModifiedTime(resourceDirectoryOrFile).toMillis());
+      Files.createDirectories(cacheDirectory);
+    }
+    catch (IOException e) {
+      LOG.warn("Unable to use the framework resource cache in " + cacheDirectory, e);
+      return null;
+    }
+    String hash = Hashing.murmur3_128().hashUnencodedChars(resourceDirectoryOrFile.toString()).toString();
+    Path cacheFile = cacheDirectory.resolve("framework_" + hash + ".dat");
+    Executor executor =
+        runnable -> ProgressManager.getInstance().runNonCancelableAsync(runnable, AdaptiveExecutor.Priority.BACKGROUND);
+    return new CachingData(cacheFile, contentVersion, CODE_VERSION, executor);
+  }
+
+  private static final class RepositoryKey {
+    @NotNull private final Path myPath;
+    @NotNull private final Set<String> myLanguages;
+    private final boolean myUseCompiled9Patches;
+
+    RepositoryKey(@NotNull Path path, @NotNull Set<String> languages, boolean useCompiled9Patches) {
+      myPath = path;
+      myLanguages = languages;
+      myUseCompiled9Patches = useCompiled9Patches;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      RepositoryKey other = (RepositoryKey)o;
+      return myUseCompiled9Patches == other.myUseCompiled9Patches &&
+             myPath.equals(other.myPath) &&
+             myLanguages.equals(other.myLanguages);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myPath, myLanguages, myUseCompiled9Patches);
+    }
+  }
+}
@@ -18,10 +18,15 @@ import it.unimi.dsi.fastutil.objects.Object2IntMaps;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -243,6 +248,25 @@ public class ResourceSerializationUtil {
     }
     return header.toByteArray();
   }
+
+  /**
+   * Opens a cache file created by {@link #createPersistentCache} for reading. The file is memory-mapped, so its bytes
+   * are paged in by the OS as they are read instead of being copied to a heap buffer first. This only saves the copy
+   * of the file: the resources decoded from the stream are still allocated on the heap.
+   *
+   * @param cacheFile the cache file to read
+   * @return the stream positioned at the beginning of the file header
+   * @throws NoSuchFileException if the cache file doesn't exist
+   */
+  public static @NotNull Base128InputStream openPersistentCache(@NotNull Path cacheFile) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed.
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    return new Base128InputStream(new ByteBufferInputStream(buffer));
+  }
+
   private static void deleteIgnoringErrors(@NotNull Path file) {
     try {
       Files.deleteIfExists(file);
@@ -292,4 +316,45 @@ public class ResourceSerializationUtil {
   public interface Base128StreamWriter {
     void write(@NotNull Base128OutputStream stream) throws IOException;
   }
-}
\ No newline at end of file
+
+  /**
+   * Input stream reading the remaining bytes of a buffer.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer myBuffer;
+
+    ByteBufferInputStream(@NotNull ByteBuffer buffer) {
+      myBuffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return myBuffer.hasRemaining() ? myBuffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@NotNull byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!myBuffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, myBuffer.remaining());
+      myBuffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int)Math.max(0, Math.min(n, myBuffer.remaining()));
+      myBuffer.position(myBuffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return myBuffer.remaining();
+    }
+  }
+}
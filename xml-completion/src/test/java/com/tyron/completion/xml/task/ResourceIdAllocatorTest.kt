@@ -0,0 +1,31 @@
+package com.tyron.completion.xml.task
+
+import com.tyron.builder.compiler.manifest.resources.ResourceType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Test
+
+class ResourceIdAllocatorTest {
+
+    @Test
+    fun `test ids are stable when resources are added`() {
+        val ids = ResourceIdAllocator()
+        val appName = ids.getId(ResourceType.STRING, "app_name")
+        val red = ids.getId(ResourceType.COLOR, "red")
+
+        ids.getId(ResourceType.STRING, "title")
+        ids.getId(ResourceType.DRAWABLE, "icon")
+
+        assertEquals(appName, ids.getId(ResourceType.STRING, "app_name"))
+        assertEquals(red, ids.getId(ResourceType.COLOR, "red"))
+    }
+
+    @Test
+    fun `test ids follow the aapt layout`() {
+        val ids = ResourceIdAllocator()
+        assertEquals(0x7f010000, ids.getId(ResourceType.STRING, "app_name"))
+        assertEquals(0x7f010001, ids.getId(ResourceType.STRING, "title"))
+        assertEquals(0x7f020000, ids.getId(ResourceType.COLOR, "red"))
+        assertNotEquals(ids.getId(ResourceType.STRING, "red"), ids.getId(ResourceType.COLOR, "red"))
+    }
+}
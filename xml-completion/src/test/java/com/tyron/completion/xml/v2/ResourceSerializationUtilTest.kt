@@ -0,0 +1,34 @@
+package com.tyron.completion.xml.v2
+
+import com.tyron.completion.xml.v2.base.ResourceSerializationUtil
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+
+class ResourceSerializationUtilTest {
+
+    @Test
+    fun `test reading a memory mapped cache file`() {
+        val dir = Files.createTempDirectory("resourceCache")
+        val cacheFile = dir.resolve("framework.dat")
+        val header = ResourceSerializationUtil.getCacheFileHeader { it.writeString("header") }
+        ResourceSerializationUtil.createPersistentCache(cacheFile, header) {
+            it.writeString("content")
+            it.writeInt(42)
+        }
+
+        ResourceSerializationUtil.openPersistentCache(cacheFile).use {
+            assertTrue(it.validateContents(header))
+            assertEquals("content", it.readString())
+            assertEquals(42, it.readInt())
+        }
+    }
+
+    @Test(expected = NoSuchFileException::class)
+    fun `test opening a missing cache file`() {
+        val dir = Files.createTempDirectory("resourceCache")
+        ResourceSerializationUtil.openPersistentCache(dir.resolve("missing.dat"))
+    }
+}